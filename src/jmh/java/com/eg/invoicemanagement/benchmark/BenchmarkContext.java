@@ -0,0 +1,124 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.InvoiceManagementApplication;
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.service.InvoiceService;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+//Starts the application without a web server on one of the storage backends and fills it with invoices, so that all
+//backends are measured through the same beans as in production.
+//Backends: memory, columnar (memory with primitive columns), wal (memory with write-ahead log), jpa (H2 in memory)
+//and write-behind (cache in front of jpa).
+final class BenchmarkContext implements AutoCloseable {
+
+    //Large enough that payments of the benchmarks never settle an invoice
+    static final BigDecimal INVOICE_AMOUNT = new BigDecimal("1000000.00");
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path dir;
+
+    BenchmarkContext(String storage, int invoices, LocalDate dueDate) {
+        this(storage, invoices, dueDate, Map.of());
+    }
+
+    BenchmarkContext(String storage, int invoices, LocalDate dueDate, Map<String, Object> properties) {
+        try {
+            this.dir = Files.createTempDirectory("invoice-benchmark-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, Object> all = new HashMap<>(storageProperties(storage));
+        all.putAll(properties);
+        all.put("logging.level.com.eg", "WARN");
+        //Keeps the gauge sampler from scanning the book while measuring
+        all.put("invoice.metrics.refresh-interval", "1d");
+        //Passed as arguments, which take precedence over application.properties
+        this.context = new SpringApplicationBuilder(InvoiceManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(all.entrySet().stream().map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new));
+        seed(invoices, dueDate);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private Map<String, Object> storageProperties(String storage) {
+        Map<String, Object> properties = new HashMap<>();
+        switch (storage) {
+            case "memory" -> properties.put("invoice.storage.mode", "memory");
+            case "columnar" -> properties.put("invoice.storage.mode", "columnar");
+            case "wal" -> {
+                properties.put("invoice.storage.mode", "memory");
+                properties.put("invoice.storage.wal.enabled", "true");
+                properties.put("invoice.storage.wal.dir", dir.resolve("wal").toString());
+            }
+            case "jpa", "write-behind" -> {
+                properties.put("invoice.storage.mode", "jpa");
+                properties.put("spring.autoconfigure.exclude", "");
+                properties.put("spring.datasource.url", "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+                properties.put("spring.datasource.username", "sa");
+                properties.put("spring.datasource.password", "");
+                properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+                properties.put("spring.jpa.open-in-view", "false");
+                properties.put("spring.jpa.properties.hibernate.jdbc.batch_size", "500");
+                properties.put("spring.jpa.properties.hibernate.order_inserts", "true");
+                properties.put("invoice.storage.write-behind.enabled", String.valueOf(storage.equals("write-behind")));
+                properties.put("invoice.storage.write-behind.journal-dir", dir.resolve("journal").toString());
+            }
+            default -> throw new IllegalArgumentException("Unknown storage " + storage);
+        }
+        return properties;
+    }
+
+    //Invoices are created through the batch endpoint of the service, which keeps the id allocator consistent
+    private void seed(int invoices, LocalDate dueDate) {
+        InvoiceService invoiceService = getBean(InvoiceService.class);
+        for (int from = 0; from < invoices; from += SEED_BATCH_SIZE) {
+            List<InvoiceCreationRequest> requests = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = from; i < Math.min(from + SEED_BATCH_SIZE, invoices); i++)
+                requests.add(creationRequest(dueDate));
+            invoiceService.createInvoices(requests, true);
+        }
+        long count = getBean(InvoiceStore.class).count();
+        if (count != invoices)
+            throw new IllegalStateException("Seeded " + count + " instead of " + invoices + " invoices");
+    }
+
+    static InvoiceCreationRequest creationRequest(LocalDate dueDate) {
+        InvoiceCreationRequest request = new InvoiceCreationRequest();
+        request.setAmount(INVOICE_AMOUNT);
+        request.setDueDate(dueDate);
+        return request;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
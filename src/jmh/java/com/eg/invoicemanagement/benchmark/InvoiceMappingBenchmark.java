@@ -0,0 +1,114 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+//Mapping a page of invoices to their response representation. The reflective BeanUtils mapping is the former
+//implementation of the service and kept here as the baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceMappingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final List<Invoice> invoices = new ArrayList<>(PAGE_SIZE);
+
+    private ObjectWriter writer;
+
+    private JsonGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        for (int id = 1; id <= PAGE_SIZE; id++) {
+            Invoice invoice = new Invoice();
+            invoice.setId(id);
+            invoice.setAmount(100_000L + id);
+            invoice.setPaidAmount(id);
+            invoice.setDueDate(LocalDate.now().plusDays(id));
+            invoice.setStatus(Status.values()[id % Status.values().length]);
+            invoices.add(invoice);
+        }
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        writer = objectMapper.writerFor(InvoiceResponse.class);
+        generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream());
+        generator.setRootValueSeparator(null);
+    }
+
+    @Benchmark
+    public List<InvoiceResponse> mapWithBeanUtils() {
+        List<InvoiceResponse> responses = new ArrayList<>(PAGE_SIZE);
+        for (Invoice invoice : invoices) {
+            InvoiceResponse response = new InvoiceResponse();
+            BeanUtils.copyProperties(invoice, response);
+            response.setAmount(Money.toDecimal(invoice.getAmount(), invoice.getCurrency()));
+            response.setPaidAmount(Money.toDecimal(invoice.getPaidAmount(), invoice.getCurrency()));
+            response.setCurrency(invoice.getCurrency().getCurrencyCode());
+            response.setStatus(invoice.getStatus().getValue());
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public List<InvoiceResponse> mapWithMapper() {
+        List<InvoiceResponse> responses = new ArrayList<>(PAGE_SIZE);
+        for (Invoice invoice : invoices)
+            responses.add(InvoiceMapper.toResponse(invoice));
+        return responses;
+    }
+
+    //Export path before: an InvoiceResponse per invoice serialized by Jackson databind
+    @Benchmark
+    public void writeResponses() throws IOException {
+        for (Invoice invoice : invoices) {
+            InvoiceResponse response = new InvoiceResponse();
+            BeanUtils.copyProperties(invoice, response);
+            response.setAmount(Money.toDecimal(invoice.getAmount(), invoice.getCurrency()));
+            response.setPaidAmount(Money.toDecimal(invoice.getPaidAmount(), invoice.getCurrency()));
+            response.setCurrency(invoice.getCurrency().getCurrencyCode());
+            response.setStatus(invoice.getStatus().getValue());
+            writer.writeValue(generator, response);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    @Benchmark
+    public void writeInvoices() throws IOException {
+        for (Invoice invoice : invoices) {
+            InvoiceMapper.write(invoice, generator);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+}
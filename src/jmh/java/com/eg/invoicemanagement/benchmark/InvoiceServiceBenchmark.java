@@ -0,0 +1,161 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
+import com.eg.invoicemanagement.service.InvoiceService;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+//Throughput of the request hot paths of the service. Every operation is measured by a single thread and by one
+//thread per core, the contended payment variant concentrates all threads on a few invoices.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceServiceBenchmark {
+
+    private static final int HOT_INVOICES = 16;
+
+    //Payments of a remittance file in the bulk payment benchmark
+    private static final int FILE_PAYMENTS = 10_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int invoices;
+
+    @Param({"memory", "columnar", "wal", "jpa", "write-behind"})
+    public String storage;
+
+    //Publishing of change events, switched off to measure what it adds to the write paths
+    @Param({"true"})
+    public boolean events;
+
+    private BenchmarkContext context;
+
+    private InvoiceService invoiceService;
+
+    private InvoiceCreationRequest creationRequest;
+
+    private InvoicePaymentRequest paymentRequest;
+
+    private InvoiceSearchRequest searchRequest;
+
+    private final AtomicInteger files = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext(storage, invoices, LocalDate.now().plusYears(1),
+                Map.of("invoice.events.enabled", events));
+        invoiceService = context.getBean(InvoiceService.class);
+        creationRequest = BenchmarkContext.creationRequest(LocalDate.now().plusYears(1));
+        paymentRequest = new InvoicePaymentRequest();
+        paymentRequest.setAmount(new BigDecimal("0.01"));
+        searchRequest = new InvoiceSearchRequest();
+        searchRequest.setLimit(100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ResponseEntity<Object> createInvoice() {
+        return invoiceService.createInvoice(creationRequest);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResponseEntity<Object> createInvoiceContended() {
+        return invoiceService.createInvoice(creationRequest);
+    }
+
+    //Pays a random invoice, which is mostly the cost of looking it up and storing it
+    @Benchmark
+    @Threads(1)
+    public ResponseEntity<Object> doPayment() {
+        return invoiceService.doPayment(ThreadLocalRandom.current().nextInt(1, invoices + 1), paymentRequest);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResponseEntity<Object> doPaymentContended() {
+        return invoiceService.doPayment(ThreadLocalRandom.current().nextInt(1, HOT_INVOICES + 1), paymentRequest);
+    }
+
+    //Applies a remittance file of payments to random invoices, every payment with an idempotency key of its own.
+    //Scores are payments per second. An iteration applies only a few files, so it runs longer and warms up longer.
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(FILE_PAYMENTS)
+    @Warmup(iterations = 5, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public ResponseEntity<Object> doPaymentsFromCsv(RemittanceFile file) {
+        return invoiceService.doPaymentsFromCsv(new ByteArrayInputStream(file.csv));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @OperationsPerInvocation(FILE_PAYMENTS)
+    @Warmup(iterations = 5, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public ResponseEntity<Object> doPaymentsFromCsvContended(RemittanceFile file) {
+        return invoiceService.doPaymentsFromCsv(new ByteArrayInputStream(file.csv));
+    }
+
+    //Reads and maps the first page of invoices
+    @Benchmark
+    @Threads(1)
+    public ResponseEntity<Object> getAllInvoices() {
+        return invoiceService.getAllInvoices(searchRequest);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResponseEntity<Object> getAllInvoicesContended() {
+        return invoiceService.getAllInvoices(searchRequest);
+    }
+
+    //A new file for every invocation, as the keys of a file are remembered once it is applied
+    @State(Scope.Thread)
+    public static class RemittanceFile {
+
+        private byte[] csv;
+
+        @Setup(Level.Invocation)
+        public void setUp(InvoiceServiceBenchmark benchmark) {
+            int file = benchmark.files.incrementAndGet();
+            StringBuilder lines = new StringBuilder(FILE_PAYMENTS * 32);
+            for (int i = 0; i < FILE_PAYMENTS; i++) {
+                lines.append(ThreadLocalRandom.current().nextInt(1, benchmark.invoices + 1)).append(",0.01,")
+                        .append(file).append('-').append(i).append('\n');
+            }
+            csv = lines.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
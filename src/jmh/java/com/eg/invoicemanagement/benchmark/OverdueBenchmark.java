@@ -0,0 +1,70 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.service.impl.OverdueProgress;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time of one overdue run over a book in which every invoice is overdue. A run changes the whole book, so every
+//iteration starts from a freshly seeded application. Workers contend for the store with parallelism above 1.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OverdueBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int invoices;
+
+    @Param({"memory", "columnar", "wal", "jpa", "write-behind"})
+    public String storage;
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private BenchmarkContext context;
+
+    private OverdueProcessingEngine engine;
+
+    private OverdueProcessRequest request;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        context = new BenchmarkContext(storage, invoices, LocalDate.now().minusDays(1),
+                Map.of("invoice.overdue.parallelism", parallelism));
+        engine = context.getBean(OverdueProcessingEngine.class);
+        request = new OverdueProcessRequest();
+        request.setLateFee(new BigDecimal("50.00"));
+        request.setOverdueDays(5);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OverdueProgress processOverdue() {
+        OverdueProgress progress = new OverdueProgress();
+        engine.process(request, LocalDate.now(), progress);
+        return progress;
+    }
+}
@@ -0,0 +1,137 @@
+package com.eg.invoicemanagement.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Closed-loop load test of the payment endpoint against a running application. Every client sends one payment
+//after the other, so the number of clients is the offered concurrency. Run with 'gradle loadTest', e.g.
+//-PloadTestUrl=http://localhost:8080 -PloadTestClients=1000 -PloadTestDuration=30
+public final class PaymentLoadTest {
+
+    private static final int INVOICES = 10_000;
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        Duration warmup = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 10);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            int first = seed(client, url);
+            run(client, executor, url, first, clients, warmup);
+            Result result = run(client, executor, url, first, clients, duration);
+            System.out.printf("clients=%d duration=%ds requests=%d errors=%d throughput=%.0f/s " +
+                            "p50=%.1fms p99=%.1fms max=%.1fms%n", clients, duration.toSeconds(), result.requests(),
+                    result.errors(), result.requests() / (double) duration.toSeconds(), result.percentile(0.5),
+                    result.percentile(0.99), result.percentile(1));
+        }
+    }
+
+    //Creates the invoices which are paid, returns the id of the first one
+    private static int seed(HttpClient client, String url) throws Exception {
+        String invoice = "{\"amount\":1000000.00,\"due_date\":\"" + LocalDate.now().plusYears(1) + "\"}";
+        String batch = String.join(",", Collections.nCopies(SEED_BATCH_SIZE, invoice));
+        int first = -1;
+        for (int created = 0; created < INVOICES; created += SEED_BATCH_SIZE) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + "/invoices/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("[" + batch + "]"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201)
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + " : " +
+                        response.body());
+            if (first < 0)
+                first = Integer.parseInt(response.body().replaceAll("(?s).*?\"ids\":\\[(\\d+).*", "$1"));
+        }
+        return first;
+    }
+
+    private static Result run(HttpClient client, ExecutorService executor, String url, int first, int clients,
+                              Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(() -> {
+                Result result = new Result();
+                while (System.nanoTime() < deadline) {
+                    int id = first + ThreadLocalRandom.current().nextInt(INVOICES);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/invoices/" + id + "/payments"))
+                            .header("Content-Type", "application/json")
+                            .timeout(Duration.ofSeconds(60))
+                            .PUT(HttpRequest.BodyPublishers.ofString("{\"amount\":0.01}"))
+                            .build();
+                    long started = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        result.record(System.nanoTime() - started, status == 200);
+                    } catch (Exception e) {
+                        result.record(System.nanoTime() - started, false);
+                    }
+                }
+                return result;
+            }));
+        }
+        Result total = new Result();
+        for (Future<Result> future : futures)
+            total.merge(future.get());
+        return total;
+    }
+
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+
+        private int requests;
+
+        private long errors;
+
+        void record(long latencyNanos, boolean ok) {
+            if (requests == latencies.length)
+                latencies = Arrays.copyOf(latencies, requests * 2);
+            latencies[requests++] = latencyNanos;
+            if (!ok)
+                errors++;
+        }
+
+        void merge(Result other) {
+            for (int i = 0; i < other.requests; i++)
+                record(other.latencies[i], true);
+            errors += other.errors;
+        }
+
+        long requests() {
+            return requests;
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        double percentile(double percentile) {
+            if (requests == 0)
+                return 0;
+            long[] sorted = Arrays.copyOf(latencies, requests);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(requests - 1, Math.ceil(percentile * requests) - 1)] / 1e6;
+        }
+    }
+}
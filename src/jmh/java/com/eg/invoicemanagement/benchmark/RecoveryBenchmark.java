@@ -0,0 +1,131 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WalInvoiceStore;
+import com.eg.invoicemanagement.store.wal.FsyncPolicy;
+import com.eg.invoicemanagement.store.wal.InvoiceSnapshot;
+import com.eg.invoicemanagement.store.wal.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time until the wal backend has recovered a book from its latest snapshot and a log tail in which a tenth of the
+//invoices were paid. The files are written once, every iteration recovers a copy of them into a fresh store.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RecoveryBenchmark {
+
+    private static final int LOG_BATCH_SIZE = 1_000;
+
+    @Param({"1000000", "10000000"})
+    public int invoices;
+
+    private Path dir;
+
+    private Path copy;
+
+    private InvoiceProperties properties;
+
+    private WalInvoiceStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("invoice-recovery-");
+        List<Invoice> book = new ArrayList<>(invoices);
+        Currency currency = Currency.getInstance("USD");
+        LocalDate dueDate = LocalDate.now();
+        for (int id = 1; id <= invoices; id++) {
+            Invoice invoice = new Invoice();
+            invoice.setId(id);
+            invoice.setAmount(10_000 + id % 100_000);
+            invoice.setCurrency(currency);
+            invoice.setDueDate(dueDate.minusDays(id % 365));
+            invoice.setStatus(Status.PENDING);
+            book.add(invoice);
+        }
+        InvoiceSnapshot.write(dir, 0, book);
+        try (WriteAheadLog log = new WriteAheadLog(dir, 0, FsyncPolicy.NONE, Duration.ofSeconds(1))) {
+            List<Invoice> paid = new ArrayList<>(LOG_BATCH_SIZE);
+            for (int id = 1; id <= invoices; id += 10) {
+                Invoice invoice = book.get(id - 1);
+                invoice.setPaidAmount(invoice.getAmount());
+                invoice.setStatus(Status.PAID);
+                paid.add(invoice);
+                if (paid.size() == LOG_BATCH_SIZE) {
+                    log.appendAll(paid);
+                    paid.clear();
+                }
+            }
+            log.appendAll(paid);
+        }
+    }
+
+    //The shutdown of a store writes a final snapshot, which must not shorten the log of the next iteration
+    @Setup(Level.Iteration)
+    public void copy() throws IOException {
+        copy = Files.createTempDirectory("invoice-recovery-");
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList())
+                Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        properties = new InvoiceProperties();
+        InvoiceProperties.Wal wal = properties.getStorage().getWal();
+        wal.setDir(copy.toString());
+        wal.setFsync(FsyncPolicy.NONE);
+        wal.setSnapshotInterval(Duration.ofDays(1));
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdown() throws IOException {
+        store.shutdown();
+        delete(copy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(dir);
+    }
+
+    @Benchmark
+    public long recover() {
+        InMemoryInvoiceStore recovered = new InMemoryInvoiceStore();
+        store = new WalInvoiceStore(recovered, properties);
+        store.start();
+        return recovered.count();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+}
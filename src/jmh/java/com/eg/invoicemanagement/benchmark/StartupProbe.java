@@ -0,0 +1,132 @@
+package com.eg.invoicemanagement.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+//Measures how soon a freshly started application answers its first invoice request and how much memory it holds at
+//that point, for each way of starting it. Every run starts a new process in an empty working directory, so that
+//no run profits from the files of another. Run with 'gradle startup', e.g. -PstartupModes=jar,cds -PstartupRuns=5
+public final class StartupProbe {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(args[0]);
+        Path cdsDir = Path.of(args[1]);
+        Path nativeImage = Path.of(args[2]);
+        String[] modes = (args.length > 3 ? args[3] : "jar,cds,aot,aot-cds").split(",");
+        int runs = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        //The JVM running the probe is the toolchain JVM of the build, which the archives were created with
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Path cdsJar = cdsDir.resolve(jar.getFileName());
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        for (String mode : modes) {
+            List<String> command = switch (mode) {
+                case "jar" -> List.of(java, "-jar", jar.toString());
+                case "cds" -> List.of(java, "-XX:SharedArchiveFile=" + cdsDir.resolve("application.jsa"),
+                        "-jar", cdsJar.toString());
+                case "aot" -> List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.toString());
+                case "aot-cds" -> List.of(java, "-XX:SharedArchiveFile=" + cdsDir.resolve("application-aot.jsa"),
+                        "-Dspring.aot.enabled=true", "-jar", cdsJar.toString());
+                case "native" -> List.of(nativeImage.toString());
+                default -> throw new IllegalArgumentException("Unknown mode " + mode);
+            };
+            List<Run> results = new ArrayList<>();
+            for (int i = 0; i < runs; i++)
+                results.add(run(client, command));
+            System.out.printf("mode=%s runs=%d firstRequest=%dms (min %dms) rss=%.1fMB peakRss=%.1fMB%n", mode,
+                    runs, median(results, Run::millis), results.stream().mapToLong(Run::millis).min().orElse(0),
+                    median(results, Run::rssKb) / 1024.0, median(results, Run::peakRssKb) / 1024.0);
+        }
+    }
+
+    private static Run run(HttpClient client, List<String> command) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Path workDir = Files.createTempDirectory("invoice-startup-");
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/invoices"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":100.00,\"due_date\":\"" +
+                        LocalDate.now().plusDays(30) + "\"}"))
+                .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(arguments).directory(workDir.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(true)
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive())
+                    throw new IllegalStateException("Application exited with " + process.exitValue());
+                if (System.nanoTime() - started > START_TIMEOUT.toNanos())
+                    throw new IllegalStateException("Application did not answer within " + START_TIMEOUT);
+                try {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() != 201)
+                        throw new IllegalStateException("First request failed with " + response.statusCode() +
+                                " : " + response.body());
+                    break;
+                } catch (IOException e) {
+                    //Not listening yet
+                    Thread.sleep(POLL_INTERVAL.toMillis());
+                }
+            }
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            return new Run(millis, status(process.pid(), "VmRSS:"), status(process.pid(), "VmHWM:"));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS))
+                process.destroyForcibly();
+            delete(workDir);
+        }
+    }
+
+    //Memory figures of a process in kB, only available on Linux
+    private static long status(long pid, String field) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status))
+            return 0;
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith(field))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst().orElse(0);
+        }
+    }
+
+    private static long median(List<Run> runs, ToLongFunction<Run> value) {
+        long[] values = runs.stream().mapToLong(value).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    private record Run(long millis, long rssKb, long peakRssKb) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.eg.invoicemanagement.benchmark;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.impl.ColumnarInvoiceStore;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+//Compares the heap footprint and the garbage collection pauses of the memory and columnar stores. A store is filled
+//with invoices, then its retained heap and the pause of a full collection are measured, followed by a run of
+//payments and new invoices which allocates request-like garbage. Stores are measured in separate JVMs so that they
+//do not share a heap. Run with 'gradle footprint', e.g. -PfootprintStorage=columnar -PfootprintInvoices=1000000
+public final class StoreFootprint {
+
+    //Garbage allocated per operation, standing in for the request handling around a store call
+    private static final int GARBAGE_PER_OPERATION = 1024;
+
+    private static final List<Pause> pauses = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        String storage = args.length > 0 ? args[0] : "memory";
+        int invoices = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        listenToPauses();
+
+        long baseline = usedHeap();
+        InvoiceStore store = switch (storage) {
+            case "memory" -> new InMemoryInvoiceStore();
+            case "columnar" -> new ColumnarInvoiceStore();
+            default -> throw new IllegalArgumentException("Unknown storage " + storage);
+        };
+        LocalDate today = LocalDate.now();
+        long started = System.nanoTime();
+        for (int id = 1; id <= invoices; id++)
+            store.insert(invoice(id, today));
+        long fillMillis = (System.nanoTime() - started) / 1_000_000;
+        long footprint = usedHeap() - baseline;
+
+        clearPauses();
+        System.gc();
+        double fullPause = totalPause(recordedPauses());
+
+        clearPauses();
+        long operations = 0;
+        int nextId = invoices + 1;
+        long sink = 0;
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            //Nine payments for every new invoice
+            if (operations % 10 == 0) {
+                store.insert(invoice(nextId++, today));
+            } else {
+                Invoice invoice = store.findById(random.nextInt(1, nextId)).orElseThrow();
+                invoice.setPaidAmount(invoice.getPaidAmount() + 1);
+                store.update(invoice);
+            }
+            sink += new byte[GARBAGE_PER_OPERATION].length;
+            operations++;
+        }
+        List<Pause> churn = recordedPauses();
+
+        System.out.printf("storage=%s invoices=%d fill=%dms heap=%.1fMB bytes/invoice=%.1f fullGcPause=%.1fms%n",
+                storage, invoices, fillMillis, footprint / 1e6, footprint / (double) invoices, fullPause);
+        System.out.printf("storage=%s operations=%d throughput=%.0f/s gcPauses=%d totalPause=%.1fms " +
+                        "maxPause=%.1fms%n", storage, operations, operations / (double) seconds, churn.size(),
+                totalPause(churn), churn.stream().mapToDouble(Pause::millis).max().orElse(0));
+        if (sink < 0 || store.count() == 0)
+            throw new IllegalStateException();
+    }
+
+    private static Invoice invoice(int id, LocalDate today) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(random.nextLong(100, 1_000_000));
+        invoice.setDueDate(today.plusDays(random.nextInt(-90, 365)));
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    //Heap in use after full collections, so that only reachable objects are counted
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    //Records stop-the-world pauses, concurrent cycles of the collector run alongside the application and are skipped
+    private static void listenToPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector.getName().contains("Concurrent"))
+                continue;
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                    return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                synchronized (pauses) {
+                    pauses.add(new Pause(info.getGcInfo().getDuration()));
+                }
+            }, null, null);
+        }
+    }
+
+    private static void clearPauses() throws InterruptedException {
+        //Notifications are delivered asynchronously
+        Thread.sleep(500);
+        synchronized (pauses) {
+            pauses.clear();
+        }
+    }
+
+    private static List<Pause> recordedPauses() throws InterruptedException {
+        Thread.sleep(500);
+        synchronized (pauses) {
+            return new ArrayList<>(pauses);
+        }
+    }
+
+    private static double totalPause(List<Pause> pauses) {
+        return pauses.stream().mapToDouble(Pause::millis).sum();
+    }
+
+    private record Pause(double millis) {
+    }
+}
@@ -1,11 +1,15 @@
 package com.eg.invoicemanagement;
 
+import com.eg.invoicemanagement.config.InvoiceRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
-//Database configuration is excluded for now
-@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class})
+//Database configuration is excluded through application.properties unless the 'jpa' profile is active
+@SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(InvoiceRuntimeHints.class)
 public class InvoiceManagementApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,59 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.service.impl.OverdueScheduler;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.impl.ColumnarInvoiceStore;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.eg.invoicemanagement.store.impl.JpaInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WalInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WriteBehindInvoiceStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+//Beans processed ahead of time (started with -Dspring.aot.enabled=true) are selected when the jar is built, so the
+//storage mode and the other properties which choose beans are fixed by the build. Starting with properties which
+//would choose other beans fails, instead of silently running with the configuration of the build.
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AotConfigurationCheck {
+
+    private final InvoiceStore invoiceStore;
+
+    private final InvoiceProperties invoiceProperties;
+
+    private final ObjectProvider<OverdueScheduler> overdueScheduler;
+
+    @PostConstruct
+    public void check() {
+        if (!AotDetector.useGeneratedArtifacts())
+            return;
+        Class<? extends InvoiceStore> expected = getExpectedStore();
+        if (!expected.isInstance(invoiceStore))
+            throw mismatch("the " + ClassUtils.getUserClass(invoiceStore).getSimpleName(),
+                    "the " + expected.getSimpleName());
+        boolean scheduled = invoiceProperties.getOverdue().getSchedule().isEnabled();
+        if (scheduled != (overdueScheduler.getIfAvailable() != null))
+            throw mismatch(scheduled ? "no overdue schedule" : "the overdue schedule",
+                    scheduled ? "the overdue schedule" : "no overdue schedule");
+    }
+
+    private Class<? extends InvoiceStore> getExpectedStore() {
+        InvoiceProperties.Storage storage = invoiceProperties.getStorage();
+        return switch (storage.getMode()) {
+            case MEMORY -> storage.getWal().isEnabled() ? WalInvoiceStore.class : InMemoryInvoiceStore.class;
+            case COLUMNAR -> ColumnarInvoiceStore.class;
+            case JPA -> storage.getWriteBehind().isEnabled() ? WriteBehindInvoiceStore.class : JpaInvoiceStore.class;
+        };
+    }
+
+    private static IllegalStateException mismatch(String built, String configured) {
+        return new IllegalStateException("The application was processed ahead of time with " + built +
+                " but is configured for " + configured + ", build it with the same properties (gradle bootJar " +
+                "-PaotArgs=...) or start it without -Dspring.aot.enabled=true");
+    }
+}
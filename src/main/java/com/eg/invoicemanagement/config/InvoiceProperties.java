@@ -0,0 +1,218 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.store.wal.FsyncPolicy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.concurrent.ThreadFactory;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+//Application specific settings, bound from properties prefixed with 'invoice'
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "invoice")
+public class InvoiceProperties {
+
+    //Currency of invoices created without one and of the amount filters of searches
+    private Currency currency = Money.DEFAULT_CURRENCY;
+
+    private Storage storage = new Storage();
+
+    private Overdue overdue = new Overdue();
+
+    private Pagination pagination = new Pagination();
+
+    private Export export = new Export();
+
+    private Batch batch = new Batch();
+
+    private Idempotency idempotency = new Idempotency();
+
+    private Metrics metrics = new Metrics();
+
+    private Events events = new Events();
+
+    private Threads threads = new Threads();
+
+    @Getter
+    @Setter
+    public static class Storage {
+
+        private StorageMode mode = StorageMode.MEMORY;
+
+        //Number of statements sent to the database in one JDBC batch
+        private int batchSize = 500;
+
+        private WriteBehind writeBehind = new WriteBehind();
+
+        private Wal wal = new Wal();
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+
+        //Enables the write-behind cache in front of the database store
+        private boolean enabled;
+
+        //Maximum number of invoices kept in the cache
+        private long cacheSize = 100_000;
+
+        //Number of dirty invoices which triggers a flush before the flush interval has elapsed
+        private int flushSize = 1000;
+
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        //Directory of the journal from which unflushed writes are replayed after a crash
+        private String journalDir = "journal";
+
+        //Forcing every group of journaled changes keeps acknowledged changes across a power loss, the other
+        //policies only across a crash of the process
+        private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+
+        //Maximum time between forces of the journal with the INTERVAL policy
+        private Duration fsyncInterval = Duration.ofMillis(100);
+    }
+
+    @Getter
+    @Setter
+    public static class Wal {
+
+        //Enables the write-ahead log and snapshots of the in-memory store
+        private boolean enabled;
+
+        //Directory holding the log segments and snapshots
+        private String dir = "wal";
+
+        private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+        //Maximum time between forces of the log with the INTERVAL policy
+        private Duration fsyncInterval = Duration.ofMillis(100);
+
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+    }
+
+    public enum StorageMode {
+        MEMORY,
+        //In memory with primitive columns instead of one object per invoice, for very large books
+        COLUMNAR,
+        JPA
+    }
+
+    @Getter
+    @Setter
+    public static class Overdue {
+
+        //Number of overdue invoices processed and committed together
+        private int batchSize = 1000;
+
+        //Number of worker threads used for overdue processing
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        //Directory where checkpoints of running overdue jobs are kept, checkpointing is disabled if not set
+        private String checkpointDir;
+
+        //Number of finished overdue jobs kept for status polling
+        private int retainedJobs = 100;
+
+        private Schedule schedule = new Schedule();
+    }
+
+    @Getter
+    @Setter
+    public static class Schedule {
+
+        //Processes invoices automatically once they become overdue
+        private boolean enabled;
+
+        //Late fee and overdue days of the invoices created by scheduled runs
+        private BigDecimal lateFee = BigDecimal.ZERO;
+
+        private int overdueDays = 30;
+
+        //Interval at which the scheduler checks whether the day has changed or a failed run has to be retried
+        private Duration checkInterval = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Pagination {
+
+        //Page size used when a request does not specify a limit
+        private int defaultPageSize = 100;
+
+        //Upper bound of the page size, larger limits are capped to it
+        private int maxPageSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+
+        //Number of invoices read from the store at a time while streaming an export
+        private int chunkSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        //Maximum number of invoices or payments accepted by one batch request
+        private int maxSize = 100_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        //Time for which the result of a payment is returned for retries with the same idempotency key
+        private Duration ttl = Duration.ofHours(24);
+
+        //Maximum number of remembered idempotency keys, the least valuable keys are evicted first
+        private long maxSize = 1_000_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        //Interval at which currencies new to the book get a gauge of their outstanding amount
+        private Duration refreshInterval = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Events {
+
+        //Publishes invoice changes to the event stream
+        private boolean enabled = true;
+
+        //Number of recent events kept for subscribers, rounded up to a power of two. Subscribers can resume from any
+        //of them, a subscriber falling further behind loses its subscription.
+        private int bufferSize = 65_536;
+
+        //Maximum number of events delivered to a subscriber at once
+        private int batchSize = 256;
+
+        //Time a reactive stream waits before looking for new events again, subscriptions of the servlet stack are
+        //woken when events are published
+        private Duration waitInterval = Duration.ofMillis(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Threads {
+
+        //Runs the background work of the service (overdue jobs, flushes, snapshots and gauges) on virtual threads
+        private boolean virtual;
+
+        //Threads are named with the prefix followed by a sequence number starting at 1
+        public ThreadFactory factory(String prefix) {
+            return virtual ? Thread.ofVirtual().name(prefix, 1).factory() : new CustomizableThreadFactory(prefix);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.dto.request.PaymentItemRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchError;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceChainResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceEventResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceTotalsResponse;
+import com.eg.invoicemanagement.dto.response.OverdueJobResponse;
+import com.eg.invoicemanagement.dto.response.PaymentBatchResponse;
+import com.eg.invoicemanagement.dto.response.PaymentItemResult;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.service.impl.OverdueCheckpoint;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+//Types which are read or written as JSON without appearing in the signature of a controller method, so that AOT
+//processing cannot find them: responses are returned as ResponseEntity<Object>, items of batches and the overdue
+//checkpoints are read by the services and the write-behind journal holds invoices. A native image needs reflection
+//hints to bind them.
+public class InvoiceRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] JSON_TYPES = {
+            InvoiceResponse.class, InvoiceBatchResponse.class, InvoiceBatchError.class, InvoiceChainResponse.class,
+            InvoiceTotalsResponse.class, InvoiceEventResponse.class, OverdueJobResponse.class,
+            PaymentBatchResponse.class, PaymentItemResult.class, InvoiceCreationRequest.class,
+            PaymentItemRequest.class, OverdueCheckpoint.class, Invoice.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+    }
+}
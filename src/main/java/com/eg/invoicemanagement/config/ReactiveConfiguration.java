@@ -0,0 +1,35 @@
+package com.eg.invoicemanagement.config;
+
+import java.util.concurrent.Executors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.codec.CharSequenceEncoder;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+//Active when the application is started with spring.main.web-application-type=reactive
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration implements WebFluxConfigurer {
+
+    //Runs the blocking store calls of the reactive endpoints, the event loop threads are never blocked
+    @Bean(destroyMethod = "dispose")
+    public Scheduler invoiceScheduler(InvoiceProperties properties) {
+        InvoiceProperties.Threads threads = properties.getThreads();
+        if (threads.isVirtual())
+            return Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(threads.factory("invoice-reactive-")), "invoice-reactive");
+        return Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "invoice-reactive");
+    }
+
+    //Plain string responses such as error messages are written as they are instead of as JSON strings, like the
+    //servlet stack does
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(CharSequenceEncoder.allMimeTypes());
+    }
+}
@@ -0,0 +1,32 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.eg.invoicemanagement.store.impl.JpaInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WalInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WriteBehindInvoiceStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class StorageConfiguration {
+
+    //Placed in front of the database store, which is then only used by the cache itself
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "invoice.storage.write-behind.enabled", havingValue = "true")
+    public WriteBehindInvoiceStore writeBehindInvoiceStore(JpaInvoiceStore jpaInvoiceStore, MeterRegistry meterRegistry,
+                                                           InvoiceProperties properties) {
+        return new WriteBehindInvoiceStore(jpaInvoiceStore, meterRegistry, properties);
+    }
+
+    //Makes the in-memory store durable, the store itself is then only changed through the log
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "invoice.storage.wal.enabled", havingValue = "true")
+    public WalInvoiceStore walInvoiceStore(InMemoryInvoiceStore inMemoryInvoiceStore, InvoiceProperties properties) {
+        return new WalInvoiceStore(inMemoryInvoiceStore, properties);
+    }
+}
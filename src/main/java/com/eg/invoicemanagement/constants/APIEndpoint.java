@@ -7,7 +7,21 @@ public class APIEndpoint {
 
     public static final String INVOICES = "/invoices";
 
+    public static final String EXPORT = "/export";
+
+    public static final String AGGREGATES = "/aggregates";
+
+    public static final String EVENTS = "/events";
+
+    public static final String BATCH = "/batch";
+
+    public static final String PAYMENTS = "/payments";
+
     public static final String INVOICE_PAYMENT = "/{invoice_id}/payments";
 
+    public static final String INVOICE_CHAIN = "/{invoice_id}/chain";
+
     public static final String OVERDUE_PROCESS = "/process-overdue";
+
+    public static final String OVERDUE_JOB = "/process-overdue/{job_id}";
 }
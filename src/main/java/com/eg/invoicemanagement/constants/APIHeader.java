@@ -0,0 +1,16 @@
+package com.eg.invoicemanagement.constants;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class APIHeader {
+
+    //Carries the cursor of the next page of a paginated response
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    //Identifies a payment, a retried payment with the same key returns the original result
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    //Sent by a reconnecting event stream client with the sequence of the last event it received
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+}
@@ -0,0 +1,174 @@
+package com.eg.invoicemanagement.controller;
+
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.service.ReactiveInvoiceService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.eg.invoicemanagement.constants.APIEndpoint.AGGREGATES;
+import static com.eg.invoicemanagement.constants.APIEndpoint.BATCH;
+import static com.eg.invoicemanagement.constants.APIEndpoint.EVENTS;
+import static com.eg.invoicemanagement.constants.APIEndpoint.EXPORT;
+import static com.eg.invoicemanagement.constants.APIEndpoint.INVOICES;
+import static com.eg.invoicemanagement.constants.APIEndpoint.INVOICE_CHAIN;
+import static com.eg.invoicemanagement.constants.APIEndpoint.INVOICE_PAYMENT;
+import static com.eg.invoicemanagement.constants.APIEndpoint.OVERDUE_JOB;
+import static com.eg.invoicemanagement.constants.APIEndpoint.OVERDUE_PROCESS;
+import static com.eg.invoicemanagement.constants.APIEndpoint.PAYMENTS;
+import static com.eg.invoicemanagement.constants.APIHeader.IDEMPOTENCY_KEY;
+import static com.eg.invoicemanagement.constants.APIHeader.LAST_EVENT_ID;
+
+//Same endpoints as InvoiceController on the reactive web stack, which is selected at startup with
+//spring.main.web-application-type=reactive
+@RestController
+@Log4j2
+@RequestMapping(INVOICES)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveInvoiceController {
+
+    private final ReactiveInvoiceService invoiceService;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> createInvoice(@Validated @RequestBody InvoiceCreationRequest request) {
+        log.info("Create Invoice : {}", request.toString());
+        return invoiceService.createInvoice(request);
+    }
+
+    //Items are validated by the service, so that every invalid item is reported instead of only the first
+    @PostMapping(value = BATCH, consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> createInvoices(@RequestBody List<InvoiceCreationRequest> requests,
+                                                       @RequestParam(value = "atomic", defaultValue = "true")
+                                                       boolean atomic) {
+        log.info("Create Invoices : {} invoices, atomic {}", requests.size(), atomic);
+        return invoiceService.createInvoices(requests, atomic);
+    }
+
+    @PostMapping(value = BATCH, consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> createInvoices(@RequestBody Flux<DataBuffer> ndjson,
+                                                       @RequestParam(value = "atomic", defaultValue = "true")
+                                                       boolean atomic) {
+        log.info("Create Invoices : newline delimited, atomic {}", atomic);
+        return invoiceService.createInvoices(ndjson, atomic);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<InvoiceResponse>>> getAllInvoices(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "due_date_from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(value = "due_date_to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(value = "currency", required = false) String currency,
+            @RequestParam(value = "min_amount", required = false) BigDecimal minAmount,
+            @RequestParam(value = "max_amount", required = false) BigDecimal maxAmount,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "order", required = false) String order,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        val request = new InvoiceSearchRequest(status, dueDateFrom, dueDateTo, currency, minAmount, maxAmount, sort,
+                order, limit, cursor);
+        log.info("Getting Invoices : {}", request);
+        return invoiceService.getAllInvoices(request);
+    }
+
+    @GetMapping(value = EXPORT, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DataBuffer> exportInvoices(@RequestParam(value = "after_id", required = false) Integer afterId) {
+        log.info("Exporting Invoices after id : {}", afterId);
+        return invoiceService.exportInvoices(afterId);
+    }
+
+    @GetMapping(value = INVOICE_CHAIN, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getInvoiceChain(@PathVariable("invoice_id") Integer invoiceId) {
+        log.info("Getting chain of invoice id : {}", invoiceId);
+        return invoiceService.getInvoiceChain(invoiceId);
+    }
+
+    @GetMapping(value = AGGREGATES, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getAggregates() {
+        log.info("Getting invoice aggregates");
+        return invoiceService.getAggregates();
+    }
+
+    @GetMapping(value = EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamEvents(
+            @RequestParam(value = "from_sequence", required = false) Long fromSequence,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        log.info("Streaming invoice events from sequence : {}, last event id : {}", fromSequence, lastEventId);
+        return invoiceService.streamEvents(fromSequence, lastEventId);
+    }
+
+    @PutMapping(value = INVOICE_PAYMENT,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> doPayment(@PathVariable("invoice_id") Integer invoiceId,
+                                                  @Validated @RequestBody InvoicePaymentRequest request,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                                  String idempotencyKey) {
+        log.info("Invoice payment amount : {} for invoice id : {}", request.getAmount(), invoiceId);
+        return invoiceService.doPayment(invoiceId, request, idempotencyKey);
+    }
+
+    @PostMapping(value = PAYMENTS, consumes = "text/csv", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> doPaymentsFromCsv(@RequestBody Flux<DataBuffer> csv) {
+        log.info("Applying payments from csv");
+        return invoiceService.doPaymentsFromCsv(csv);
+    }
+
+    @PostMapping(value = PAYMENTS, consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> doPaymentsFromNdjson(@RequestBody Flux<DataBuffer> ndjson) {
+        log.info("Applying payments from newline delimited json");
+        return invoiceService.doPaymentsFromNdjson(ndjson);
+    }
+
+    @PutMapping(value = OVERDUE_PROCESS, consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> processOverdue(@Validated @RequestBody OverdueProcessRequest request) {
+        log.info("Processing all overdue invoices : {}", request.toString());
+        return invoiceService.processOverdue(request);
+    }
+
+    @GetMapping(value = OVERDUE_JOB, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getOverdueJob(@PathVariable("job_id") String jobId) {
+        log.info("Getting overdue job : {}", jobId);
+        return invoiceService.getOverdueJob(jobId);
+    }
+
+    @DeleteMapping(value = OVERDUE_JOB, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> cancelOverdueJob(@PathVariable("job_id") String jobId) {
+        log.info("Cancelling overdue job : {}", jobId);
+        return invoiceService.cancelOverdueJob(jobId);
+    }
+}
@@ -1,9 +1,11 @@
 package com.eg.invoicemanagement.dto.request;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Currency;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -14,8 +16,11 @@ import lombok.ToString;
 public class InvoiceCreationRequest {
 
     @NotNull(message = "The invoice amount cannot be null") //Verifying amount is not null
-    @Min(value = 1, message = "The invoice amount must be more than 0") //Verifying amount is not zero
-    private Double amount;
+    @Positive(message = "The invoice amount must be more than 0") //Verifying amount is not zero
+    private BigDecimal amount;
+
+    //ISO 4217 code, the configured default currency is used if not specified
+    private Currency currency;
 
     @NotNull(message = "The invoice due date cannot be null") //Verifying due date is not null
     @JsonProperty("due_date") //Getting value as due_date from request and mapping to dueDate property
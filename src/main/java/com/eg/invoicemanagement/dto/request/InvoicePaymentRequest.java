@@ -1,7 +1,8 @@
 package com.eg.invoicemanagement.dto.request;
 
-import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +11,6 @@ import lombok.Setter;
 public class InvoicePaymentRequest {
 
     @NotNull(message = "The invoice payment amount cannot be null") //Verifying payment amount is not null
-    @Min(value = 1, message = "The invoice payment amount must be more than 0") //Verifying payment amount is not zero
-    private Double amount;
+    @Positive(message = "The invoice payment amount must be more than 0") //Verifying payment amount is not zero
+    private BigDecimal amount;
 }
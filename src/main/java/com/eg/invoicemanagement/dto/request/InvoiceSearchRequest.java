@@ -0,0 +1,42 @@
+package com.eg.invoicemanagement.dto.request;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSearchRequest {
+
+    private String status;
+
+    private LocalDate dueDateFrom;
+
+    private LocalDate dueDateTo;
+
+    //ISO 4217 code, required by the amount filters and the amount sort
+    private String currency;
+
+    //Amount filters are in the requested currency
+    private BigDecimal minAmount;
+
+    private BigDecimal maxAmount;
+
+    //One of id, due_date or amount, invoices are sorted by id if not specified
+    private String sort;
+
+    //Either asc or desc, ascending if not specified
+    private String order;
+
+    private Integer limit;
+
+    //Opaque token returned with the previous page
+    private String cursor;
+}
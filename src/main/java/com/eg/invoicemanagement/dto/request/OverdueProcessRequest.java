@@ -3,6 +3,7 @@ package com.eg.invoicemanagement.dto.request;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -14,7 +15,7 @@ public class OverdueProcessRequest {
 
     @NotNull(message = "The late fee amount for overdue process cannot be null") //Verifying late fee is not null
     @JsonProperty("late_fee") //Getting value as late_fee from request and mapping to lateFee property
-    private Double lateFee;
+    private BigDecimal lateFee;
 
     @NotNull(message = "The overdue days cannot be null") //Verifying overdue days is not null
     @Min(value = 1, message = "The overdue days must be more than 0") //Verifying overdue days is greater than zero
@@ -0,0 +1,33 @@
+package com.eg.invoicemanagement.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+//A single payment of a bulk payment file
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentItemRequest {
+
+    @NotNull(message = "The invoice id cannot be null")
+    @JsonProperty("invoice_id")
+    private Integer invoiceId;
+
+    @NotNull(message = "The invoice payment amount cannot be null")
+    @Positive(message = "The invoice payment amount must be more than 0")
+    //In the currency of the invoice
+    private BigDecimal amount;
+
+    //Payments repeating the key of an earlier payment of the same file are not applied
+    @JsonProperty("idempotency_key")
+    private String idempotencyKey;
+}
@@ -0,0 +1,18 @@
+package com.eg.invoicemanagement.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBatchError {
+
+    //Zero based position of the item in the request
+    private int index;
+
+    private String message;
+}
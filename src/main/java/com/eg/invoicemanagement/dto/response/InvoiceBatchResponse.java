@@ -0,0 +1,19 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class InvoiceBatchResponse {
+
+    //Ids of the created invoices in the order of the request items
+    private List<Integer> ids = new ArrayList<>();
+
+    //Items which were rejected, identified by their position in the request
+    private List<InvoiceBatchError> errors = new ArrayList<>();
+}
@@ -0,0 +1,26 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//An invoice together with the invoices it replaced and the invoices which replaced it
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceChainResponse {
+
+    //Invoices of the chain from the original invoice to the latest replacement
+    private List<InvoiceResponse> invoices;
+
+    @JsonProperty("head_id") //Id of the latest replacement, the invoice which is payable
+    private Integer headId;
+
+    //Unpaid amount of the latest replacement, zero once it is no longer pending
+    private BigDecimal payable;
+}
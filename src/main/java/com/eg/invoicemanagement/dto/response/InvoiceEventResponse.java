@@ -0,0 +1,54 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//A change of an invoice as sent on the event stream, with the state of the invoice after the change
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"sequence", "type", "occurred_at", "invoice_id", "amount", "paid_amount", "currency", "due_date",
+        "status", "previous_status", "payment", "predecessor_id"})
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceEventResponse {
+
+    private Long sequence;
+
+    private String type;
+
+    @JsonProperty("occurred_at")
+    private Instant occurredAt;
+
+    @JsonProperty("invoice_id")
+    private Integer invoiceId;
+
+    private BigDecimal amount;
+
+    @JsonProperty("paid_amount")
+    private BigDecimal paidAmount;
+
+    private String currency;
+
+    @JsonProperty("due_date")
+    private LocalDate dueDate;
+
+    private String status;
+
+    @JsonProperty("previous_status") //Only present for status_changed
+    private String previousStatus;
+
+    //Amount paid by the change, only present for payment_applied
+    private BigDecimal payment;
+
+    @JsonProperty("predecessor_id")
+    private Integer predecessorId;
+}
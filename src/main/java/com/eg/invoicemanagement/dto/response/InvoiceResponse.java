@@ -2,6 +2,8 @@ package com.eg.invoicemanagement.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -11,22 +13,29 @@ import lombok.Setter;
 @Getter
 @Setter
 @JsonInclude(JsonInclude.Include.NON_NULL)
+//Same order as written by InvoiceMapper
+@JsonPropertyOrder({"id", "amount", "paid_amount", "currency", "due_date", "status", "predecessor_id"})
 @NoArgsConstructor
 @AllArgsConstructor
 public class InvoiceResponse {
 
     private Integer id;
 
-    private Double amount;
+    private BigDecimal amount;
 
     @JsonProperty("paid_amount") //Mapping property paidAmount to paid_amount in response
-    private Double paidAmount;
+    private BigDecimal paidAmount;
+
+    private String currency;
 
     @JsonProperty("due_date") //Mapping property dueDate to due_date in response
     private LocalDate dueDate;
 
     private String status;
 
+    @JsonProperty("predecessor_id") //Id of the overdue invoice replaced by this invoice
+    private Integer predecessorId;
+
     //Used in invoice creation response generation
     public InvoiceResponse(Integer id) {
         this.id = id;
@@ -0,0 +1,31 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.math.BigDecimal;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//Totals of the invoices of one currency and status
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"count", "invoiced", "paid", "outstanding", "ageing"})
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceTotalsResponse {
+
+    private Long count;
+
+    private BigDecimal invoiced;
+
+    private BigDecimal paid;
+
+    private BigDecimal outstanding;
+
+    //Outstanding amount by days past the due date, only present for pending invoices
+    private Map<String, BigDecimal> ageing;
+}
@@ -0,0 +1,47 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+public class OverdueJobResponse {
+
+    @JsonProperty("job_id") //Mapping property jobId to job_id in response
+    private String jobId;
+
+    private String state;
+
+    private Long total;
+
+    private Long processed;
+
+    private Long voided;
+
+    private Long paid;
+
+    private Long created;
+
+    @JsonProperty("throughput_per_second") //Invoices processed per second by the current execution
+    private Double throughputPerSecond;
+
+    @JsonProperty("eta_seconds") //Estimated seconds until completion, only present for running jobs
+    private Long etaSeconds;
+
+    @JsonProperty("started_at")
+    private Instant startedAt;
+
+    @JsonProperty("finished_at")
+    private Instant finishedAt;
+
+    //Used in overdue job submission response generation
+    public OverdueJobResponse(String jobId) {
+        this.jobId = jobId;
+    }
+}
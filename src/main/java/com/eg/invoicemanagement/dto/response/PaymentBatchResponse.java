@@ -0,0 +1,21 @@
+package com.eg.invoicemanagement.dto.response;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentBatchResponse {
+
+    private int applied;
+
+    private int rejected;
+
+    //Result of every payment in the order of the file
+    private List<PaymentItemResult> results;
+}
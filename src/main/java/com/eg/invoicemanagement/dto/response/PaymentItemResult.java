@@ -0,0 +1,27 @@
+package com.eg.invoicemanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaymentItemResult {
+
+    //One based line number of the payment in the file
+    private int line;
+
+    @JsonProperty("invoice_id")
+    private Integer invoiceId;
+
+    private String status;
+
+    //Reason of a rejected payment
+    private String message;
+}
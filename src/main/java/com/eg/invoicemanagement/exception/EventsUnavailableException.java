@@ -0,0 +1,9 @@
+package com.eg.invoicemanagement.exception;
+
+//Thrown when events are requested which have already been overwritten by newer events
+public class EventsUnavailableException extends RuntimeException {
+
+    public EventsUnavailableException(String msg) {
+        super(msg);
+    }
+}
@@ -1,5 +1,6 @@
 package com.eg.invoicemanagement.exception.handler;
 
+import com.eg.invoicemanagement.exception.EventsUnavailableException;
 import com.eg.invoicemanagement.exception.ValidationException;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
@@ -7,12 +8,15 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
 @ControllerAdvice
 @Log4j2
@@ -30,6 +34,15 @@ public class GlobalExceptionHandler {
                 .body(ex.getMessage());
     }
 
+    //Events older than the replay window have been overwritten, the client has to catch up from another source
+    @ExceptionHandler(EventsUnavailableException.class)
+    @ResponseBody
+    protected ResponseEntity<Object> handleEventsUnavailableException(EventsUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.GONE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ex.getMessage());
+    }
+
     @ExceptionHandler(value = {Throwable.class})
     @ResponseBody
     protected ResponseEntity<Object> handleConflict(Throwable ex) {
@@ -43,8 +56,28 @@ public class GlobalExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
     ResponseEntity<Object> onMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        return getResponse(ex.getBindingResult());
+    }
+
+    //Invalid request bodies of the reactive endpoints
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseBody
+    ResponseEntity<Object> onWebExchangeBindException(WebExchangeBindException ex) {
+        return getResponse(ex.getBindingResult());
+    }
+
+    //Unreadable bodies and mismatching parameters of the reactive endpoints
+    @ExceptionHandler(ServerWebInputException.class)
+    @ResponseBody
+    ResponseEntity<Object> onServerWebInputException(ServerWebInputException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ex.getReason());
+    }
+
+    private static ResponseEntity<Object> getResponse(BindingResult bindingResult) {
         val message = new StringBuilder();
-        for (val fieldError : ex.getBindingResult().getFieldErrors()) {
+        for (val fieldError : bindingResult.getFieldErrors()) {
             if (!message.isEmpty()) {
                 message.append(", ");
             }
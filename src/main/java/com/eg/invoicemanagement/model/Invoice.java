@@ -5,43 +5,57 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Currency;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
 @Entity
-@Table(name = "invoice")
+@Table(name = "invoice", indexes = {
+        @Index(name = "idx_invoice_status_due_date", columnList = "status, due_date"),
+        @Index(name = "idx_invoice_due_date", columnList = "due_date"),
+        @Index(name = "idx_invoice_currency_amount", columnList = "currency, amount"),
+        @Index(name = "idx_invoice_predecessor_id", columnList = "predecessor_id")
+})
 @Getter
 @Setter
 public class Invoice {
 
+    //Ids are assigned from pre-allocated blocks of the InvoiceIdAllocator, IDENTITY generation would disable
+    //JDBC insert batching. Instances sharing the database reserve their blocks from the invoice_id_block table.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Integer id;
 
+    //Amounts are in minor units of the currency, see Money
     @Column(name = "amount", nullable = false)
-    private Double amount = 0.0;
+    private long amount;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private Currency currency = Money.DEFAULT_CURRENCY;
 
     @Column(name = "due_date", nullable = false)
     private LocalDate dueDate;
 
     @Column(name = "paid_amount", nullable = false)
-    private Double paidAmount = 0.0;
+    private long paidAmount;
 
     @Column(name = "status", nullable = false)
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    //Id of the overdue invoice this invoice was created to replace, null for invoices which are not a rollover
+    @Column(name = "predecessor_id", updatable = false)
+    private Integer predecessorId;
+
     //Below field can be used to track the invoice created date
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -0,0 +1,43 @@
+package com.eg.invoicemanagement.model;
+
+import com.eg.invoicemanagement.model.enums.InvoiceEventType;
+import com.eg.invoicemanagement.model.enums.Status;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//A change of an invoice together with the state of the invoice after the change. Events are numbered in the order
+//they are published, starting above the numbers of earlier boots. Amounts are in minor units of the currency, see
+//Money.
+@Getter
+@AllArgsConstructor
+public class InvoiceEvent {
+
+    private final long sequence;
+
+    private final InvoiceEventType type;
+
+    private final Instant occurredAt;
+
+    private final Integer invoiceId;
+
+    private final long amount;
+
+    private final long paidAmount;
+
+    private final Currency currency;
+
+    private final LocalDate dueDate;
+
+    private final Status status;
+
+    //Status before the change, only set for status_changed
+    private final Status previousStatus;
+
+    //Amount paid by the change, only set for payment_applied
+    private final long payment;
+
+    private final Integer predecessorId;
+}
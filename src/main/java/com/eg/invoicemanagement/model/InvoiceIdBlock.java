@@ -0,0 +1,23 @@
+package com.eg.invoicemanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+//Next id of a counter from which instances sharing the database reserve blocks of ids
+@Entity
+@Table(name = "invoice_id_block")
+@Getter
+@Setter
+public class InvoiceIdBlock {
+
+    @Id
+    @Column(name = "name", length = 32)
+    private String name;
+
+    @Column(name = "next_id", nullable = false)
+    private long nextId;
+}
@@ -0,0 +1,49 @@
+package com.eg.invoicemanagement.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+//Exact amount of money as a count of the minor unit of its currency, e.g. cents for USD.
+//Invoices keep their amounts as plain longs, this type converts them from and to the decimal amounts of the API.
+public record Money(long minorUnits, Currency currency) {
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    //Throws IllegalArgumentException if the amount has more decimal places than the currency allows
+    public static Money of(BigDecimal amount, Currency currency) {
+        return new Money(toMinorUnits(amount, currency), currency);
+    }
+
+    public static long toMinorUnits(BigDecimal amount, Currency currency) {
+        try {
+            return amount.movePointRight(fractionDigits(currency)).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The amount " + amount.toPlainString() + " is not a valid " +
+                    currency.getCurrencyCode() + " amount");
+        }
+    }
+
+    //Same as above, surplus decimal places are rounded with the given mode
+    public static long toMinorUnits(BigDecimal amount, Currency currency, RoundingMode roundingMode) {
+        return toMinorUnits(amount.setScale(fractionDigits(currency), roundingMode), currency);
+    }
+
+    public static BigDecimal toDecimal(long minorUnits, Currency currency) {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    public BigDecimal toDecimal() {
+        return toDecimal(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    //Pseudo currencies like XAU have no minor unit
+    private static int fractionDigits(Currency currency) {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.eg.invoicemanagement.model.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum InvoiceEventType {
+
+    CREATED("created"),
+    PAYMENT_APPLIED("payment_applied"),
+    STATUS_CHANGED("status_changed"),
+    //A new invoice replacing an overdue invoice, published instead of created
+    ROLLED_OVER("rolled_over");
+
+    private final String value;
+
+    InvoiceEventType(String value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,18 @@
+package com.eg.invoicemanagement.model.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum JobState {
+
+    RUNNING("running"),
+    COMPLETED("completed"),
+    CANCELLED("cancelled"),
+    FAILED("failed");
+
+    private final String value;
+
+    JobState(String value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,20 @@
+package com.eg.invoicemanagement.model.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum PaymentOutcome {
+
+    APPLIED("applied"),
+    NOT_FOUND("not_found"),
+    OVERDUE("overdue"),
+    EXCEEDS_AMOUNT("exceeds_amount"),
+    INVALID("invalid"),
+    DUPLICATE("duplicate");
+
+    private final String value;
+
+    PaymentOutcome(String value) {
+        this.value = value;
+    }
+}
@@ -1,5 +1,6 @@
 package com.eg.invoicemanagement.model.enums;
 
+import java.util.Arrays;
 import lombok.Getter;
 
 @Getter
@@ -14,4 +15,11 @@ public enum Status {
     Status(String value) {
         this.value = value;
     }
+
+    public static Status fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(status -> status.value.equals(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Invalid invoice status " + value));
+    }
 }
@@ -0,0 +1,25 @@
+package com.eg.invoicemanagement.repository;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface InvoiceRepository extends JpaRepository<Invoice, Integer> {
+
+    List<Invoice> findAllByOrderById();
+
+    List<Invoice> findByStatusOrderById(Status status);
+
+    List<Invoice> findByStatusAndDueDateBeforeOrderById(Status status, LocalDate date);
+
+    List<Invoice> findByDueDateBetweenOrderById(LocalDate from, LocalDate to);
+
+    Optional<Invoice> findByPredecessorId(Integer predecessorId);
+
+    @Query("select coalesce(max(i.id), 0) from Invoice i")
+    int findMaxId();
+}
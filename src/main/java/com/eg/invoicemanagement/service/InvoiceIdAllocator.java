@@ -0,0 +1,15 @@
+package com.eg.invoicemanagement.service;
+
+public interface InvoiceIdAllocator {
+
+    int nextId();
+
+    //Reserves a contiguous block of ids and returns the first id of the block
+    int reserve(int count);
+
+    //Returns the last allocated id, every id allocated afterwards is greater
+    int lastId();
+
+    //Makes sure that every id allocated afterwards is greater than the given id
+    void reseed(int lastId);
+}
@@ -2,16 +2,53 @@ package com.eg.invoicemanagement.service;
 
 import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
 import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
 import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import java.io.InputStream;
+import java.util.List;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public interface InvoiceService {
 
     ResponseEntity<Object> createInvoice(InvoiceCreationRequest request);
 
-    ResponseEntity<Object> getAllInvoices();
+    //Creates all valid invoices, with atomic set nothing is created unless every invoice is valid
+    ResponseEntity<Object> createInvoices(List<InvoiceCreationRequest> requests, boolean atomic);
 
-    ResponseEntity<Object> doPayment(Integer invoiceId, InvoicePaymentRequest request);
+    //Same as above for invoices given as newline delimited JSON
+    ResponseEntity<Object> createInvoices(InputStream ndjson, boolean atomic);
+
+    ResponseEntity<Object> getAllInvoices(InvoiceSearchRequest request);
+
+    ResponseEntity<StreamingResponseBody> exportInvoices(Integer afterId);
+
+    //The invoice with the invoices it replaced and those which replaced it, read along the links of the chain
+    ResponseEntity<Object> getInvoiceChain(Integer invoiceId);
+
+    //Count, invoiced, paid and outstanding amounts by currency and status, read without scanning the invoices
+    ResponseEntity<Object> getAggregates();
+
+    //Server-sent events of the changes to invoices from the given sequence, or after the last event a reconnecting
+    //client received, or from now on when neither is given
+    ResponseEntity<SseEmitter> streamEvents(Long fromSequence, Long lastEventId);
+
+    default ResponseEntity<Object> doPayment(Integer invoiceId, InvoicePaymentRequest request) {
+        return doPayment(invoiceId, request, null);
+    }
+
+    //A payment with an idempotency key is applied at most once, retries return the original result
+    ResponseEntity<Object> doPayment(Integer invoiceId, InvoicePaymentRequest request, String idempotencyKey);
+
+    //Applies the payments of a bank remittance file and reports the outcome of every payment
+    ResponseEntity<Object> doPaymentsFromCsv(InputStream csv);
+
+    ResponseEntity<Object> doPaymentsFromNdjson(InputStream ndjson);
 
     ResponseEntity<Object> processOverdue(OverdueProcessRequest request);
+
+    ResponseEntity<Object> getOverdueJob(String jobId);
+
+    ResponseEntity<Object> cancelOverdueJob(String jobId);
 }
@@ -0,0 +1,49 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import java.util.List;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Non-blocking counterpart of InvoiceService used by the reactive web stack. Responses are the same as those of
+//InvoiceService, request and response bodies which may be large are streamed.
+public interface ReactiveInvoiceService {
+
+    Mono<ResponseEntity<Object>> createInvoice(InvoiceCreationRequest request);
+
+    Mono<ResponseEntity<Object>> createInvoices(List<InvoiceCreationRequest> requests, boolean atomic);
+
+    //Invoices given as newline delimited JSON
+    Mono<ResponseEntity<Object>> createInvoices(Flux<DataBuffer> ndjson, boolean atomic);
+
+    //The page is read before the response starts, so that the cursor of the next page can be sent as a header
+    Mono<ResponseEntity<Flux<InvoiceResponse>>> getAllInvoices(InvoiceSearchRequest request);
+
+    //Newline delimited JSON of all invoices after the given id, the next chunk is read when the client demands it
+    Flux<DataBuffer> exportInvoices(Integer afterId);
+
+    Mono<ResponseEntity<Object>> getInvoiceChain(Integer invoiceId);
+
+    Mono<ResponseEntity<Object>> getAggregates();
+
+    Flux<ServerSentEvent<Object>> streamEvents(Long fromSequence, Long lastEventId);
+
+    Mono<ResponseEntity<Object>> doPayment(Integer invoiceId, InvoicePaymentRequest request, String idempotencyKey);
+
+    Mono<ResponseEntity<Object>> doPaymentsFromCsv(Flux<DataBuffer> csv);
+
+    Mono<ResponseEntity<Object>> doPaymentsFromNdjson(Flux<DataBuffer> ndjson);
+
+    Mono<ResponseEntity<Object>> processOverdue(OverdueProcessRequest request);
+
+    Mono<ResponseEntity<Object>> getOverdueJob(String jobId);
+
+    Mono<ResponseEntity<Object>> cancelOverdueJob(String jobId);
+}
@@ -0,0 +1,122 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+//Remembers the results of recent payments by their idempotency key, so that a retried payment returns the original
+//result instead of being applied again. Keys expire after the configured time and the number of keys is bounded.
+@Component
+public class IdempotencyCache {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    //In-flight payments are cached as incomplete futures, which concurrent requests with the same key wait for
+    private final Cache<String, CompletableFuture<Result>> cache;
+
+    public IdempotencyCache(InvoiceProperties properties) {
+        InvoiceProperties.Idempotency idempotency = properties.getIdempotency();
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(idempotency.getTtl())
+                .maximumSize(idempotency.getMaxSize())
+                .build();
+    }
+
+    //Runs the payment unless a result is known for the key. Concurrent requests with the same key wait for the first
+    //one and share its result, a payment which fails with an exception is not remembered. The payment runs outside
+    //of the cache's compute, which would hold a monitor and pin a virtual thread for the whole payment.
+    public ResponseEntity<Object> execute(String key, Integer invoiceId, BigDecimal amount,
+                                          Supplier<ResponseEntity<Object>> payment) {
+        checkKey(key);
+        Result result = null;
+        while (result == null) {
+            CompletableFuture<Result> created = new CompletableFuture<>();
+            CompletableFuture<Result> existing = cache.asMap().putIfAbsent(key, created);
+            if (existing == null)
+                result = run(key, created, invoiceId, amount, payment);
+            else
+                result = await(existing);
+        }
+        if (!result.matches(invoiceId, amount))
+            return new ResponseEntity<>("Idempotency key " + key + " was already used for a different payment",
+                    HttpStatus.UNPROCESSABLE_ENTITY);
+        return result.response();
+    }
+
+    private Result run(String key, CompletableFuture<Result> created, Integer invoiceId, BigDecimal amount,
+                       Supplier<ResponseEntity<Object>> payment) {
+        try {
+            Result result = new Result(invoiceId, amount, payment.get());
+            created.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    //Returns null if the awaited payment failed, the waiting request then tries to run the payment itself
+    private static Result await(CompletableFuture<Result> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    //Reserves the key for a payment which is applied without execute, e.g. as part of a bulk payment, with the same
+    //in-flight future as execute. Returns null if the key is already used or reserved. Concurrent requests with the
+    //key wait until the reservation is completed or released.
+    public Reservation reserve(String key) {
+        checkKey(key);
+        CompletableFuture<Result> created = new CompletableFuture<>();
+        return cache.asMap().putIfAbsent(key, created) == null ? new Reservation(key, created) : null;
+    }
+
+    public static void checkKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException("The idempotency key must have 1 to " + MAX_KEY_LENGTH +
+                    " characters");
+    }
+
+    public final class Reservation {
+
+        private final String key;
+
+        private final CompletableFuture<Result> future;
+
+        private Reservation(String key, CompletableFuture<Result> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        //Remembers the result of the payment
+        public void complete(Integer invoiceId, BigDecimal amount, ResponseEntity<Object> response) {
+            future.complete(new Result(invoiceId, amount, response));
+        }
+
+        //Frees the key of a payment which was not applied, a waiting request then runs its payment itself
+        public void release() {
+            cache.asMap().remove(key, future);
+            future.cancel(false);
+        }
+    }
+
+    private record Result(Integer invoiceId, BigDecimal amount, ResponseEntity<Object> response) {
+
+        //Amounts are compared by value, a retry may send 10.5 for an earlier 10.50
+        boolean matches(Integer invoiceId, BigDecimal amount) {
+            return Objects.equals(this.invoiceId, invoiceId) && this.amount.compareTo(amount) == 0;
+        }
+    }
+}
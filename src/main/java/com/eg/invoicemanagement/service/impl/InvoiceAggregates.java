@@ -0,0 +1,168 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.eg.invoicemanagement.model.enums.Status.PENDING;
+
+//Totals of the invoice book by currency and status, kept up-to-date by every write of the service instead of being
+//computed from the store, so reading them does not depend on the number of invoices. The totals are loaded from the
+//store once at startup and, like the id allocator, assume that this instance is the only writer of the store.
+//Totals are updated one counter at a time, so a concurrent read may see a write half applied.
+@Component
+@Log4j2
+public class InvoiceAggregates {
+
+    //Names of the ageing buckets of outstanding amounts and the highest number of days past due of each bucket,
+    //the last bucket has no limit
+    public static final List<String> AGEING_BUCKETS = List.of("current", "1_30", "31_60", "61_90", "over_90");
+
+    private static final long[] AGEING_LIMITS = {0, 30, 60, 90};
+
+    private final InvoiceStore invoiceStore;
+
+    private final int chunkSize;
+
+    //Totals of each currency indexed by status ordinal
+    private final Map<Currency, Totals[]> totals = new ConcurrentHashMap<>();
+
+    //Outstanding amounts of pending invoices by due date and currency, from which the ageing buckets are summed.
+    //Due dates are kept once they have no pending invoice left, their number grows with days rather than invoices.
+    private final ConcurrentSkipListMap<LocalDate, Map<Currency, LongAdder>> outstandingByDueDate =
+            new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public InvoiceAggregates(InvoiceStore invoiceStore, InvoiceProperties properties) {
+        this.invoiceStore = invoiceStore;
+        this.chunkSize = properties.getExport().getChunkSize();
+    }
+
+    //Reads the whole book in id order, before the application serves requests
+    @PostConstruct
+    public void load() {
+        InvoiceQuery query = new InvoiceQuery();
+        query.setLimit(chunkSize);
+        List<Invoice> chunk;
+        long count = 0;
+        do {
+            chunk = invoiceStore.search(query);
+            chunk.forEach(this::add);
+            count += chunk.size();
+            if (!chunk.isEmpty())
+                query.setAfterId(chunk.get(chunk.size() - 1).getId());
+        } while (chunk.size() == chunkSize);
+        log.info("Invoice aggregates loaded from {} invoices", count);
+    }
+
+    //Adds a new invoice, called once the invoice is stored
+    public void add(Invoice invoice) {
+        record(invoice, invoice.getStatus(), invoice.getPaidAmount(), 1);
+    }
+
+    //Moves a changed invoice from its previous status and paid amount to the current ones, called once the change is
+    //stored. Amount, currency and due date of an invoice never change.
+    public void update(Invoice invoice, Status previousStatus, long previousPaidAmount) {
+        record(invoice, previousStatus, previousPaidAmount, -1);
+        record(invoice, invoice.getStatus(), invoice.getPaidAmount(), 1);
+    }
+
+    private void record(Invoice invoice, Status status, long paidAmount, int sign) {
+        Totals statusTotals = totals.computeIfAbsent(invoice.getCurrency(), currency -> newTotals())[status.ordinal()];
+        statusTotals.count.add(sign);
+        statusTotals.invoiced.add(sign * invoice.getAmount());
+        statusTotals.paid.add(sign * paidAmount);
+        if (status == PENDING)
+            outstandingByDueDate.computeIfAbsent(invoice.getDueDate(), dueDate -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(invoice.getCurrency(), currency -> new LongAdder())
+                    .add(sign * (invoice.getAmount() - paidAmount));
+    }
+
+    public Set<Currency> getCurrencies() {
+        return totals.keySet();
+    }
+
+    //Totals of the given currency and status, zero for a currency without invoices
+    public Totals get(Currency currency, Status status) {
+        Totals[] currencyTotals = totals.get(currency);
+        return currencyTotals == null ? new Totals() : currencyTotals[status.ordinal()];
+    }
+
+    public long getCount(Status status) {
+        long count = 0;
+        for (Totals[] currencyTotals : totals.values())
+            count += currencyTotals[status.ordinal()].getCount();
+        return count;
+    }
+
+    //Unpaid amount of the pending invoices of the given currency in minor units
+    public long getOutstanding(Currency currency) {
+        return get(currency, PENDING).getOutstanding();
+    }
+
+    //Outstanding amounts of the given currency by ageing bucket in minor units, in the order of AGEING_BUCKETS.
+    //Reads one entry per due date with pending invoices.
+    public long[] getAgeing(Currency currency, LocalDate today) {
+        long[] ageing = new long[AGEING_BUCKETS.size()];
+        outstandingByDueDate.forEach((dueDate, outstanding) -> {
+            LongAdder amount = outstanding.get(currency);
+            if (amount == null)
+                return;
+            long daysPastDue = ChronoUnit.DAYS.between(dueDate, today);
+            int bucket = 0;
+            while (bucket < AGEING_LIMITS.length && daysPastDue > AGEING_LIMITS[bucket])
+                bucket++;
+            ageing[bucket] += amount.sum();
+        });
+        return ageing;
+    }
+
+    private static Totals[] newTotals() {
+        Totals[] currencyTotals = new Totals[Status.values().length];
+        for (int i = 0; i < currencyTotals.length; i++)
+            currencyTotals[i] = new Totals();
+        return currencyTotals;
+    }
+
+    //Counters of the invoices of one currency and status, amounts are in minor units
+    public static final class Totals {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder invoiced = new LongAdder();
+
+        private final LongAdder paid = new LongAdder();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getInvoiced() {
+            return invoiced.sum();
+        }
+
+        public long getPaid() {
+            return paid.sum();
+        }
+
+        //Unpaid part of the invoiced amount, which is only receivable while invoices are pending
+        public long getOutstanding() {
+            return getInvoiced() - getPaid();
+        }
+    }
+}
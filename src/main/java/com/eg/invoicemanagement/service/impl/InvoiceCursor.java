@@ -0,0 +1,51 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.regex.Pattern;
+import lombok.experimental.UtilityClass;
+
+//Encodes the keyset position of a page as an opaque token: sort field, order, currency, sort key and id of the last
+//invoice. Amount keys are minor units of the currency, so a cursor only continues a search in the same currency
+@UtilityClass
+class InvoiceCursor {
+
+    private static final String SEPARATOR = "|";
+
+    static String encode(InvoiceQuery query, Object sortKey, Integer id) {
+        String cursor = String.join(SEPARATOR, query.getSortField().getValue(),
+                query.isDescending() ? "desc" : "asc", currency(query), String.valueOf(sortKey), String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Applies the position of the cursor to the query, the cursor must have been created for the same sort order and
+    //currency
+    static void decode(String cursor, InvoiceQuery query) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(Pattern.quote(SEPARATOR));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        if (parts.length != 5 || !parts[0].equals(query.getSortField().getValue())
+                || !parts[1].equals(query.isDescending() ? "desc" : "asc") || !parts[2].equals(currency(query)))
+            throw new IllegalArgumentException("Invalid cursor " + cursor + " for the requested sort order");
+        try {
+            query.setAfterKey(switch (query.getSortField()) {
+                case ID -> Integer.valueOf(parts[3]);
+                case DUE_DATE -> LocalDate.parse(parts[3]);
+                case AMOUNT -> Long.valueOf(parts[3]);
+            });
+            query.setAfterId(Integer.valueOf(parts[4]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+    }
+
+    private static String currency(InvoiceQuery query) {
+        return query.getCurrency() == null ? "" : query.getCurrency().getCurrencyCode();
+    }
+}
@@ -0,0 +1,415 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.exception.EventsUnavailableException;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.model.enums.InvoiceEventType;
+import com.eg.invoicemanagement.model.enums.Status;
+import jakarta.annotation.PreDestroy;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.eg.invoicemanagement.model.enums.InvoiceEventType.CREATED;
+import static com.eg.invoicemanagement.model.enums.InvoiceEventType.PAYMENT_APPLIED;
+import static com.eg.invoicemanagement.model.enums.InvoiceEventType.ROLLED_OVER;
+import static com.eg.invoicemanagement.model.enums.InvoiceEventType.STATUS_CHANGED;
+import static com.eg.invoicemanagement.model.enums.Status.PENDING;
+
+//Publishes the changes of invoices to subscribers through a ring buffer of the most recent events, laid out like the
+//ring of the LMAX Disruptor. Slots are allocated once and the fields of an event are written into its slot, so
+//publishing allocates nothing and the buffer does not keep a young object alive per event, which would be promoted
+//and add to every collection. Publishing claims a range of sequence numbers with one atomic add, marks each slot as
+//being written, stores the fields and then the sequence number of the event. It never waits for subscribers. A
+//reader recognises a slot which has not been published yet by an older sequence and a slot which has already been
+//overwritten by a newer one, and copies the fields out before checking that the sequence has not changed meanwhile.
+//Subscribers read all events published since their last read as one batch, and park when there are none. One
+//dispatcher thread wakes them once their next event is published, publishers only wake the dispatcher while a
+//subscriber is parked. A subscriber falling further behind than the size of the buffer loses its subscription
+//instead of holding back publishers.
+@Component
+@Log4j2
+public class InvoiceEventBus {
+
+    //Name of the event which ends the stream of a client whose next events have been overwritten
+    public static final String OVERRUN_EVENT = "overrun";
+
+    //Sequence of a slot while its fields are written, lower than that of any event
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final boolean enabled;
+
+    @Getter
+    private final int batchSize;
+
+    @Getter
+    private final Duration waitInterval;
+
+    private final ThreadFactory threadFactory;
+
+    private final int capacity;
+
+    private final Slot[] slots;
+
+    //Sequence of the first event of this boot. It is taken from the boot time, so that the events of a boot follow
+    //those of earlier boots as long as they published less than 2^20 events per millisecond on average. A client
+    //resuming after an event of an earlier boot is told that its events are gone instead of receiving other events.
+    private final long firstSequence = System.currentTimeMillis() << 20;
+
+    //Sequence of the next event to be published
+    private final AtomicLong next = new AtomicLong(firstSequence);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    //Subscriptions parked until their next event is published
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    //Wakes parked subscriptions, started with the first subscription
+    private volatile Thread dispatcher;
+
+    private final ReentrantLock dispatcherLock = new ReentrantLock();
+
+    private volatile boolean stopped;
+
+    @Autowired
+    public InvoiceEventBus(InvoiceProperties properties) {
+        InvoiceProperties.Events events = properties.getEvents();
+        this.enabled = events.isEnabled();
+        this.batchSize = events.getBatchSize();
+        this.waitInterval = events.getWaitInterval();
+        this.threadFactory = properties.getThreads().factory("invoice-events-");
+        //A power of two turns the slot of a sequence into a mask of its lower bits
+        this.capacity = events.getBufferSize() <= 1 ? 1 : Integer.highestOneBit(events.getBufferSize() - 1) << 1;
+        this.slots = new Slot[enabled ? capacity : 0];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new Slot();
+    }
+
+    public void created(Invoice invoice) {
+        if (!enabled)
+            return;
+        publish(next.getAndIncrement(), CREATED, Instant.now(), invoice, null, 0);
+        signal();
+    }
+
+    //Events of a batch get consecutive sequence numbers
+    public void created(Collection<Invoice> invoices) {
+        if (!enabled || invoices.isEmpty())
+            return;
+        Instant now = Instant.now();
+        long sequence = next.getAndAdd(invoices.size());
+        for (Invoice invoice : invoices)
+            publish(sequence++, CREATED, now, invoice, null, 0);
+        signal();
+    }
+
+    //A payment which settles the invoice is followed by the change of its status
+    public void paymentApplied(Invoice invoice, Status previousStatus, long previousPaidAmount) {
+        if (!enabled)
+            return;
+        Instant now = Instant.now();
+        boolean statusChanged = invoice.getStatus() != previousStatus;
+        long sequence = next.getAndAdd(statusChanged ? 2 : 1);
+        publish(sequence, PAYMENT_APPLIED, now, invoice, null, invoice.getPaidAmount() - previousPaidAmount);
+        if (statusChanged)
+            publish(sequence + 1, STATUS_CHANGED, now, invoice, previousStatus, 0);
+        signal();
+    }
+
+    //Status changes of the overdue invoices, which were pending, followed by the invoices replacing them
+    public void rolledOver(List<Invoice> overdueInvoices, List<Invoice> newInvoices) {
+        if (!enabled || overdueInvoices.isEmpty() && newInvoices.isEmpty())
+            return;
+        Instant now = Instant.now();
+        long sequence = next.getAndAdd(overdueInvoices.size() + newInvoices.size());
+        for (Invoice invoice : overdueInvoices)
+            publish(sequence++, STATUS_CHANGED, now, invoice, PENDING, 0);
+        for (Invoice invoice : newInvoices)
+            publish(sequence++, ROLLED_OVER, now, invoice, null, 0);
+        signal();
+    }
+
+    private void publish(long sequence, InvoiceEventType type, Instant occurredAt, Invoice invoice,
+                         Status previousStatus, long payment) {
+        Slot slot = slots[slot(sequence)];
+        while (true) {
+            long current = (long) SEQUENCE.getVolatile(slot);
+            //A publisher delayed by a whole round of the buffer finds its slot taken by a newer event, its own event
+            //counts as overwritten
+            if (current > sequence)
+                return;
+            if (current != WRITING && SEQUENCE.compareAndSet(slot, current, WRITING))
+                break;
+            Thread.onSpinWait();
+        }
+        slot.type = type;
+        slot.epochSecond = occurredAt.getEpochSecond();
+        slot.nano = occurredAt.getNano();
+        slot.invoiceId = invoice.getId();
+        slot.amount = invoice.getAmount();
+        slot.paidAmount = invoice.getPaidAmount();
+        slot.currency = invoice.getCurrency();
+        slot.dueDate = invoice.getDueDate() == null ? NO_DATE : invoice.getDueDate().toEpochDay();
+        slot.status = invoice.getStatus();
+        slot.previousStatus = previousStatus;
+        slot.payment = payment;
+        slot.predecessorId = invoice.getPredecessorId() == null ? 0 : invoice.getPredecessorId();
+        SEQUENCE.setRelease(slot, sequence);
+    }
+
+    //Either the published events are seen by a subscription which checks for them after it registered as waiting,
+    //or the waiting subscription is seen here. The fence orders the release stores of the events before the check.
+    private void signal() {
+        VarHandle.fullFence();
+        if (waiting.get() > 0)
+            LockSupport.unpark(dispatcher);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & (capacity - 1));
+    }
+
+    //Whether the event with the given sequence is published, or already overwritten
+    private boolean isPublished(long sequence) {
+        return (long) SEQUENCE.getVolatile(slots[slot(sequence)]) >= sequence;
+    }
+
+    //Sequence of the next event to be published
+    public long getHead() {
+        return next.get();
+    }
+
+    //Sequence of the oldest event which can still be read
+    public long getOldest() {
+        return Math.max(firstSequence, next.get() - capacity);
+    }
+
+    //Returns the sequence to read from for a subscriber starting at the given sequence, or at the next event to be
+    //published when none is given
+    public long start(Long fromSequence) {
+        long head = next.get();
+        if (fromSequence == null)
+            return head;
+        if (fromSequence < 0 || fromSequence > head)
+            throw new IllegalArgumentException("Invalid event sequence " + fromSequence +
+                    ", the next event has sequence " + head);
+        if (fromSequence < getOldest())
+            throw unavailable(fromSequence);
+        return fromSequence;
+    }
+
+    //Same as above for a client which is either given the sequence to start from or resumes after the last event it
+    //received
+    public long start(Long fromSequence, Long lastEventId) {
+        return start(fromSequence != null ? fromSequence : lastEventId != null ? (Long) (lastEventId + 1) : null);
+    }
+
+    //Returns up to max consecutive events starting at the given sequence, stopping at the first event which is not
+    //published yet
+    public List<InvoiceEvent> read(long fromSequence, int max) {
+        List<InvoiceEvent> events = new ArrayList<>(Math.min(max, 16));
+        for (long sequence = fromSequence; events.size() < max && enabled; sequence++) {
+            Slot slot = slots[slot(sequence)];
+            long published = (long) SEQUENCE.getAcquire(slot);
+            if (published < sequence)
+                break;
+            if (published > sequence)
+                throw unavailable(sequence);
+            InvoiceEvent event = slot.toEvent(sequence);
+            //The copy is only valid if the slot was not overwritten while its fields were read
+            VarHandle.acquireFence();
+            if ((long) SEQUENCE.getOpaque(slot) != sequence)
+                throw unavailable(sequence);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private EventsUnavailableException unavailable(long sequence) {
+        return new EventsUnavailableException("Events from sequence " + sequence +
+                " are no longer available, the oldest event has sequence " + getOldest());
+    }
+
+    //Delivers events from the given sequence, or from the next event to be published, on a thread of its own until
+    //the subscription is closed. Nothing is published while events are disabled, so no thread is started then.
+    public Subscription subscribe(Long fromSequence, InvoiceEventSubscriber subscriber) {
+        Subscription subscription = new Subscription(start(fromSequence), subscriber);
+        if (!enabled)
+            return subscription;
+        startDispatcher();
+        subscriptions.add(subscription);
+        subscription.thread = threadFactory.newThread(subscription::run);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private void startDispatcher() {
+        if (dispatcher != null)
+            return;
+        dispatcherLock.lock();
+        try {
+            if (dispatcher == null) {
+                Thread thread = threadFactory.newThread(this::dispatch);
+                thread.setDaemon(true);
+                thread.start();
+                dispatcher = thread;
+            }
+        } finally {
+            dispatcherLock.unlock();
+        }
+    }
+
+    //Parks until a publisher finds a waiting subscription, then wakes the subscriptions whose next event is there
+    private void dispatch() {
+        while (!stopped) {
+            LockSupport.park(this);
+            for (Subscription subscription : subscriptions)
+                if (subscription.waiting.get() && isPublished(subscription.next))
+                    subscription.wake();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        subscriptions.forEach(Subscription::close);
+        LockSupport.unpark(dispatcher);
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final InvoiceEventSubscriber subscriber;
+
+        //Sequence of the next event delivered to the subscriber, only written by the subscription thread. The
+        //dispatcher reads it after seeing the subscription waiting, which was set after it.
+        private long next;
+
+        private final AtomicBoolean waiting = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        private Thread thread;
+
+        private Subscription(long next, InvoiceEventSubscriber subscriber) {
+            this.next = next;
+            this.subscriber = subscriber;
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    List<InvoiceEvent> events = read(next, batchSize);
+                    if (events.isEmpty()) {
+                        await();
+                        continue;
+                    }
+                    subscriber.onEvents(events);
+                    next += events.size();
+                }
+            } catch (RuntimeException e) {
+                if (!closed) {
+                    log.warn("Invoice event subscription ended at sequence {} : {}", next, e.getMessage());
+                    subscriber.onError(e);
+                }
+            } finally {
+                subscriptions.remove(this);
+            }
+        }
+
+        //Registers as waiting before looking for the next event once more, see signal()
+        private void await() {
+            waiting.set(true);
+            InvoiceEventBus.this.waiting.incrementAndGet();
+            if (!closed && !isPublished(next))
+                LockSupport.park(this);
+            stopWaiting();
+        }
+
+        //Called by the dispatcher, a subscription is only woken once per wait
+        private void wake() {
+            if (stopWaiting())
+                LockSupport.unpark(thread);
+        }
+
+        private boolean stopWaiting() {
+            if (!waiting.compareAndSet(true, false))
+                return false;
+            InvoiceEventBus.this.waiting.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    //An event of the ring buffer, its fields are written by the publisher which holds the slot and read by any number
+    //of readers, which check the sequence before and after copying them
+    private static final class Slot {
+
+        private long sequence = -1;
+
+        private InvoiceEventType type;
+
+        private long epochSecond;
+
+        private int nano;
+
+        private int invoiceId;
+
+        private long amount;
+
+        private long paidAmount;
+
+        private Currency currency;
+
+        private long dueDate;
+
+        private Status status;
+
+        private Status previousStatus;
+
+        private long payment;
+
+        private int predecessorId;
+
+        private InvoiceEvent toEvent(long sequence) {
+            return new InvoiceEvent(sequence, type, Instant.ofEpochSecond(epochSecond, nano), invoiceId, amount,
+                    paidAmount, currency, dueDate == NO_DATE ? null : LocalDate.ofEpochDay(dueDate), status,
+                    previousStatus, payment, predecessorId == 0 ? null : predecessorId);
+        }
+    }
+}
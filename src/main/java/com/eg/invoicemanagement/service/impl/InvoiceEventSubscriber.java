@@ -0,0 +1,16 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import java.util.List;
+
+//Receives the events of a subscription to the InvoiceEventBus, always on the thread of the subscription
+public interface InvoiceEventSubscriber {
+
+    //Called with the events published since the previous call, consecutive and in sequence order
+    void onEvents(List<InvoiceEvent> events);
+
+    //Called when the subscription ends because of an error, either thrown by onEvents or because the subscriber fell
+    //so far behind that the next events have been overwritten
+    default void onError(RuntimeException error) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+//Gauges describing the invoice book: invoices by status, outstanding receivables by currency and the throughput of
+//a running overdue job. The book figures are read from the aggregate counters when scraped, so neither scrapes nor
+//the request paths pay for them. Currencies which appeared since the last refresh get their gauge on the next one.
+@Component
+@Log4j2
+public class InvoiceGauges {
+
+    private final InvoiceAggregates invoiceAggregates;
+
+    private final OverdueJobManager overdueJobManager;
+
+    private final MeterRegistry meterRegistry;
+
+    private final long refreshIntervalMillis;
+
+    private final ScheduledExecutorService executor;
+
+    private MultiGauge outstandingGauge;
+
+    @Autowired
+    public InvoiceGauges(InvoiceAggregates invoiceAggregates, OverdueJobManager overdueJobManager,
+                         MeterRegistry meterRegistry, InvoiceProperties properties) {
+        this.invoiceAggregates = invoiceAggregates;
+        this.overdueJobManager = overdueJobManager;
+        this.meterRegistry = meterRegistry;
+        this.refreshIntervalMillis = properties.getMetrics().getRefreshInterval().toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(properties.getThreads().factory("invoice-gauges-"));
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Status status : Status.values())
+            Gauge.builder("invoice.count", invoiceAggregates, aggregates -> aggregates.getCount(status))
+                    .description("Number of invoices by status")
+                    .tag("status", status.getValue())
+                    .register(meterRegistry);
+        outstandingGauge = MultiGauge.builder("invoice.receivable.outstanding")
+                .description("Unpaid amount of pending invoices by currency")
+                .register(meterRegistry);
+        Gauge.builder("invoice.overdue.throughput", overdueJobManager,
+                        manager -> manager.findRunning().map(OverdueJob::getThroughput).orElse(0.0))
+                .description("Invoices per second processed by the running overdue job")
+                .register(meterRegistry);
+        executor.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Registers a row for every currency of the book, the rows read the counters of their currency
+    public void refresh() {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (Currency currency : invoiceAggregates.getCurrencies())
+            rows.add(MultiGauge.Row.of(Tags.of("currency", currency.getCurrencyCode()), invoiceAggregates,
+                    aggregates -> Money.toDecimal(aggregates.getOutstanding(currency), currency).doubleValue()));
+        outstandingGauge.register(rows, true);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Refreshing invoice gauges failed : {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
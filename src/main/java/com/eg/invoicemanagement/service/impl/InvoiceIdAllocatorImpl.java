@@ -0,0 +1,139 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.service.InvoiceIdAllocator;
+import com.eg.invoicemanagement.store.InvoiceIdBlocks;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+//Ids of the in-memory stores are allocated by this instance alone. A database may be shared by several instances,
+//which then reserve blocks of ids from a counter in the database and allocate ids from their current block.
+@Service
+@Log4j2
+public class InvoiceIdAllocatorImpl implements InvoiceIdAllocator {
+
+    //Holds the last allocated invoice id when ids are allocated by this instance alone
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    //Counter shared with other instances, null for the in-memory stores
+    private final InvoiceIdBlocks idBlocks;
+
+    //Blocks have the size of a JDBC batch, so that the inserts of a batch need one reservation
+    private final int blockSize;
+
+    private final ReentrantLock blockLock = new ReentrantLock();
+
+    //Next id of the current block and the id after its end
+    private long blockNext;
+
+    private long blockEnd;
+
+    public InvoiceIdAllocatorImpl(InvoiceStore invoiceStore) {
+        this(invoiceStore, Optional.empty(), new InvoiceProperties());
+    }
+
+    @Autowired
+    public InvoiceIdAllocatorImpl(InvoiceStore invoiceStore, Optional<InvoiceIdBlocks> idBlocks,
+                                  InvoiceProperties invoiceProperties) {
+        this.idBlocks = idBlocks.orElse(null);
+        this.blockSize = invoiceProperties.getStorage().getBatchSize();
+        //Seeding from the store so that ids keep increasing across restarts of a persistent store
+        int maxId = invoiceStore.maxId();
+        if (this.idBlocks == null) {
+            reseed(maxId);
+            log.info("Invoice id allocator seeded with last id {}", lastId.get());
+            return;
+        }
+        try {
+            reseed(maxId);
+        } catch (RuntimeException e) {
+            //Another instance has created the counter at the same time
+            reseed(maxId);
+        }
+        log.info("Invoice id allocator reserves blocks of {} ids from the database, last id {}", blockSize,
+                this.idBlocks.last());
+    }
+
+    @Override
+    public int nextId() {
+        return reserve(1);
+    }
+
+    @Override
+    public int reserve(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("Invoice id reservation count must be more than 0");
+        if (idBlocks != null)
+            return reserveFromBlock(count);
+        while (true) {
+            int last = lastId.get();
+            //Detecting integer overflow of the id space before publishing the new last id, so that a failed
+            //reservation leaves the counter untouched and every later one fails as well
+            if (last > Integer.MAX_VALUE - count)
+                throw new IllegalStateException("Invoice id space is exhausted");
+            if (lastId.compareAndSet(last, last + count))
+                return last + 1;
+        }
+    }
+
+    //Reservations larger than a block get a block of their own, the rest of the current block is kept
+    private int reserveFromBlock(int count) {
+        blockLock.lock();
+        try {
+            if (blockEnd - blockNext >= count) {
+                long first = blockNext;
+                blockNext += count;
+                return (int) first;
+            }
+            if (count >= blockSize)
+                return checkIdSpace(idBlocks.reserve(count), count);
+            long first = checkIdSpace(idBlocks.reserve(blockSize), blockSize);
+            blockNext = first + count;
+            blockEnd = first + blockSize;
+            return (int) first;
+        } finally {
+            blockLock.unlock();
+        }
+    }
+
+    //The shared counter keeps growing, so every later reservation fails as well
+    private static int checkIdSpace(long first, int count) {
+        if (first > Integer.MAX_VALUE - count + 1L)
+            throw new IllegalStateException("Invoice id space is exhausted");
+        return (int) first;
+    }
+
+    //Ids left in the current block would be lower than the returned id, so the block is dropped
+    @Override
+    public int lastId() {
+        if (idBlocks == null)
+            return lastId.get();
+        blockLock.lock();
+        try {
+            blockNext = blockEnd;
+            return (int) Math.min(idBlocks.last(), Integer.MAX_VALUE);
+        } finally {
+            blockLock.unlock();
+        }
+    }
+
+    @Override
+    public void reseed(int lastId) {
+        if (idBlocks == null) {
+            this.lastId.accumulateAndGet(lastId, Math::max);
+            return;
+        }
+        blockLock.lock();
+        try {
+            blockNext = blockEnd;
+            idBlocks.reseed(lastId);
+        } finally {
+            blockLock.unlock();
+        }
+    }
+}
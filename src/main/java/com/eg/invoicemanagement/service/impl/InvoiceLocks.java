@@ -0,0 +1,52 @@
+package com.eg.invoicemanagement.service.impl;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.stereotype.Component;
+
+//Striped locks serialising changes of an invoice. Invoices are mapped to a fixed number of locks by id, so changes
+//of different invoices rarely contend while the number of locks stays bounded. Holding the lock across reading,
+//checking, changing and storing an invoice makes the change atomic even with stores returning detached copies.
+@Component
+public class InvoiceLocks {
+
+    private static final int STRIPES = 4096;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public InvoiceLocks() {
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new ReentrantLock();
+    }
+
+    public Held lock(Integer invoiceId) {
+        ReentrantLock lock = locks[stripe(invoiceId)];
+        lock.lock();
+        return lock::unlock;
+    }
+
+    //Locks all given invoices. Stripes are always acquired in ascending order, so threads locking overlapping sets
+    //of invoices cannot deadlock.
+    public Held lockAll(Collection<Integer> invoiceIds) {
+        int[] stripes = invoiceIds.stream().mapToInt(InvoiceLocks::stripe).distinct().sorted().toArray();
+        for (int stripe : stripes)
+            locks[stripe].lock();
+        return () -> {
+            for (int i = stripes.length - 1; i >= 0; i--)
+                locks[stripes[i]].unlock();
+        };
+    }
+
+    //Spreads sequential ids over all stripes
+    private static int stripe(Integer invoiceId) {
+        int hash = invoiceId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    //Releases the locks when closed, meant for try-with-resources
+    public interface Held extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
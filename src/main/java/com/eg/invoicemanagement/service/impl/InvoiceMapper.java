@@ -0,0 +1,98 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.dto.response.InvoiceEventResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.InvoiceEventType;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.experimental.UtilityClass;
+
+//Maps invoices and their events to their response representation without reflection. Invoices are either copied into an
+//InvoiceResponse or written as JSON straight from the invoice in the same format as InvoiceResponse, which saves
+//the intermediate object when streaming.
+@UtilityClass
+public class InvoiceMapper {
+
+    //Field names and values are encoded once, the generator copies them as they are
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+
+    private static final SerializedString PAID_AMOUNT = new SerializedString("paid_amount");
+
+    private static final SerializedString CURRENCY = new SerializedString("currency");
+
+    private static final SerializedString DUE_DATE = new SerializedString("due_date");
+
+    private static final SerializedString STATUS = new SerializedString("status");
+
+    private static final SerializedString PREDECESSOR_ID = new SerializedString("predecessor_id");
+
+    private static final SerializedString[] STATUS_VALUES = new SerializedString[Status.values().length];
+
+    private static final Map<Currency, SerializedString> CURRENCY_CODES = new ConcurrentHashMap<>();
+
+    static {
+        for (Status status : Status.values())
+            STATUS_VALUES[status.ordinal()] = new SerializedString(status.getValue());
+    }
+
+    public static InvoiceResponse toResponse(Invoice invoice) {
+        Currency currency = invoice.getCurrency();
+        return new InvoiceResponse(invoice.getId(), Money.toDecimal(invoice.getAmount(), currency),
+                Money.toDecimal(invoice.getPaidAmount(), currency), currency.getCurrencyCode(),
+                invoice.getDueDate(), invoice.getStatus() == null ? null : invoice.getStatus().getValue(),
+                invoice.getPredecessorId());
+    }
+
+    public static InvoiceEventResponse toResponse(InvoiceEvent event) {
+        Currency currency = event.getCurrency();
+        Status previousStatus = event.getPreviousStatus();
+        BigDecimal payment = event.getType() == InvoiceEventType.PAYMENT_APPLIED ?
+                Money.toDecimal(event.getPayment(), currency) : null;
+        return new InvoiceEventResponse(event.getSequence(), event.getType().getValue(), event.getOccurredAt(),
+                event.getInvoiceId(), Money.toDecimal(event.getAmount(), currency),
+                Money.toDecimal(event.getPaidAmount(), currency), currency.getCurrencyCode(), event.getDueDate(),
+                event.getStatus().getValue(), previousStatus == null ? null : previousStatus.getValue(), payment,
+                event.getPredecessorId());
+    }
+
+    //Writes the invoice as a JSON object, null fields are left out like in InvoiceResponse
+    public static void write(Invoice invoice, JsonGenerator generator) throws IOException {
+        Currency currency = invoice.getCurrency();
+        generator.writeStartObject();
+        if (invoice.getId() != null) {
+            generator.writeFieldName(ID);
+            generator.writeNumber(invoice.getId());
+        }
+        generator.writeFieldName(AMOUNT);
+        generator.writeNumber(Money.toDecimal(invoice.getAmount(), currency));
+        generator.writeFieldName(PAID_AMOUNT);
+        generator.writeNumber(Money.toDecimal(invoice.getPaidAmount(), currency));
+        generator.writeFieldName(CURRENCY);
+        generator.writeString(CURRENCY_CODES.computeIfAbsent(currency,
+                key -> new SerializedString(key.getCurrencyCode())));
+        if (invoice.getDueDate() != null) {
+            generator.writeFieldName(DUE_DATE);
+            generator.writeString(invoice.getDueDate().toString());
+        }
+        if (invoice.getStatus() != null) {
+            generator.writeFieldName(STATUS);
+            generator.writeString(STATUS_VALUES[invoice.getStatus().ordinal()]);
+        }
+        if (invoice.getPredecessorId() != null) {
+            generator.writeFieldName(PREDECESSOR_ID);
+            generator.writeNumber(invoice.getPredecessorId());
+        }
+        generator.writeEndObject();
+    }
+}
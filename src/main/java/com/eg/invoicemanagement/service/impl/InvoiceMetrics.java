@@ -0,0 +1,76 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.model.enums.JobState;
+import com.eg.invoicemanagement.model.enums.PaymentOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+//Timers and counters of the invoice operations. All meters are registered up front, so recording on the request
+//path is a clock read and a few atomic increments without any lookup or allocation.
+@Component
+@Getter
+public class InvoiceMetrics {
+
+    private final Timer createTimer;
+
+    private final Timer createBatchTimer;
+
+    private final Timer payTimer;
+
+    private final Timer payBulkTimer;
+
+    private final Timer listTimer;
+
+    private final Map<PaymentOutcome, Counter> paymentCounters = new EnumMap<>(PaymentOutcome.class);
+
+    private final Map<JobState, Timer> overdueRunTimers = new EnumMap<>(JobState.class);
+
+    public InvoiceMetrics(MeterRegistry meterRegistry) {
+        this.createTimer = operationTimer(meterRegistry, "create");
+        this.createBatchTimer = operationTimer(meterRegistry, "create_batch");
+        this.payTimer = operationTimer(meterRegistry, "pay");
+        this.payBulkTimer = operationTimer(meterRegistry, "pay_bulk");
+        this.listTimer = operationTimer(meterRegistry, "list");
+        for (PaymentOutcome outcome : PaymentOutcome.values())
+            paymentCounters.put(outcome, Counter.builder("invoice.payments")
+                    .description("Payments by outcome")
+                    .tag("outcome", outcome.getValue())
+                    .register(meterRegistry));
+        for (JobState state : JobState.values()) {
+            if (state == JobState.RUNNING)
+                continue;
+            overdueRunTimers.put(state, Timer.builder("invoice.overdue.run")
+                    .description("Duration of overdue processing runs by final state")
+                    .tag("state", state.getValue())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(meterRegistry));
+        }
+    }
+
+    public void recordPayment(PaymentOutcome outcome) {
+        paymentCounters.get(outcome).increment();
+    }
+
+    public void recordOverdueRun(JobState state, Duration duration) {
+        overdueRunTimers.get(state).record(duration);
+    }
+
+    //Histogram buckets are bounded to the expected range, which keeps the number of published series small
+    private static Timer operationTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("invoice.operation")
+                .description("Latency of invoice operations")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+}
@@ -1,124 +1,470 @@
 package com.eg.invoicemanagement.service.impl;
 
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.constants.APIHeader;
 import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
 import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
 import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchError;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceChainResponse;
 import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceTotalsResponse;
+import com.eg.invoicemanagement.dto.response.OverdueJobResponse;
+import com.eg.invoicemanagement.exception.EventsUnavailableException;
 import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.JobState;
 import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.InvoiceIdAllocator;
 import com.eg.invoicemanagement.service.InvoiceService;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceSortField;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Currency;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static com.eg.invoicemanagement.model.enums.Status.PENDING;
+import static com.eg.invoicemanagement.service.impl.InvoiceEventBus.OVERRUN_EVENT;
 
 @Service
 @Log4j2
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class InvoiceServiceImpl implements InvoiceService {
 
-    private final List<Invoice> invoices = new ArrayList<>();
+    private final InvoiceStore invoiceStore;
+
+    private final InvoiceIdAllocator invoiceIdAllocator;
+
+    private final OverdueJobManager overdueJobManager;
+
+    private final PaymentProcessor paymentProcessor;
+
+    private final InvoiceProperties invoiceProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final InvoiceMetrics invoiceMetrics;
+
+    private final InvoiceAggregates invoiceAggregates;
+
+    private final InvoiceEventBus invoiceEventBus;
 
     @Override
     public ResponseEntity<Object> createInvoice(InvoiceCreationRequest request) {
+        return invoiceMetrics.getCreateTimer().record(() -> insertInvoice(request));
+    }
+
+    private ResponseEntity<Object> insertInvoice(InvoiceCreationRequest request) {
+        Money amount = getAmount(request);
         Invoice invoice = new Invoice();
-        invoice.setId(getLastInvoiceId() + 1);
-        invoice.setAmount(request.getAmount());
+        invoice.setId(invoiceIdAllocator.nextId());
+        invoice.setAmount(amount.minorUnits());
+        invoice.setCurrency(amount.currency());
         invoice.setDueDate(request.getDueDate());
         invoice.setStatus(PENDING);
-        invoices.add(invoice);
+        invoiceStore.insert(invoice);
+        invoiceAggregates.add(invoice);
+        invoiceEventBus.created(invoice);
         log.info("Invoice created with id {}", invoice.getId());
         return new ResponseEntity<>(new InvoiceResponse(invoice.getId()), HttpStatus.CREATED);
     }
 
-    //This method returns the maximum/last generated invoice id
-    private int getLastInvoiceId() {
-        return invoices.stream().map(Invoice::getId).mapToInt(id -> id).max().orElse(0);
+    @Override
+    public ResponseEntity<Object> createInvoices(List<InvoiceCreationRequest> requests, boolean atomic) {
+        return invoiceMetrics.getCreateBatchTimer().record(() -> insertInvoices(requests, atomic));
+    }
+
+    private ResponseEntity<Object> insertInvoices(List<InvoiceCreationRequest> requests, boolean atomic) {
+        if (requests == null || requests.isEmpty())
+            throw new IllegalArgumentException("The batch must contain at least one invoice");
+        checkBatchSize(requests.size());
+
+        //All invoices are validated before anything is created, so an atomic batch is rejected as a whole
+        InvoiceBatchResponse response = new InvoiceBatchResponse();
+        List<InvoiceCreationRequest> valid = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error == null)
+                valid.add(requests.get(i));
+            else
+                response.getErrors().add(new InvoiceBatchError(i, error));
+        }
+        if (valid.isEmpty() || atomic && !response.getErrors().isEmpty())
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+
+        //Ids of the whole batch are reserved at once and the invoices are stored with one insert
+        int id = invoiceIdAllocator.reserve(valid.size());
+        List<Invoice> invoices = new ArrayList<>(valid.size());
+        for (InvoiceCreationRequest request : valid) {
+            Money amount = getAmount(request);
+            Invoice invoice = new Invoice();
+            invoice.setId(id++);
+            invoice.setAmount(amount.minorUnits());
+            invoice.setCurrency(amount.currency());
+            invoice.setDueDate(request.getDueDate());
+            invoice.setStatus(PENDING);
+            invoices.add(invoice);
+            response.getIds().add(invoice.getId());
+        }
+        invoiceStore.insertAll(invoices);
+        invoices.forEach(invoiceAggregates::add);
+        invoiceEventBus.created(invoices);
+        log.info("Created {} invoices, {} rejected", invoices.size(), response.getErrors().size());
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
     @Override
-    public ResponseEntity<Object> getAllInvoices() {
-        val response = invoices.stream().map(this::getResponse).toList();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public ResponseEntity<Object> createInvoices(InputStream ndjson, boolean atomic) {
+        List<InvoiceCreationRequest> requests = new ArrayList<>();
+        try (MappingIterator<InvoiceCreationRequest> iterator =
+                     objectMapper.readerFor(InvoiceCreationRequest.class).readValues(ndjson)) {
+            while (iterator.hasNextValue()) {
+                requests.add(iterator.nextValue());
+                checkBatchSize(requests.size());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid invoice at line " + (requests.size() + 1) + " : " +
+                    e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read invoices", e);
+        }
+        return createInvoices(requests, atomic);
     }
 
-    private InvoiceResponse getResponse(Invoice invoice) {
-        InvoiceResponse response = new InvoiceResponse();
-        BeanUtils.copyProperties(invoice, response);
-        response.setStatus(invoice.getStatus().getValue());
-        return response;
+    private void checkBatchSize(int size) {
+        int maxSize = invoiceProperties.getBatch().getMaxSize();
+        if (size > maxSize)
+            throw new IllegalArgumentException("The batch must not contain more than " + maxSize + " invoices");
+    }
+
+    //Returns the validation messages of the request or null if it is valid
+    private String validate(InvoiceCreationRequest request) {
+        if (request == null)
+            return "The invoice cannot be null";
+        val violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            try {
+                getAmount(request);
+                return null;
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+    }
+
+    //Throws IllegalArgumentException if the amount has more decimal places than the currency allows
+    private Money getAmount(InvoiceCreationRequest request) {
+        Currency currency = request.getCurrency() != null ? request.getCurrency() : invoiceProperties.getCurrency();
+        return Money.of(request.getAmount(), currency);
+    }
+
+    @Override
+    public ResponseEntity<Object> getAllInvoices(InvoiceSearchRequest request) {
+        return invoiceMetrics.getListTimer().record(() -> findInvoices(request));
+    }
+
+    private ResponseEntity<Object> findInvoices(InvoiceSearchRequest request) {
+        int pageSize = getPageSize(request.getLimit());
+        InvoiceQuery query = getQuery(request);
+        //Fetching one invoice more than the page size tells whether a next page exists
+        query.setLimit(pageSize + 1);
+        List<Invoice> invoices = invoiceStore.search(query);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (invoices.size() > pageSize) {
+            invoices = invoices.subList(0, pageSize);
+            Invoice last = invoices.get(pageSize - 1);
+            headers.add(APIHeader.NEXT_CURSOR, InvoiceCursor.encode(query, query.sortKey(last), last.getId()));
+        }
+        val response = invoices.stream().map(InvoiceMapper::toResponse).toList();
+        return new ResponseEntity<>(response, headers, HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportInvoices(Integer afterId) {
+        int chunkSize = invoiceProperties.getExport().getChunkSize();
+        //Invoices are read in chunks and written as they are read, so memory use does not depend on the book size.
+        //Writes block while the client is not reading, which in turn holds back reading the next chunk.
+        //Invoices are written straight to the generator, without an InvoiceResponse per invoice
+        StreamingResponseBody body = outputStream -> {
+            InvoiceQuery query = new InvoiceQuery();
+            query.setAfterId(afterId);
+            query.setLimit(chunkSize);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                //Lines are separated explicitly instead of by the root value separator
+                generator.setRootValueSeparator(null);
+                List<Invoice> chunk;
+                do {
+                    chunk = invoiceStore.search(query);
+                    for (Invoice invoice : chunk) {
+                        InvoiceMapper.write(invoice, generator);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    if (!chunk.isEmpty())
+                        query.setAfterId(chunk.get(chunk.size() - 1).getId());
+                } while (chunk.size() == chunkSize);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
+    //Predecessors are followed by id and successors through the predecessor index, so the cost is one lookup per
+    //invoice of the chain. Replacements always have a higher id than the invoice they replace, so a chain has no
+    //cycles.
     @Override
-    public ResponseEntity<Object> doPayment(Integer invoiceId, InvoicePaymentRequest request) {
-        val invoiceOpt = invoices.stream().filter(inv -> invoiceId.equals(inv.getId())).findAny();
-        //Checking whether invoice exists with given invoiceId
+    public ResponseEntity<Object> getInvoiceChain(Integer invoiceId) {
+        val invoiceOpt = invoiceStore.findById(invoiceId);
         if (invoiceOpt.isEmpty())
             return new ResponseEntity<>("No invoice found with id " + invoiceId, HttpStatus.NOT_FOUND);
 
-        Invoice invoice = invoiceOpt.get();
+        Deque<Invoice> chain = new ArrayDeque<>();
+        chain.add(invoiceOpt.get());
+        Optional<Invoice> predecessor = Optional.of(invoiceOpt.get());
+        while (predecessor.isPresent() && predecessor.get().getPredecessorId() != null) {
+            predecessor = invoiceStore.findById(predecessor.get().getPredecessorId());
+            predecessor.ifPresent(chain::addFirst);
+        }
+        Optional<Invoice> successor = invoiceStore.findByPredecessorId(invoiceId);
+        while (successor.isPresent()) {
+            chain.addLast(successor.get());
+            successor = invoiceStore.findByPredecessorId(successor.get().getId());
+        }
+
+        Invoice head = chain.getLast();
+        long payable = PENDING.equals(head.getStatus()) ? head.getAmount() - head.getPaidAmount() : 0;
+        return new ResponseEntity<>(new InvoiceChainResponse(chain.stream().map(InvoiceMapper::toResponse).toList(),
+                head.getId(), Money.toDecimal(payable, head.getCurrency())), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<Object> getAggregates() {
+        LocalDate today = LocalDate.now();
+        Map<String, Map<String, InvoiceTotalsResponse>> response = new TreeMap<>();
+        for (Currency currency : invoiceAggregates.getCurrencies()) {
+            Map<String, InvoiceTotalsResponse> statuses = new LinkedHashMap<>();
+            for (Status status : Status.values())
+                statuses.put(status.getValue(), getTotals(currency, status, today));
+            response.put(currency.getCurrencyCode(), statuses);
+        }
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 
-        //Restricting payment if due date is already passed
-        if (invoice.getDueDate().isBefore(LocalDate.now()))
-            return new ResponseEntity<>("Invoice due date is already over", HttpStatus.BAD_REQUEST);
+    //Only pending invoices have an outstanding amount, the remainder of overdue invoices moved to new invoices
+    private InvoiceTotalsResponse getTotals(Currency currency, Status status, LocalDate today) {
+        val totals = invoiceAggregates.get(currency, status);
+        InvoiceTotalsResponse response = new InvoiceTotalsResponse(totals.getCount(),
+                Money.toDecimal(totals.getInvoiced(), currency), Money.toDecimal(totals.getPaid(), currency),
+                Money.toDecimal(status == PENDING ? totals.getOutstanding() : 0, currency), null);
+        if (status == PENDING) {
+            long[] ageing = invoiceAggregates.getAgeing(currency, today);
+            Map<String, BigDecimal> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < ageing.length; i++)
+                buckets.put(InvoiceAggregates.AGEING_BUCKETS.get(i), Money.toDecimal(ageing[i], currency));
+            response.setAgeing(buckets);
+        }
+        return response;
+    }
 
-        double invoiceAmount = invoice.getAmount();
-        double paidAmount = invoice.getPaidAmount();
-        double pendingAmount = invoiceAmount - paidAmount;
-        double paymentAmount = request.getAmount();
+    //Each batch of events read by the subscription is sent as one write. The subscription ends with the response, and
+    //a client which falls behind by more than the replay window receives an overrun event before the stream ends.
+    @Override
+    public ResponseEntity<SseEmitter> streamEvents(Long fromSequence, Long lastEventId) {
+        long start = invoiceEventBus.start(fromSequence, lastEventId);
+        SseEmitter emitter = new SseEmitter();
+        val subscription = invoiceEventBus.subscribe(start, new InvoiceEventSubscriber() {
+            @Override
+            public void onEvents(List<InvoiceEvent> events) {
+                Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+                for (InvoiceEvent event : events)
+                    batch.addAll(SseEmitter.event().id(String.valueOf(event.getSequence()))
+                            .name(event.getType().getValue())
+                            .data(InvoiceMapper.toResponse(event), MediaType.APPLICATION_JSON).build());
+                try {
+                    emitter.send(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to send invoice events", e);
+                }
+            }
 
-        //Checking if payment amount exceeds the invoice pending amount
-        if (paymentAmount > pendingAmount)
-            return new ResponseEntity<>("Total Payment amount exceeds invoice amount " + invoiceAmount +
-                    " (" + paidAmount + " paid already)", HttpStatus.BAD_REQUEST);
+            @Override
+            public void onError(RuntimeException error) {
+                if (!(error instanceof EventsUnavailableException)) {
+                    emitter.completeWithError(error);
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(OVERRUN_EVENT).data(error.getMessage()));
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
 
-        invoice.setPaidAmount(paidAmount + paymentAmount);
-        if (paymentAmount == pendingAmount)
-            invoice.setStatus(Status.PAID);
-        log.info("Invoice payment of {} for invoice id {} is successful", paymentAmount, invoiceId);
-        return new ResponseEntity<>(HttpStatus.OK);
+    private int getPageSize(Integer limit) {
+        val pagination = invoiceProperties.getPagination();
+        if (limit == null)
+            return pagination.getDefaultPageSize();
+        if (limit < 1)
+            throw new IllegalArgumentException("The limit must be more than 0");
+        return Math.min(limit, pagination.getMaxPageSize());
+    }
+
+    private InvoiceQuery getQuery(InvoiceSearchRequest request) {
+        InvoiceQuery query = new InvoiceQuery();
+        if (request.getStatus() != null)
+            query.setStatus(Status.fromValue(request.getStatus()));
+        query.setDueDateFrom(request.getDueDateFrom());
+        query.setDueDateTo(request.getDueDateTo());
+        if (request.getCurrency() != null)
+            query.setCurrency(getCurrency(request.getCurrency()));
+        query.setMinAmount(toMinorUnits(request.getMinAmount(), query.getCurrency()));
+        query.setMaxAmount(toMinorUnits(request.getMaxAmount(), query.getCurrency()));
+        if (request.getSort() != null)
+            query.setSortField(InvoiceSortField.fromValue(request.getSort()));
+        if (request.getOrder() != null && !"asc".equals(request.getOrder())) {
+            if (!"desc".equals(request.getOrder()))
+                throw new IllegalArgumentException("Invalid sort order " + request.getOrder());
+            query.setDescending(true);
+        }
+        query.checkCurrency();
+        if (request.getCursor() != null)
+            InvoiceCursor.decode(request.getCursor(), query);
+        return query;
+    }
+
+    private static Currency getCurrency(String code) {
+        try {
+            return Currency.getInstance(code);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid currency " + code);
+        }
+    }
+
+    //Amount filters are given in the currency of the query, there is no default as amounts only compare within one
+    private static Long toMinorUnits(BigDecimal amount, Currency currency) {
+        if (amount == null)
+            return null;
+        if (currency == null)
+            throw new IllegalArgumentException("Amount filters and sorting by amount require a currency");
+        return Money.toMinorUnits(amount, currency);
+    }
+
+    @Override
+    public ResponseEntity<Object> doPayment(Integer invoiceId, InvoicePaymentRequest request, String idempotencyKey) {
+        return invoiceMetrics.getPayTimer().record(() -> pay(invoiceId, request, idempotencyKey));
+    }
+
+    private ResponseEntity<Object> pay(Integer invoiceId, InvoicePaymentRequest request, String idempotencyKey) {
+        if (idempotencyKey == null)
+            return paymentProcessor.pay(invoiceId, request.getAmount(), LocalDate.now());
+        return paymentProcessor.getIdempotencyCache().execute(idempotencyKey, invoiceId, request.getAmount(),
+                () -> paymentProcessor.pay(invoiceId, request.getAmount(), LocalDate.now()));
+    }
+
+    @Override
+    public ResponseEntity<Object> doPaymentsFromCsv(InputStream csv) {
+        return new ResponseEntity<>(invoiceMetrics.getPayBulkTimer().record(() -> paymentProcessor.applyCsv(csv)),
+                HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<Object> doPaymentsFromNdjson(InputStream ndjson) {
+        return new ResponseEntity<>(
+                invoiceMetrics.getPayBulkTimer().record(() -> paymentProcessor.applyNdjson(ndjson)), HttpStatus.OK);
     }
 
     @Override
     public ResponseEntity<Object> processOverdue(OverdueProcessRequest request) {
-        if (invoices.isEmpty())
-            return new ResponseEntity<>(HttpStatus.OK);
-
-        double lateFee = request.getLateFee();
-        int overdueDays = request.getOverdueDays();
-
-        //For storing newly created invoices
-        List<Invoice> newInvoices = new ArrayList<>();
-
-        //Update status of each invoice and create a new invoice for each
-        for (Invoice invoice : invoices) {
-            if (!PENDING.equals(invoice.getStatus()) || invoice.getDueDate().isEqual(LocalDate.now()) ||
-                    invoice.getDueDate().isAfter(LocalDate.now()))
-                continue;
-            double amount = invoice.getAmount();
-            double paidAmount = invoice.getPaidAmount();
-
-            //If invoice is partially paid, mark status as 'paid' else mark as 'void' if not at all paid
-            if (paidAmount > 0)
-                invoice.setStatus(Status.PAID);
-            else
-                invoice.setStatus(Status.VOID);
-
-            //Create a new invoice with amount (remaining amount + late fee) and a new overdue
-            Invoice newInvoice = new Invoice();
-            newInvoice.setId(getLastInvoiceId() + 1);
-            newInvoice.setAmount((amount - paidAmount) + lateFee);
-            newInvoice.setDueDate(invoice.getDueDate().plusDays(overdueDays));
-            newInvoice.setStatus(PENDING);
-            newInvoices.add(newInvoice);
-        }
-        invoices.addAll(newInvoices);
-        return new ResponseEntity<>(HttpStatus.OK);
+        //Overdue processing runs in the background, the caller polls the job for its progress
+        val job = overdueJobManager.submit(request);
+        if (job.isEmpty())
+            return new ResponseEntity<>("Overdue processing is already running with job id " +
+                    overdueJobManager.findRunning().map(OverdueJob::getId).orElse(""), HttpStatus.CONFLICT);
+        log.info("Overdue job {} submitted", job.get().getId());
+        return new ResponseEntity<>(new OverdueJobResponse(job.get().getId()), HttpStatus.ACCEPTED);
+    }
+
+    @Override
+    public ResponseEntity<Object> getOverdueJob(String jobId) {
+        val job = overdueJobManager.find(jobId);
+        if (job.isEmpty())
+            return new ResponseEntity<>("No overdue job found with id " + jobId, HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(getResponse(job.get()), HttpStatus.OK);
+    }
+
+    private OverdueJobResponse getResponse(OverdueJob job) {
+        OverdueProgress progress = job.getProgress();
+        OverdueJobResponse response = new OverdueJobResponse(job.getId());
+        response.setState(job.getState().getValue());
+        response.setTotal(progress.getTotal().get());
+        response.setProcessed(progress.getProcessed().get());
+        response.setVoided(progress.getVoided().get());
+        response.setPaid(progress.getPaid().get());
+        response.setCreated(progress.getCreated().get());
+        response.setStartedAt(job.getStartedAt());
+        response.setFinishedAt(job.getFinishedAt());
+
+        double throughput = job.getThroughput();
+        response.setThroughputPerSecond(throughput);
+        if (job.getState() == JobState.RUNNING && throughput > 0)
+            response.setEtaSeconds((long) Math.ceil((response.getTotal() - response.getProcessed()) / throughput));
+        return response;
+    }
+
+    @Override
+    public ResponseEntity<Object> cancelOverdueJob(String jobId) {
+        if (overdueJobManager.find(jobId).isEmpty())
+            return new ResponseEntity<>("No overdue job found with id " + jobId, HttpStatus.NOT_FOUND);
+        if (!overdueJobManager.cancel(jobId))
+            return new ResponseEntity<>("Overdue job " + jobId + " is not running", HttpStatus.CONFLICT);
+        log.info("Overdue job {} cancelled", jobId);
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
     }
-}
\ No newline at end of file
+}
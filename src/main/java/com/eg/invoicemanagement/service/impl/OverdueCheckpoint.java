@@ -0,0 +1,45 @@
+package com.eg.invoicemanagement.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//Persisted state of a running overdue job which allows the job to be resumed after a crash
+@Getter
+@Setter
+@NoArgsConstructor
+public class OverdueCheckpoint {
+
+    private String jobId;
+
+    private BigDecimal lateFee;
+
+    private Integer overdueDays;
+
+    private LocalDate today;
+
+    //Missing in checkpoints written by earlier versions
+    private Integer maxInvoiceId;
+
+    private long processed;
+
+    private long voided;
+
+    private long paid;
+
+    private long created;
+
+    OverdueCheckpoint(OverdueJob job) {
+        this.jobId = job.getId();
+        this.lateFee = job.getRequest().getLateFee();
+        this.overdueDays = job.getRequest().getOverdueDays();
+        this.today = job.getToday();
+        this.maxInvoiceId = job.getMaxInvoiceId();
+        this.processed = job.getProgress().getProcessed().get();
+        this.voided = job.getProgress().getVoided().get();
+        this.paid = job.getProgress().getPaid().get();
+        this.created = job.getProgress().getCreated().get();
+    }
+}
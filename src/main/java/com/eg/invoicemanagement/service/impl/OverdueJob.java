@@ -0,0 +1,60 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.model.enums.JobState;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.Getter;
+
+//A background overdue processing run
+@Getter
+public class OverdueJob {
+
+    private final String id;
+
+    private final OverdueProcessRequest request;
+
+    //The day against which invoices are evaluated, kept as is when an interrupted job is resumed
+    private final LocalDate today;
+
+    //Last invoice id allocated when the job was first started. Invoices with greater ids are never selected, among
+    //them the invoices created by the job itself, which a resumed run would otherwise roll over a second time.
+    private final int maxInvoiceId;
+
+    private final Instant startedAt = Instant.now();
+
+    private final OverdueProgress progress = new OverdueProgress();
+
+    //Number of invoices already processed before this execution, used for throughput calculation
+    private final long initialProcessed;
+
+    private volatile JobState state = JobState.RUNNING;
+
+    private volatile Instant finishedAt;
+
+    public OverdueJob(String id, OverdueProcessRequest request, LocalDate today, int maxInvoiceId,
+                      long initialProcessed) {
+        this.id = id;
+        this.request = request;
+        this.today = today;
+        this.maxInvoiceId = maxInvoiceId;
+        this.initialProcessed = initialProcessed;
+    }
+
+    //Invoices processed per second. Only invoices processed by the current execution of a resumed job are counted.
+    public double getThroughput() {
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        double elapsedSeconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+        return (progress.getProcessed().get() - initialProcessed) / elapsedSeconds;
+    }
+
+    public Duration getDuration() {
+        return Duration.between(startedAt, finishedAt == null ? Instant.now() : finishedAt);
+    }
+
+    void finish(JobState state) {
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+}
@@ -0,0 +1,222 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.model.enums.JobState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+//Runs overdue processing jobs in the background and keeps track of their progress
+@Component
+@Log4j2
+public class OverdueJobManager {
+
+    private final OverdueProcessingEngine overdueProcessingEngine;
+
+    private final ObjectMapper objectMapper;
+
+    private final InvoiceMetrics invoiceMetrics;
+
+    private final Path checkpointDir;
+
+    private final int retainedJobs;
+
+    //Jobs are run one after another, the engine itself parallelises the work of a job
+    private final ExecutorService executor;
+
+    //Jobs in submission order, guarded by the lock. Locks instead of monitors keep virtual threads unpinned while
+    //a checkpoint is written.
+    private final Map<String, OverdueJob> jobs = new LinkedHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    @Autowired
+    public OverdueJobManager(OverdueProcessingEngine overdueProcessingEngine, ObjectMapper objectMapper,
+                             InvoiceMetrics invoiceMetrics, InvoiceProperties properties) {
+        this.overdueProcessingEngine = overdueProcessingEngine;
+        this.objectMapper = objectMapper;
+        this.invoiceMetrics = invoiceMetrics;
+        String dir = properties.getOverdue().getCheckpointDir();
+        this.checkpointDir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.retainedJobs = properties.getOverdue().getRetainedJobs();
+        this.executor = Executors.newSingleThreadExecutor(properties.getThreads().factory("overdue-job-"));
+    }
+
+    //Returns empty if another job is still running
+    public Optional<OverdueJob> submit(OverdueProcessRequest request) {
+        return submit(request, LocalDate.now());
+    }
+
+    //Same as above, invoices are evaluated against the given day
+    public Optional<OverdueJob> submit(OverdueProcessRequest request, LocalDate today) {
+        lock.lock();
+        try {
+            if (findRunning().isPresent())
+                return Optional.empty();
+            OverdueJob job = new OverdueJob(UUID.randomUUID().toString(), request, today,
+                    overdueProcessingEngine.lastInvoiceId(), 0);
+            start(job);
+            return Optional.of(job);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<OverdueJob> find(String jobId) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(jobs.get(jobId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<OverdueJob> findRunning() {
+        lock.lock();
+        try {
+            return jobs.values().stream().filter(job -> job.getState() == JobState.RUNNING).findFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Returns false if no running job exists with the given id
+    public boolean cancel(String jobId) {
+        lock.lock();
+        try {
+            OverdueJob job = jobs.get(jobId);
+            if (job == null || job.getState() != JobState.RUNNING)
+                return false;
+            job.getProgress().cancel();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Resumes jobs whose checkpoint was left behind by a crash
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (checkpointDir == null || !Files.isDirectory(checkpointDir))
+            return;
+        lock.lock();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(checkpointDir, "*.json")) {
+            for (Path file : files) {
+                OverdueCheckpoint checkpoint = objectMapper.readValue(file.toFile(), OverdueCheckpoint.class);
+                OverdueProcessRequest request = new OverdueProcessRequest();
+                request.setLateFee(checkpoint.getLateFee());
+                request.setOverdueDays(checkpoint.getOverdueDays());
+                //Without a bound the invoices created by the job before the crash would be selected again
+                int maxInvoiceId = checkpoint.getMaxInvoiceId() != null ? checkpoint.getMaxInvoiceId()
+                        : Integer.MAX_VALUE;
+                OverdueJob job = new OverdueJob(checkpoint.getJobId(), request, checkpoint.getToday(), maxInvoiceId,
+                        checkpoint.getProcessed());
+                OverdueProgress progress = job.getProgress();
+                //Committed batches are no longer pending, so the resumed run only selects the remaining invoices
+                progress.getTotal().set(checkpoint.getProcessed());
+                progress.getProcessed().set(checkpoint.getProcessed());
+                progress.getVoided().set(checkpoint.getVoided());
+                progress.getPaid().set(checkpoint.getPaid());
+                progress.getCreated().set(checkpoint.getCreated());
+                log.info("Resuming overdue job {} after {} processed invoices", job.getId(), checkpoint.getProcessed());
+                start(job);
+            }
+        } catch (IOException e) {
+            log.error("Unable to resume overdue jobs from {} : {}", checkpointDir, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void start(OverdueJob job) {
+        jobs.put(job.getId(), job);
+        evictFinishedJobs();
+        writeCheckpoint(job);
+        executor.execute(() -> run(job));
+    }
+
+    private void run(OverdueJob job) {
+        try {
+            overdueProcessingEngine.process(job.getRequest(), job.getToday(), job.getMaxInvoiceId(),
+                    job.getProgress(), () -> writeCheckpoint(job));
+            job.finish(job.getProgress().isCancelled() ? JobState.CANCELLED : JobState.COMPLETED);
+        } catch (RuntimeException e) {
+            log.error("Overdue job {} failed : {}", job.getId(), e.getMessage());
+            job.finish(JobState.FAILED);
+        }
+        //Only a crash leaves the checkpoint behind. A failed job is not resumed on the next start, where newer jobs
+        //may already have processed the same invoices.
+        deleteCheckpoint(job);
+        invoiceMetrics.recordOverdueRun(job.getState(), job.getDuration());
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<OverdueJob> iterator = jobs.values().iterator();
+        while (jobs.size() > retainedJobs && iterator.hasNext()) {
+            if (iterator.next().getState() != JobState.RUNNING)
+                iterator.remove();
+        }
+    }
+
+    //Invoked by the engine workers after each batch, the checkpoint file is replaced atomically
+    private void writeCheckpoint(OverdueJob job) {
+        if (checkpointDir == null)
+            return;
+        checkpointLock.lock();
+        try {
+            Files.createDirectories(checkpointDir);
+            Path temp = checkpointDir.resolve(job.getId() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new OverdueCheckpoint(job));
+            Files.move(temp, checkpointFile(job), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write checkpoint of overdue job " + job.getId(), e);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void deleteCheckpoint(OverdueJob job) {
+        if (checkpointDir == null)
+            return;
+        checkpointLock.lock();
+        try {
+            Files.deleteIfExists(checkpointFile(job));
+        } catch (IOException e) {
+            log.error("Unable to delete checkpoint of overdue job {} : {}", job.getId(), e.getMessage());
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private Path checkpointFile(OverdueJob job) {
+        return checkpointDir.resolve(job.getId() + ".json");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
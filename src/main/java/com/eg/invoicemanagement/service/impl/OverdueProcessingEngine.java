@@ -0,0 +1,187 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.InvoiceIdAllocator;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import jakarta.annotation.PreDestroy;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.eg.invoicemanagement.model.enums.Status.PENDING;
+
+//Processes overdue invoices in batches which are distributed over a dedicated fork-join pool
+@Component
+@Log4j2
+public class OverdueProcessingEngine {
+
+    //Invoices locked together while they are reloaded, processed and committed. Locking a whole batch would hold
+    //about a quarter of the lock stripes, so parallel batches and single payments would mostly wait for each other.
+    private static final int LOCK_GROUP_SIZE = 32;
+
+    private final InvoiceStore invoiceStore;
+
+    private final InvoiceIdAllocator invoiceIdAllocator;
+
+    private final InvoiceLocks invoiceLocks;
+
+    private final InvoiceAggregates invoiceAggregates;
+
+    private final InvoiceEventBus invoiceEventBus;
+
+    private final int batchSize;
+
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public OverdueProcessingEngine(InvoiceStore invoiceStore, InvoiceIdAllocator invoiceIdAllocator,
+                                   InvoiceLocks invoiceLocks, InvoiceAggregates invoiceAggregates,
+                                   InvoiceEventBus invoiceEventBus, InvoiceProperties properties) {
+        this.invoiceStore = invoiceStore;
+        this.invoiceIdAllocator = invoiceIdAllocator;
+        this.invoiceLocks = invoiceLocks;
+        this.invoiceAggregates = invoiceAggregates;
+        this.invoiceEventBus = invoiceEventBus;
+        this.batchSize = properties.getOverdue().getBatchSize();
+        this.pool = new ForkJoinPool(properties.getOverdue().getParallelism());
+    }
+
+    //Processes all pending invoices whose due date is before the given day
+    public void process(OverdueProcessRequest request, LocalDate today, OverdueProgress progress) {
+        process(request, today, lastInvoiceId(), progress, () -> {
+        });
+    }
+
+    //Same as above for invoices with ids up to maxInvoiceId, the listener is notified after every committed batch
+    public void process(OverdueProcessRequest request, LocalDate today, int maxInvoiceId, OverdueProgress progress,
+                        Runnable batchListener) {
+        //Only pending and past due invoices are selected through the due date index
+        List<Invoice> candidates = invoiceStore.findByStatusAndDueDateBefore(PENDING, today).stream()
+                .filter(invoice -> invoice.getId() <= maxInvoiceId)
+                .toList();
+        progress.getTotal().addAndGet(candidates.size());
+        if (candidates.isEmpty())
+            return;
+
+        //The first failing batch cancels the batches which have not started yet, they return without processing
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<Invoice> batch = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+            tasks.add(pool.submit(() -> {
+                if (progress.isCancelled() || failure.get() != null)
+                    return;
+                try {
+                    processBatch(batch, request, today, progress);
+                    batchListener.run();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        //Batches which are already running are awaited, so nothing is committed after the failure is rethrown.
+        //They are not cancelled through their tasks, a cancelled task is done before its batch has finished.
+        tasks.forEach(ForkJoinTask::quietlyJoin);
+        if (failure.get() != null) {
+            log.error("Overdue processing for {} failed, {} invoices processed", today, progress.getProcessed());
+            throw failure.get();
+        }
+        log.info("Overdue processing for {} {}, {} invoices processed", today,
+                progress.isCancelled() ? "cancelled" : "completed", progress.getProcessed());
+    }
+
+    //The invoices of a batch are locked and reloaded in small groups, as payments may have been applied after
+    //selection. A group stays locked until it is committed.
+    private void processBatch(List<Invoice> batch, OverdueProcessRequest request, LocalDate today,
+                              OverdueProgress progress) {
+        //The late fee in minor units of each currency of the batch, rounded where a currency has fewer decimals
+        Map<Currency, Long> lateFees = new HashMap<>();
+        int created = 0;
+        for (int from = 0; from < batch.size(); from += LOCK_GROUP_SIZE) {
+            List<Integer> ids = batch.subList(from, Math.min(from + LOCK_GROUP_SIZE, batch.size())).stream()
+                    .map(Invoice::getId)
+                    .toList();
+            created += processGroup(ids, request, today, lateFees, progress);
+        }
+        progress.getProcessed().addAndGet(batch.size());
+        progress.getCreated().addAndGet(created);
+    }
+
+    //Returns the number of invoices created for the group
+    private int processGroup(List<Integer> ids, OverdueProcessRequest request, LocalDate today,
+                             Map<Currency, Long> lateFees, OverdueProgress progress) {
+        int overdueDays = request.getOverdueDays();
+        List<Invoice> overdueInvoices = new ArrayList<>(ids.size());
+        List<Invoice> newInvoices = new ArrayList<>(ids.size());
+
+        try (val held = invoiceLocks.lockAll(ids)) {
+            for (Invoice invoice : invoiceStore.findAllById(ids)) {
+                //Re-checking the current state
+                if (!PENDING.equals(invoice.getStatus()) || !invoice.getDueDate().isBefore(today))
+                    continue;
+                long amount = invoice.getAmount();
+                long paidAmount = invoice.getPaidAmount();
+                long lateFee = lateFees.computeIfAbsent(invoice.getCurrency(),
+                        currency -> Money.toMinorUnits(request.getLateFee(), currency, RoundingMode.HALF_UP));
+                //Computed before the invoice is changed, an overflow leaves it untouched
+                long newAmount = Math.addExact(amount - paidAmount, lateFee);
+
+                //If invoice is partially paid, mark status as 'paid' else mark as 'void' if not at all paid
+                invoice.setStatus(paidAmount > 0 ? Status.PAID : Status.VOID);
+                overdueInvoices.add(invoice);
+                (paidAmount > 0 ? progress.getPaid() : progress.getVoided()).incrementAndGet();
+
+                //Create a new invoice with amount (remaining amount + late fee) and a new overdue
+                Invoice newInvoice = new Invoice();
+                newInvoice.setAmount(newAmount);
+                newInvoice.setCurrency(invoice.getCurrency());
+                newInvoice.setDueDate(invoice.getDueDate().plusDays(overdueDays));
+                newInvoice.setStatus(PENDING);
+                newInvoice.setPredecessorId(invoice.getId());
+                newInvoices.add(newInvoice);
+            }
+            commit(overdueInvoices, newInvoices);
+        }
+        return newInvoices.size();
+    }
+
+    //Bounds the invoices selected by a job which is started now
+    public int lastInvoiceId() {
+        return invoiceIdAllocator.lastId();
+    }
+
+    //Commits status transitions and new invoices of a batch, ids of new invoices are reserved as one block
+    private void commit(List<Invoice> overdueInvoices, List<Invoice> newInvoices) {
+        if (newInvoices.isEmpty())
+            return;
+        int nextId = invoiceIdAllocator.reserve(newInvoices.size());
+        for (Invoice newInvoice : newInvoices)
+            newInvoice.setId(nextId++);
+        invoiceStore.updateAll(overdueInvoices);
+        invoiceStore.insertAll(newInvoices);
+        //Selected invoices were pending and their payments are unchanged
+        overdueInvoices.forEach(invoice -> invoiceAggregates.update(invoice, PENDING, invoice.getPaidAmount()));
+        newInvoices.forEach(invoiceAggregates::add);
+        invoiceEventBus.rolledOver(overdueInvoices, newInvoices);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
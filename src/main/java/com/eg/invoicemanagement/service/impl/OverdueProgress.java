@@ -0,0 +1,26 @@
+package com.eg.invoicemanagement.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+//Counters of a single overdue processing run, safe to update from multiple worker threads
+@Getter
+public class OverdueProgress {
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong voided = new AtomicLong();
+
+    private final AtomicLong paid = new AtomicLong();
+
+    private final AtomicLong created = new AtomicLong();
+
+    private volatile boolean cancelled;
+
+    //Requests the run to stop, batches which are already being processed are still completed
+    public void cancel() {
+        cancelled = true;
+    }
+}
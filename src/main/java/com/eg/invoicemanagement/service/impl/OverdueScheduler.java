@@ -0,0 +1,92 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.model.enums.JobState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+//Runs overdue processing on its own once per day, enabled with invoice.overdue.schedule.enabled. Invoices are
+//selected through the status and due date index of the store, which keeps pending invoices ordered by due date. As
+//every run moves the invoices it selects out of pending, the next run only reads the invoices which became overdue
+//since, so its cost follows the number of newly overdue invoices rather than the size of the book.
+@Component
+@Log4j2
+@ConditionalOnProperty(name = "invoice.overdue.schedule.enabled", havingValue = "true")
+public class OverdueScheduler {
+
+    private final OverdueJobManager overdueJobManager;
+
+    private final OverdueProcessRequest request;
+
+    private final long checkIntervalMillis;
+
+    private final ScheduledExecutorService executor;
+
+    //Only accessed by the scheduler thread
+    private OverdueJob lastJob;
+
+    private LocalDate processedDay;
+
+    @Autowired
+    public OverdueScheduler(OverdueJobManager overdueJobManager, InvoiceProperties properties) {
+        this.overdueJobManager = overdueJobManager;
+        InvoiceProperties.Schedule schedule = properties.getOverdue().getSchedule();
+        this.request = new OverdueProcessRequest();
+        this.request.setLateFee(schedule.getLateFee());
+        this.request.setOverdueDays(schedule.getOverdueDays());
+        this.checkIntervalMillis = schedule.getCheckInterval().toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                properties.getThreads().factory("overdue-schedule-"));
+    }
+
+    //The first check is delayed by one interval, so that jobs interrupted by a crash are resumed first
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::checkQuietly, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    //Submits a job for the given day unless one has already finished for it. A running job, whether scheduled or
+    //requested through the endpoint, defers the run to a later check. Failed runs are retried, cancelled runs are
+    //not repeated on the same day.
+    public void check(LocalDate today) {
+        if (lastJob != null) {
+            if (lastJob.getState() == JobState.RUNNING)
+                return;
+            if (lastJob.getState() != JobState.FAILED)
+                processedDay = lastJob.getToday();
+        }
+        if (today.equals(processedDay))
+            return;
+        overdueJobManager.submit(request, today).ifPresent(job -> {
+            log.info("Scheduled overdue job {} submitted for {}", job.getId(), today);
+            lastJob = job;
+        });
+    }
+
+    public OverdueJob getLastJob() {
+        return lastJob;
+    }
+
+    private void checkQuietly() {
+        try {
+            check(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Scheduled overdue processing failed : {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,322 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.PaymentItemRequest;
+import com.eg.invoicemanagement.dto.response.PaymentBatchResponse;
+import com.eg.invoicemanagement.dto.response.PaymentItemResult;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.PaymentOutcome;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+//Applies payments, either a single one or all payments of a bank remittance file
+@Component
+@Log4j2
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PaymentProcessor {
+
+    private static final String CSV_HEADER = "invoice_id";
+
+    private final InvoiceStore invoiceStore;
+
+    private final InvoiceProperties invoiceProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    @Getter
+    private final IdempotencyCache idempotencyCache;
+
+    private final InvoiceLocks invoiceLocks;
+
+    private final InvoiceMetrics invoiceMetrics;
+
+    private final InvoiceAggregates invoiceAggregates;
+
+    private final InvoiceEventBus invoiceEventBus;
+
+    //Applies a single payment and stores the invoice. The invoice is read, checked and changed under its lock, as
+    //other payments and overdue processing may change it concurrently.
+    public ResponseEntity<Object> pay(Integer invoiceId, BigDecimal amount, LocalDate today) {
+        try (val held = invoiceLocks.lock(invoiceId)) {
+            val invoiceOpt = invoiceStore.findById(invoiceId);
+            //Checking whether invoice exists with given invoiceId
+            if (invoiceOpt.isEmpty()) {
+                invoiceMetrics.recordPayment(PaymentOutcome.NOT_FOUND);
+                return getResponse(PaymentOutcome.NOT_FOUND, invoiceId, null);
+            }
+
+            Invoice invoice = invoiceOpt.get();
+            Status previousStatus = invoice.getStatus();
+            long previousPaidAmount = invoice.getPaidAmount();
+            val outcome = apply(invoice, amount, today);
+            if (outcome == PaymentOutcome.APPLIED) {
+                invoiceStore.update(invoice);
+                invoiceAggregates.update(invoice, previousStatus, previousPaidAmount);
+                invoiceEventBus.paymentApplied(invoice, previousStatus, previousPaidAmount);
+                log.info("Invoice payment of {} for invoice id {} is successful", amount, invoiceId);
+            }
+            invoiceMetrics.recordPayment(outcome);
+            return getResponse(outcome, invoiceId, invoice);
+        }
+    }
+
+    //Applies the payment to the invoice if the payment rules allow it, the caller holds the invoice lock.
+    //Amounts are compared and added exactly in minor units of the invoice currency.
+    private PaymentOutcome apply(Invoice invoice, BigDecimal payment, LocalDate today) {
+        //Restricting payment if due date is already passed
+        if (invoice.getDueDate().isBefore(today))
+            return PaymentOutcome.OVERDUE;
+
+        long amount;
+        try {
+            amount = Money.toMinorUnits(payment, invoice.getCurrency());
+        } catch (IllegalArgumentException e) {
+            return PaymentOutcome.INVALID;
+        }
+        long paidAmount = invoice.getPaidAmount();
+        long pendingAmount = invoice.getAmount() - paidAmount;
+
+        //Checking if payment amount exceeds the invoice pending amount
+        if (amount > pendingAmount)
+            return PaymentOutcome.EXCEEDS_AMOUNT;
+
+        invoice.setPaidAmount(paidAmount + amount);
+        if (amount == pendingAmount)
+            invoice.setStatus(Status.PAID);
+        return PaymentOutcome.APPLIED;
+    }
+
+    //Returns the message explaining a rejected payment
+    public String getMessage(PaymentOutcome outcome, Integer invoiceId, Invoice invoice) {
+        return switch (outcome) {
+            case NOT_FOUND -> "No invoice found with id " + invoiceId;
+            case OVERDUE -> "Invoice due date is already over";
+            case EXCEEDS_AMOUNT -> "Total Payment amount exceeds invoice amount " +
+                    new Money(invoice.getAmount(), invoice.getCurrency()) + " (" +
+                    new Money(invoice.getPaidAmount(), invoice.getCurrency()) + " paid already)";
+            case INVALID -> "The payment amount has more decimal places than " +
+                    invoice.getCurrency().getCurrencyCode() + " allows";
+            default -> null;
+        };
+    }
+
+    //Returns the response of a single payment with the given outcome
+    public ResponseEntity<Object> getResponse(PaymentOutcome outcome, Integer invoiceId, Invoice invoice) {
+        return switch (outcome) {
+            case APPLIED -> new ResponseEntity<>(HttpStatus.OK);
+            case NOT_FOUND -> new ResponseEntity<>(getMessage(outcome, invoiceId, invoice), HttpStatus.NOT_FOUND);
+            default -> new ResponseEntity<>(getMessage(outcome, invoiceId, invoice), HttpStatus.BAD_REQUEST);
+        };
+    }
+
+    //Lines are 'invoice_id,amount[,idempotency_key]', an optional header line starting with invoice_id is skipped
+    public PaymentBatchResponse applyCsv(InputStream csv) {
+        return applyAll(readLines(csv, (number, line) -> {
+            if (number == 1 && line.startsWith(CSV_HEADER))
+                return null;
+            String[] fields = line.split(",", -1);
+            if (fields.length < 2 || fields.length > 3)
+                return new PaymentLine(number, null, "Expected invoice_id,amount[,idempotency_key]");
+            try {
+                String key = fields.length == 3 && !fields[2].isBlank() ? fields[2].trim() : null;
+                return new PaymentLine(number, new PaymentItemRequest(Integer.valueOf(fields[0].trim()),
+                        new BigDecimal(fields[1].trim()), key), null);
+            } catch (NumberFormatException e) {
+                return new PaymentLine(number, null, "Invalid number in " + line);
+            }
+        }));
+    }
+
+    public PaymentBatchResponse applyNdjson(InputStream ndjson) {
+        ObjectReader reader = objectMapper.readerFor(PaymentItemRequest.class);
+        return applyAll(readLines(ndjson, (number, line) -> {
+            try {
+                return new PaymentLine(number, reader.readValue(line), null);
+            } catch (JsonProcessingException e) {
+                return new PaymentLine(number, null, "Invalid payment : " + e.getOriginalMessage());
+            }
+        }));
+    }
+
+    //Payments are grouped by invoice, so every invoice is loaded and stored once however often it is paid.
+    //Payments of an invoice are applied in file order.
+    private PaymentBatchResponse applyAll(List<PaymentLine> lines) {
+        PaymentItemResult[] results = new PaymentItemResult[lines.size()];
+        //Keys are reserved before any payment is applied, so that neither a later line of the file nor a concurrent
+        //request with the same key can apply its payment as well
+        IdempotencyCache.Reservation[] reservations = new IdempotencyCache.Reservation[lines.size()];
+        try {
+            return applyAll(lines, results, reservations);
+        } finally {
+            //Reservations of payments which were not applied because of an exception are released
+            for (IdempotencyCache.Reservation reservation : reservations) {
+                if (reservation != null)
+                    reservation.release();
+            }
+        }
+    }
+
+    private PaymentBatchResponse applyAll(List<PaymentLine> lines, PaymentItemResult[] results,
+                                          IdempotencyCache.Reservation[] reservations) {
+        Map<Integer, List<Integer>> paymentsByInvoice = new LinkedHashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            PaymentLine line = lines.get(i);
+            String error = line.error() != null ? line.error() : validate(line.request());
+            Integer invoiceId = line.request() == null ? null : line.request().getInvoiceId();
+            if (error != null) {
+                invoiceMetrics.recordPayment(PaymentOutcome.INVALID);
+                results[i] = new PaymentItemResult(line.number(), invoiceId, PaymentOutcome.INVALID.getValue(), error);
+                continue;
+            }
+            //Keys are checked against the file and against payments of earlier and concurrent requests
+            String key = line.request().getIdempotencyKey();
+            if (key != null && (reservations[i] = idempotencyCache.reserve(key)) == null) {
+                invoiceMetrics.recordPayment(PaymentOutcome.DUPLICATE);
+                results[i] = new PaymentItemResult(line.number(), invoiceId, PaymentOutcome.DUPLICATE.getValue(),
+                        "Duplicate idempotency key " + key);
+                continue;
+            }
+            paymentsByInvoice.computeIfAbsent(invoiceId, id -> new ArrayList<>()).add(i);
+        }
+
+        LocalDate today = LocalDate.now();
+        List<Runnable> remembered = new ArrayList<>();
+        int applied = 0;
+        int changed = 0;
+        //Invoices are locked, loaded and stored in chunks, which bounds the time other payments wait for a lock
+        List<Integer> invoiceIds = new ArrayList<>(paymentsByInvoice.keySet());
+        int chunkSize = invoiceProperties.getStorage().getBatchSize();
+        for (int from = 0; from < invoiceIds.size(); from += chunkSize) {
+            List<Integer> chunk = invoiceIds.subList(from, Math.min(from + chunkSize, invoiceIds.size()));
+            try (val held = invoiceLocks.lockAll(chunk)) {
+                Map<Integer, Invoice> invoices = invoiceStore.findAllById(chunk).stream()
+                        .collect(Collectors.toMap(Invoice::getId, Function.identity()));
+                List<Invoice> changedInvoices = new ArrayList<>();
+                //Totals and events are recorded once the invoices are stored, with one event for all payments of
+                //the file to an invoice
+                List<Runnable> recorded = new ArrayList<>();
+                for (Integer invoiceId : chunk) {
+                    Invoice invoice = invoices.get(invoiceId);
+                    Status previousStatus = invoice == null ? null : invoice.getStatus();
+                    long previousPaidAmount = invoice == null ? 0 : invoice.getPaidAmount();
+                    boolean invoiceChanged = false;
+                    for (int i : paymentsByInvoice.get(invoiceId)) {
+                        PaymentLine line = lines.get(i);
+                        PaymentOutcome outcome = invoice == null ? PaymentOutcome.NOT_FOUND :
+                                apply(invoice, line.request().getAmount(), today);
+                        if (outcome == PaymentOutcome.APPLIED) {
+                            invoiceChanged = true;
+                            applied++;
+                        }
+                        invoiceMetrics.recordPayment(outcome);
+                        results[i] = new PaymentItemResult(line.number(), invoiceId, outcome.getValue(),
+                                getMessage(outcome, invoiceId, invoice));
+                        IdempotencyCache.Reservation reservation = reservations[i];
+                        if (reservation != null) {
+                            val response = getResponse(outcome, invoiceId, invoice);
+                            remembered.add(() -> {
+                                reservation.complete(invoiceId, line.request().getAmount(), response);
+                                reservations[i] = null;
+                            });
+                        }
+                    }
+                    if (invoiceChanged) {
+                        changedInvoices.add(invoice);
+                        recorded.add(() -> {
+                            invoiceAggregates.update(invoice, previousStatus, previousPaidAmount);
+                            invoiceEventBus.paymentApplied(invoice, previousStatus, previousPaidAmount);
+                        });
+                    }
+                }
+                invoiceStore.updateAll(changedInvoices);
+                recorded.forEach(Runnable::run);
+                //Keys are only completed once the payments are stored
+                remembered.forEach(Runnable::run);
+                remembered.clear();
+                changed += changedInvoices.size();
+            }
+        }
+        log.info("Applied {} of {} payments to {} invoices", applied, lines.size(), changed);
+        return new PaymentBatchResponse(applied, lines.size() - applied, Arrays.asList(results));
+    }
+
+    private List<PaymentLine> readLines(InputStream input, LineParser parser) {
+        int maxSize = invoiceProperties.getBatch().getMaxSize();
+        List<PaymentLine> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank())
+                    continue;
+                PaymentLine parsed = parser.parse(number, line.trim());
+                if (parsed == null)
+                    continue;
+                if (lines.size() == maxSize)
+                    throw new IllegalArgumentException("The batch must not contain more than " + maxSize +
+                            " payments");
+                lines.add(parsed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read payments", e);
+        }
+        return lines;
+    }
+
+    //Returns the validation messages of the payment or null if it is valid
+    private String validate(PaymentItemRequest request) {
+        String key = request.getIdempotencyKey();
+        if (key != null) {
+            try {
+                IdempotencyCache.checkKey(key);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        val violations = validator.validate(request);
+        if (violations.isEmpty())
+            return null;
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+    }
+
+    private interface LineParser {
+
+        //Returns null for lines which are skipped
+        PaymentLine parse(int number, String line);
+    }
+
+    private record PaymentLine(int number, PaymentItemRequest request, String error) {
+    }
+}
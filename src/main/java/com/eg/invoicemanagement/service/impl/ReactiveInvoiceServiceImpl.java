@@ -0,0 +1,222 @@
+package com.eg.invoicemanagement.service.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
+import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.exception.EventsUnavailableException;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.service.InvoiceService;
+import com.eg.invoicemanagement.service.ReactiveInvoiceService;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import static com.eg.invoicemanagement.service.impl.InvoiceEventBus.OVERRUN_EVENT;
+
+//The stores block, so every call into the service or a store is moved off the event loop onto the invoice
+//scheduler. Request bodies are read through a bounded buffer and the export is read chunk by chunk on demand, so
+//neither has to fit into memory as a whole.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveInvoiceServiceImpl implements ReactiveInvoiceService {
+
+    //Number of request body buffers read ahead of the parser
+    private static final int REQUEST_DEMAND = 16;
+
+    private static final int ESTIMATED_LINE_SIZE = 128;
+
+    private final InvoiceService invoiceService;
+
+    private final InvoiceStore invoiceStore;
+
+    private final InvoiceProperties invoiceProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Scheduler invoiceScheduler;
+
+    private final InvoiceEventBus invoiceEventBus;
+
+    @Override
+    public Mono<ResponseEntity<Object>> createInvoice(InvoiceCreationRequest request) {
+        return call(() -> invoiceService.createInvoice(request));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> createInvoices(List<InvoiceCreationRequest> requests, boolean atomic) {
+        return call(() -> invoiceService.createInvoices(requests, atomic));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> createInvoices(Flux<DataBuffer> ndjson, boolean atomic) {
+        return read(ndjson, stream -> invoiceService.createInvoices(stream, atomic));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono<ResponseEntity<Flux<InvoiceResponse>>> getAllInvoices(InvoiceSearchRequest request) {
+        //The body of a successful listing is always the page of invoices, failures are thrown
+        return call(() -> invoiceService.getAllInvoices(request))
+                .map(response -> ResponseEntity.status(response.getStatusCode())
+                        .headers(response.getHeaders())
+                        .body(Flux.fromIterable((List<InvoiceResponse>) response.getBody())));
+    }
+
+    @Override
+    public Flux<DataBuffer> exportInvoices(Integer afterId) {
+        int chunkSize = invoiceProperties.getExport().getChunkSize();
+        return Flux.<List<Invoice>, InvoiceQuery>generate(() -> {
+                    InvoiceQuery query = new InvoiceQuery();
+                    query.setAfterId(afterId);
+                    query.setLimit(chunkSize);
+                    return query;
+                }, (query, sink) -> {
+                    List<Invoice> chunk = invoiceStore.search(query);
+                    if (!chunk.isEmpty()) {
+                        sink.next(chunk);
+                        query.setAfterId(chunk.get(chunk.size() - 1).getId());
+                    }
+                    if (chunk.size() < chunkSize)
+                        sink.complete();
+                    return query;
+                })
+                .map(this::toNdjson)
+                //Demand of the client is served on the scheduler as well, which is where the next chunk is read
+                .subscribeOn(invoiceScheduler);
+    }
+
+    //Chunks are written without an InvoiceResponse per invoice, like the export of the servlet stack
+    private DataBuffer toNdjson(List<Invoice> chunk) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(chunk.size() * ESTIMATED_LINE_SIZE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            for (Invoice invoice : chunk) {
+                InvoiceMapper.write(invoice, generator);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write invoices", e);
+        }
+        return DefaultDataBufferFactory.sharedInstance.wrap(outputStream.toByteArray());
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> getInvoiceChain(Integer invoiceId) {
+        return call(() -> invoiceService.getInvoiceChain(invoiceId));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> getAggregates() {
+        //Aggregates are read from counters without touching the store, so no scheduler hop is needed
+        return Mono.fromSupplier(invoiceService::getAggregates);
+    }
+
+    //Reading the ring buffer does not block, so the buffer is polled on a timer instead of by a subscription thread.
+    //A batch is read when the previous one has been sent, ticks arriving while the client is not reading are dropped.
+    @Override
+    public Flux<ServerSentEvent<Object>> streamEvents(Long fromSequence, Long lastEventId) {
+        return Flux.defer(() -> {
+            AtomicLong next = new AtomicLong(invoiceEventBus.start(fromSequence, lastEventId));
+            return Flux.interval(Duration.ZERO, invoiceEventBus.getWaitInterval())
+                    .onBackpressureDrop()
+                    .concatMapIterable(tick -> {
+                        List<InvoiceEvent> events = invoiceEventBus.read(next.get(), invoiceEventBus.getBatchSize());
+                        next.addAndGet(events.size());
+                        return events;
+                    })
+                    .map(event -> ServerSentEvent.<Object>builder(InvoiceMapper.toResponse(event))
+                            .id(String.valueOf(event.getSequence()))
+                            .event(event.getType().getValue())
+                            .build())
+                    .onErrorResume(EventsUnavailableException.class, e -> Mono.just(
+                            ServerSentEvent.<Object>builder(e.getMessage()).event(OVERRUN_EVENT).build()));
+        });
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> doPayment(Integer invoiceId, InvoicePaymentRequest request,
+                                                  String idempotencyKey) {
+        return call(() -> invoiceService.doPayment(invoiceId, request, idempotencyKey));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> doPaymentsFromCsv(Flux<DataBuffer> csv) {
+        return read(csv, invoiceService::doPaymentsFromCsv);
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> doPaymentsFromNdjson(Flux<DataBuffer> ndjson) {
+        return read(ndjson, invoiceService::doPaymentsFromNdjson);
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> processOverdue(OverdueProcessRequest request) {
+        return call(() -> invoiceService.processOverdue(request));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> getOverdueJob(String jobId) {
+        return call(() -> invoiceService.getOverdueJob(jobId));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> cancelOverdueJob(String jobId) {
+        return call(() -> invoiceService.cancelOverdueJob(jobId));
+    }
+
+    private <T> Mono<T> call(Callable<T> callable) {
+        return Mono.fromCallable(callable).subscribeOn(invoiceScheduler);
+    }
+
+    //The body is parsed while it arrives, the parser blocks on the scheduler until the next buffer is received.
+    //Closing the buffers cancels the request body if the parser stops early.
+    private Mono<ResponseEntity<Object>> read(Flux<DataBuffer> body,
+                                              Function<InputStream, ResponseEntity<Object>> parser) {
+        return call(() -> {
+            try (Stream<DataBuffer> buffers = body.toStream(REQUEST_DEMAND)) {
+                Iterator<DataBuffer> iterator = buffers.iterator();
+                return parser.apply(new SequenceInputStream(new Enumeration<>() {
+                    @Override
+                    public boolean hasMoreElements() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public InputStream nextElement() {
+                        return iterator.next().asInputStream(true);
+                    }
+                }));
+            }
+        });
+    }
+}
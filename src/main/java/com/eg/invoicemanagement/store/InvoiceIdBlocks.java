@@ -0,0 +1,14 @@
+package com.eg.invoicemanagement.store;
+
+//Invoice id counter kept in a storage shared by several instances, so that each instance reserves distinct ids
+public interface InvoiceIdBlocks {
+
+    //Reserves a block of consecutive ids and returns its first id, which may lie beyond the int range
+    long reserve(int count);
+
+    //Returns the last id reserved by any instance
+    long last();
+
+    //Makes sure that every id reserved afterwards is greater than the given id
+    void reseed(int lastId);
+}
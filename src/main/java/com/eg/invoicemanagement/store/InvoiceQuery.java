@@ -0,0 +1,104 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Currency;
+import lombok.Getter;
+import lombok.Setter;
+
+//Filter, sort order and keyset position of an invoice search, null filters are not applied
+@Getter
+@Setter
+public class InvoiceQuery {
+
+    private Status status;
+
+    private LocalDate dueDateFrom;
+
+    private LocalDate dueDateTo;
+
+    //Amounts of different currencies do not compare, so the amount filters and the amount sort require a currency
+    private Currency currency;
+
+    //Minor units of the currency, see Money
+    private Long minAmount;
+
+    private Long maxAmount;
+
+    private InvoiceSortField sortField = InvoiceSortField.ID;
+
+    private boolean descending;
+
+    //Sort key and id of the last invoice of the previous page, only invoices after it are returned
+    private Object afterKey;
+
+    private Integer afterId;
+
+    private int limit = Integer.MAX_VALUE;
+
+    public boolean matches(Invoice invoice) {
+        return (status == null || status.equals(invoice.getStatus()))
+                && (dueDateFrom == null || !invoice.getDueDate().isBefore(dueDateFrom))
+                && (dueDateTo == null || !invoice.getDueDate().isAfter(dueDateTo))
+                && (currency == null || currency.equals(invoice.getCurrency()))
+                && (minAmount == null || invoice.getAmount() >= minAmount)
+                && (maxAmount == null || invoice.getAmount() <= maxAmount);
+    }
+
+    //Returns true if the invoice comes after the keyset position in the requested order
+    public boolean isAfterPosition(Invoice invoice) {
+        Object key = sortField == InvoiceSortField.ID ? afterId : afterKey;
+        if (key == null)
+            return true;
+        int compared = compare(sortKey(invoice), key);
+        if (compared == 0 && sortField != InvoiceSortField.ID)
+            compared = Integer.compare(invoice.getId(), afterId);
+        return descending ? compared < 0 : compared > 0;
+    }
+
+    //Order of the results, by the sort field and then by id
+    public Comparator<Invoice> order() {
+        Comparator<Invoice> order = Comparator.<Invoice, Object>comparing(this::sortKey, InvoiceQuery::compare)
+                .thenComparing(Invoice::getId);
+        return descending ? order.reversed() : order;
+    }
+
+    //Returns a copy of the query which returns up to the given number of invoices
+    public InvoiceQuery withLimit(int limit) {
+        InvoiceQuery query = new InvoiceQuery();
+        query.status = status;
+        query.dueDateFrom = dueDateFrom;
+        query.dueDateTo = dueDateTo;
+        query.currency = currency;
+        query.minAmount = minAmount;
+        query.maxAmount = maxAmount;
+        query.sortField = sortField;
+        query.descending = descending;
+        query.afterKey = afterKey;
+        query.afterId = afterId;
+        query.limit = limit;
+        return query;
+    }
+
+    //Throws IllegalArgumentException if amounts are filtered or sorted without a currency
+    public void checkCurrency() {
+        if (currency == null && (minAmount != null || maxAmount != null || sortField == InvoiceSortField.AMOUNT))
+            throw new IllegalArgumentException("Amount filters and sorting by amount require a currency");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object key, Object other) {
+        return ((Comparable<Object>) key).compareTo(other);
+    }
+
+    //Returns the value of the sort field of the given invoice
+    public Object sortKey(Invoice invoice) {
+        return switch (sortField) {
+            case ID -> invoice.getId();
+            case DUE_DATE -> invoice.getDueDate();
+            case AMOUNT -> invoice.getAmount();
+        };
+    }
+}
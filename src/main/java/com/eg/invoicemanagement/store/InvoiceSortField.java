@@ -0,0 +1,25 @@
+package com.eg.invoicemanagement.store;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+@Getter
+public enum InvoiceSortField {
+
+    ID("id"),
+    DUE_DATE("due_date"),
+    AMOUNT("amount");
+
+    private final String value;
+
+    InvoiceSortField(String value) {
+        this.value = value;
+    }
+
+    public static InvoiceSortField fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(field -> field.value.equals(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Invalid sort field " + value));
+    }
+}
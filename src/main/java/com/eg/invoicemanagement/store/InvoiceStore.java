@@ -0,0 +1,57 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Storage abstraction for invoices, implementations must be safe for concurrent request threads
+public interface InvoiceStore {
+
+    Optional<Invoice> findById(Integer id);
+
+    //Returns the invoices with the given ids in the order of the ids, ids without an invoice are skipped
+    List<Invoice> findAllById(Collection<Integer> ids);
+
+    //Returns all invoices ordered by id
+    List<Invoice> findAll();
+
+    //Returns invoices with the given status ordered by id
+    List<Invoice> findByStatus(Status status);
+
+    //Returns invoices with the given status whose due date is strictly before the given date
+    List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date);
+
+    //Returns the invoice created to replace the given invoice when it became overdue
+    Optional<Invoice> findByPredecessorId(Integer predecessorId);
+
+    //Returns invoices whose due date falls within the given inclusive range
+    List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to);
+
+    //Returns up to query.limit invoices matching the query in the requested order, starting after its keyset position
+    List<Invoice> search(InvoiceQuery query);
+
+    void insert(Invoice invoice);
+
+    void insertAll(Collection<Invoice> invoices);
+
+    //Must be called after an invoice is modified so that secondary indexes are kept up-to-date
+    void update(Invoice invoice);
+
+    void updateAll(Collection<Invoice> invoices);
+
+    //Inserts and updates invoices together, stores with transactions write both in one transaction
+    default void writeAll(Collection<Invoice> inserted, Collection<Invoice> updated) {
+        insertAll(inserted);
+        updateAll(updated);
+    }
+
+    long count();
+
+    //Returns the highest stored invoice id or 0 if the store is empty
+    int maxId();
+
+    boolean isEmpty();
+}
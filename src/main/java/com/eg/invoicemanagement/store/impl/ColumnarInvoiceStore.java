@@ -0,0 +1,807 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+//In-memory store for very large books. Instead of one object per invoice, the fields of all invoices are kept in
+//primitive columns: money as long, due dates as epoch days, status as a byte and currencies as an index into a
+//table of the currencies in use, about 36 bytes per invoice with the indexes and 4 more while it is pending.
+//Columns are split into chunks of consecutive ids, the position of an invoice within its chunk is given by its id,
+//so no id index is needed and scans in id order read memory sequentially. The garbage collector only sees a few
+//large arrays per chunk, whatever the size of the book.
+//Invoices are handed out as views which read and write the columns of their row. Like the invoices of the memory
+//store, changes made to a view are visible to other threads before update() is called.
+//Secondary indexes are kept as primitives too: a bitmap of the rows of each status per chunk, and the ids of each
+//due date as a sorted int[], once for all invoices and once for pending ones. Queries by status skip the words of
+//the bitmap without rows of the status and queries by due date only visit the ids of the days in their range.
+//Amounts are not indexed, the amount sort selects its page among the rows of the status or due date range of the
+//query.
+@Repository
+@ConditionalOnProperty(name = "invoice.storage.mode", havingValue = "columnar")
+public class ColumnarInvoiceStore implements InvoiceStore {
+
+    //The largest column of a chunk takes 128 KB, which keeps it below the size at which G1 allocates an array in
+    //regions of its own, leaving the rest of the last region unused
+    private static final int CHUNK_BITS = 14;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int ROW_MASK = CHUNK_SIZE - 1;
+
+    //Words of the status bitmaps of a chunk
+    private static final int WORDS = CHUNK_SIZE / Long.SIZE;
+
+    //Status column value of ids without an invoice, other values are the status ordinal plus one
+    private static final byte ABSENT = 0;
+
+    private static final Status[] STATUSES = Status.values();
+
+    private static final byte PENDING = (byte) (Status.PENDING.ordinal() + 1);
+
+    //Currency filters of queries without a currency and of queries for a currency no invoice uses
+    private static final short ANY_CURRENCY = -1;
+
+    private static final short UNUSED_CURRENCY = -2;
+
+    //Stores of the status and successor columns publish a row to readers, all other columns are written before them
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    //Bits of the status bitmaps are set and cleared atomically, as the rows of a word are written concurrently
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    //Chunks by the upper bits of the id, allocated when the first invoice of their id range is inserted
+    private final AtomicReferenceArray<Chunk> chunks =
+            new AtomicReferenceArray<>((Integer.MAX_VALUE >>> CHUNK_BITS) + 1);
+
+    //Currencies in use, the currency column holds indexes into this list
+    private final List<Currency> currencies = new CopyOnWriteArrayList<>();
+
+    private final Map<Currency, Short> currencyIndexes = new ConcurrentHashMap<>();
+
+    //Serialises additions to the currency table, lookups of currencies in use do not take it
+    private final ReentrantLock currencyLock = new ReentrantLock();
+
+    private final LongAdder count = new LongAdder();
+
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    //Ids by due date (epoch day) for all statuses, so that status changes, the most frequent update, leave it alone.
+    //Empty buckets are retained, as in the memory store.
+    private final ConcurrentSkipListMap<Integer, DueDateBucket> dueDateIndex = new ConcurrentSkipListMap<>();
+
+    //Ids of pending invoices by due date. Overdue runs select the pending invoices due before today, which would
+    //otherwise visit every paid or void invoice ever due. Invoices leave it when they are paid or voided.
+    private final ConcurrentSkipListMap<Integer, DueDateBucket> pendingDueDateIndex = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Optional<Invoice> findById(Integer id) {
+        if (id == null || id <= 0)
+            return Optional.empty();
+        Chunk chunk = chunks.get(id >>> CHUNK_BITS);
+        return chunk == null || chunk.status(id & ROW_MASK) == ABSENT ? Optional.empty() :
+                Optional.of(new InvoiceView(chunk, id));
+    }
+
+    @Override
+    public List<Invoice> findAllById(Collection<Integer> ids) {
+        List<Invoice> invoices = new ArrayList<>(ids.size());
+        for (Integer id : ids)
+            findById(id).ifPresent(invoices::add);
+        return invoices;
+    }
+
+    @Override
+    public List<Invoice> findAll() {
+        return search(new InvoiceQuery());
+    }
+
+    @Override
+    public List<Invoice> findByStatus(Status status) {
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(status);
+        return search(query);
+    }
+
+    @Override
+    public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(status);
+        query.setDueDateTo(date.minusDays(1));
+        return findByDueDate(query);
+    }
+
+    @Override
+    public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+        if (predecessorId == null || predecessorId <= 0)
+            return Optional.empty();
+        Chunk chunk = chunks.get(predecessorId >>> CHUNK_BITS);
+        int successorId = chunk == null ? 0 : chunk.successorId(predecessorId & ROW_MASK);
+        return successorId == 0 ? Optional.empty() : findById(successorId);
+    }
+
+    @Override
+    public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+        InvoiceQuery query = new InvoiceQuery();
+        query.setDueDateFrom(from);
+        query.setDueDateTo(to);
+        return findByDueDate(query);
+    }
+
+    //Collects the matching ids of the due dates in the range of the query and returns their invoices in id order
+    private List<Invoice> findByDueDate(InvoiceQuery query) {
+        Filter filter = new Filter(query, ANY_CURRENCY);
+        int[] ids = new int[16];
+        int size = 0;
+        for (Map.Entry<Integer, DueDateBucket> entry : dueDates(filter).entrySet()) {
+            DueDateBucket bucket = entry.getValue();
+            bucket.lock.readLock().lock();
+            try {
+                for (int i = 0; i < bucket.size; i++) {
+                    if (!matches(filter, entry.getKey(), bucket.ids[i]))
+                        continue;
+                    if (size == ids.length)
+                        ids = Arrays.copyOf(ids, size * 2);
+                    ids[size++] = bucket.ids[i];
+                }
+            } finally {
+                bucket.lock.readLock().unlock();
+            }
+        }
+        Arrays.sort(ids, 0, size);
+        List<Invoice> invoices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            invoices.add(new InvoiceView(chunks.get(ids[i] >>> CHUNK_BITS), ids[i]));
+        return invoices;
+    }
+
+    @Override
+    public List<Invoice> search(InvoiceQuery query) {
+        query.checkCurrency();
+        Filter filter = new Filter(query, query.getCurrency() == null ? ANY_CURRENCY :
+                currencyIndexes.getOrDefault(query.getCurrency(), UNUSED_CURRENCY));
+        List<Invoice> invoices = new ArrayList<>();
+        if (query.getLimit() <= 0)
+            return invoices;
+        switch (query.getSortField()) {
+            case ID -> {
+                //Ids are visited in the requested order, so the scan stops once the page is full
+                Integer afterId = query.getAfterId();
+                if (query.isDescending())
+                    scanDescending(afterId == null ? maxId.get() : afterId - 1L, filter, query.getLimit(), invoices);
+                else
+                    scanAscending(afterId == null ? 1 : afterId + 1L, filter, query.getLimit(), invoices);
+            }
+            case DUE_DATE -> searchByDueDate(filter, query, invoices);
+            case AMOUNT -> searchByAmount(filter, query, invoices);
+        }
+        return invoices;
+    }
+
+    //Visits the due dates of the range in the requested order, so the scan stops once the page is full
+    private void searchByDueDate(Filter filter, InvoiceQuery query, List<Invoice> invoices) {
+        NavigableMap<Integer, DueDateBucket> range = dueDates(filter);
+        if (query.isDescending())
+            range = range.descendingMap();
+        LocalDate afterKey = (LocalDate) query.getAfterKey();
+        if (afterKey != null)
+            range = range.tailMap(Math.toIntExact(afterKey.toEpochDay()), true);
+        for (Map.Entry<Integer, DueDateBucket> entry : range.entrySet()) {
+            int day = entry.getKey();
+            DueDateBucket bucket = entry.getValue();
+            bucket.lock.readLock().lock();
+            try {
+                //Within the day of the keyset position, only ids after the position are visited
+                boolean after = afterKey != null && afterKey.toEpochDay() == day;
+                if (query.isDescending()) {
+                    for (int i = after ? bucket.indexOf(query.getAfterId()) - 1 : bucket.size - 1; i >= 0; i--)
+                        if (collect(filter, day, bucket.ids[i], query.getLimit(), invoices))
+                            return;
+                } else {
+                    int i = after ? bucket.indexOf(query.getAfterId()) : 0;
+                    if (after && i < bucket.size && bucket.ids[i] == query.getAfterId())
+                        i++;
+                    for (; i < bucket.size; i++)
+                        if (collect(filter, day, bucket.ids[i], query.getLimit(), invoices))
+                            return;
+                }
+            } finally {
+                bucket.lock.readLock().unlock();
+            }
+        }
+    }
+
+    //Adds the invoice if it matches and is still due on the given day, returns true once the page is full
+    private boolean collect(Filter filter, int day, int id, int limit, List<Invoice> invoices) {
+        if (!matches(filter, day, id))
+            return false;
+        invoices.add(new InvoiceView(chunks.get(id >>> CHUNK_BITS), id));
+        return invoices.size() == limit;
+    }
+
+    //Ids of a due date bucket may briefly remain in the bucket of their previous due date, such ids are skipped
+    private boolean matches(Filter filter, int day, int id) {
+        Chunk chunk = chunks.get(id >>> CHUNK_BITS);
+        int row = id & ROW_MASK;
+        return chunk.dueDate[row] == day && filter.matches(chunk, row);
+    }
+
+    //The amount sort selects the first rows of the page among the due dates of the query's range if it has one, or
+    //among the rows of the status otherwise
+    private void searchByAmount(Filter filter, InvoiceQuery query, List<Invoice> invoices) {
+        Page page = new Page(query.getLimit(), query.isDescending());
+        if (query.getAfterKey() != null)
+            page.after((Long) query.getAfterKey(), query.getAfterId());
+        if (query.getDueDateFrom() != null || query.getDueDateTo() != null) {
+            for (Map.Entry<Integer, DueDateBucket> entry : dueDates(filter).entrySet()) {
+                DueDateBucket bucket = entry.getValue();
+                bucket.lock.readLock().lock();
+                try {
+                    for (int i = 0; i < bucket.size; i++) {
+                        int id = bucket.ids[i];
+                        if (matches(filter, entry.getKey(), id))
+                            page.offer(chunks.get(id >>> CHUNK_BITS).amount[id & ROW_MASK], id);
+                    }
+                } finally {
+                    bucket.lock.readLock().unlock();
+                }
+            }
+        } else {
+            int lastChunk = maxId.get() >>> CHUNK_BITS;
+            for (int c = 0; c <= lastChunk; c++) {
+                Chunk chunk = chunks.get(c);
+                if (chunk == null)
+                    continue;
+                for (int word = 0; word < WORDS; word++)
+                    for (long rows = chunk.rows(filter.status, word); rows != 0; rows &= rows - 1) {
+                        int row = word << 6 | Long.numberOfTrailingZeros(rows);
+                        if (filter.matches(chunk, row))
+                            page.offer(chunk.amount[row], c << CHUNK_BITS | row);
+                    }
+            }
+        }
+        for (int id : page.ids())
+            findById(id).ifPresent(invoices::add);
+    }
+
+    //Due date buckets in the range of the filter, only those of pending invoices if it selects them
+    private NavigableMap<Integer, DueDateBucket> dueDates(Filter filter) {
+        int from = (int) Math.max(filter.fromDay, Integer.MIN_VALUE);
+        int to = (int) Math.min(filter.toDay, Integer.MAX_VALUE);
+        ConcurrentSkipListMap<Integer, DueDateBucket> index =
+                filter.status == PENDING ? pendingDueDateIndex : dueDateIndex;
+        return from > to ? Collections.emptyNavigableMap() : index.subMap(from, true, to, true);
+    }
+
+    //Visits ids from the given one upwards, which may lie outside of the range of ids
+    private void scanAscending(long first, Filter filter, int limit, List<Invoice> invoices) {
+        int lastId = maxId.get();
+        if (first > lastId || limit <= 0)
+            return;
+        int fromId = (int) Math.max(first, 1);
+        for (int c = fromId >>> CHUNK_BITS; c <= lastId >>> CHUNK_BITS; c++) {
+            Chunk chunk = chunks.get(c);
+            if (chunk == null)
+                continue;
+            int from = c == fromId >>> CHUNK_BITS ? fromId & ROW_MASK : 0;
+            for (int word = from >>> 6; word < WORDS; word++) {
+                long rows = chunk.rows(filter.status, word);
+                if (word == from >>> 6)
+                    rows &= -1L << from;
+                for (; rows != 0; rows &= rows - 1) {
+                    int row = word << 6 | Long.numberOfTrailingZeros(rows);
+                    if (!filter.matches(chunk, row))
+                        continue;
+                    invoices.add(new InvoiceView(chunk, c << CHUNK_BITS | row));
+                    if (invoices.size() == limit)
+                        return;
+                }
+            }
+        }
+    }
+
+    private void scanDescending(long first, Filter filter, int limit, List<Invoice> invoices) {
+        if (first <= 0 || limit <= 0)
+            return;
+        int fromId = (int) Math.min(first, maxId.get());
+        for (int c = fromId >>> CHUNK_BITS; c >= 0; c--) {
+            Chunk chunk = chunks.get(c);
+            if (chunk == null)
+                continue;
+            int from = c == fromId >>> CHUNK_BITS ? fromId & ROW_MASK : ROW_MASK;
+            for (int word = from >>> 6; word >= 0; word--) {
+                long rows = chunk.rows(filter.status, word);
+                if (word == from >>> 6)
+                    rows &= -1L >>> ~from;
+                while (rows != 0) {
+                    int bit = Long.SIZE - 1 - Long.numberOfLeadingZeros(rows);
+                    rows &= ~(1L << bit);
+                    int row = word << 6 | bit;
+                    if (!filter.matches(chunk, row))
+                        continue;
+                    invoices.add(new InvoiceView(chunk, c << CHUNK_BITS | row));
+                    if (invoices.size() == limit)
+                        return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void insert(Invoice invoice) {
+        int id = checkId(invoice.getId());
+        Chunk chunk = chunk(id);
+        int row = id & ROW_MASK;
+        chunk.lock.lock();
+        try {
+            if (chunk.status(row) != ABSENT)
+                throw new IllegalArgumentException("Invoice already exists with id " + id);
+            chunk.predecessorId[row] = invoice.getPredecessorId() == null ? 0 : invoice.getPredecessorId();
+            chunk.write(row, invoice, currencyIndex(invoice.getCurrency()));
+        } finally {
+            chunk.lock.unlock();
+        }
+        reindex(id, ABSENT, 0, chunk.status(row), chunk.dueDate[row]);
+        count.increment();
+        maxId.accumulateAndGet(id, Math::max);
+        //Links never change, so the successor column of the predecessor is written once
+        if (invoice.getPredecessorId() != null) {
+            int predecessorId = checkId(invoice.getPredecessorId());
+            INTS.setRelease(chunk(predecessorId).successorId, predecessorId & ROW_MASK, id);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Invoice> invoices) {
+        invoices.forEach(this::insert);
+    }
+
+    //Views of this store have already written their changes to the columns, other invoices are copied into them
+    @Override
+    public void update(Invoice invoice) {
+        int id = checkId(invoice.getId());
+        Chunk chunk = chunks.get(id >>> CHUNK_BITS);
+        int row = id & ROW_MASK;
+        if (chunk == null || chunk.status(row) == ABSENT)
+            throw new IllegalArgumentException("No invoice found with id " + id);
+        if (invoice instanceof InvoiceView view && view.owner() == this)
+            return;
+        byte previousStatus;
+        int previousDueDate;
+        chunk.lock.lock();
+        try {
+            previousStatus = chunk.status(row);
+            previousDueDate = chunk.dueDate[row];
+            chunk.write(row, invoice, currencyIndex(invoice.getCurrency()));
+        } finally {
+            chunk.lock.unlock();
+        }
+        reindex(id, previousStatus, previousDueDate, chunk.status(row), chunk.dueDate[row]);
+    }
+
+    @Override
+    public void updateAll(Collection<Invoice> invoices) {
+        invoices.forEach(this::update);
+    }
+
+    @Override
+    public long count() {
+        return count.sum();
+    }
+
+    @Override
+    public int maxId() {
+        return maxId.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count.sum() == 0;
+    }
+
+    private static int checkId(Integer id) {
+        if (id == null || id <= 0)
+            throw new IllegalArgumentException("Invalid invoice id " + id);
+        return id;
+    }
+
+    private Chunk chunk(int id) {
+        int index = id >>> CHUNK_BITS;
+        Chunk chunk = chunks.get(index);
+        if (chunk == null && !chunks.compareAndSet(index, null, chunk = new Chunk()))
+            chunk = chunks.get(index);
+        return chunk;
+    }
+
+    private static DueDateBucket dueDateBucket(ConcurrentSkipListMap<Integer, DueDateBucket> index, int day) {
+        DueDateBucket bucket = index.get(day);
+        return bucket != null ? bucket : index.computeIfAbsent(day, added -> new DueDateBucket());
+    }
+
+    //Moves the id between the due date buckets after a change of its status or due date, a previous status of
+    //ABSENT means it was inserted. The id is added to its new bucket before it leaves the old one, so that searches
+    //do not miss it meanwhile.
+    private void reindex(int id, byte previousStatus, int previousDay, byte status, int day) {
+        boolean inserted = previousStatus == ABSENT;
+        if (inserted || previousDay != day)
+            dueDateBucket(dueDateIndex, day).add(id);
+        if (status == PENDING && (previousStatus != PENDING || previousDay != day))
+            dueDateBucket(pendingDueDateIndex, day).add(id);
+        if (!inserted && previousDay != day)
+            dueDateIndex.get(previousDay).remove(id);
+        if (previousStatus == PENDING && (status != PENDING || previousDay != day))
+            pendingDueDateIndex.get(previousDay).remove(id);
+    }
+
+    private short currencyIndex(Currency currency) {
+        Short index = currencyIndexes.get(currency);
+        return index != null ? index : addCurrency(currency);
+    }
+
+    private short addCurrency(Currency currency) {
+        currencyLock.lock();
+        try {
+            return currencyIndexes.computeIfAbsent(currency, added -> {
+                currencies.add(added);
+                return (short) (currencies.size() - 1);
+            });
+        } finally {
+            currencyLock.unlock();
+        }
+    }
+
+    //Columns of CHUNK_SIZE consecutive ids, rows without an invoice have the ABSENT status
+    private static final class Chunk {
+
+        //Serialises inserts and updates of the rows of the chunk, readers do not take it
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final long[] amount = new long[CHUNK_SIZE];
+
+        private final long[] paidAmount = new long[CHUNK_SIZE];
+
+        private final int[] dueDate = new int[CHUNK_SIZE];
+
+        private final int[] predecessorId = new int[CHUNK_SIZE];
+
+        private final int[] successorId = new int[CHUNK_SIZE];
+
+        private final short[] currency = new short[CHUNK_SIZE];
+
+        private final byte[] status = new byte[CHUNK_SIZE];
+
+        //Bitmap of the rows of each status, by status ordinal
+        private final long[][] statusRows = new long[STATUSES.length][WORDS];
+
+        private byte status(int row) {
+            return (byte) BYTES.getAcquire(status, row);
+        }
+
+        //The row is added to the bitmap of its new status before it leaves the old one, like due date buckets.
+        //Returns the previous status.
+        private byte status(int row, Status value) {
+            byte previous = status(row);
+            LONGS.getAndBitwiseOrRelease(statusRows[value.ordinal()], row >>> 6, 1L << row);
+            BYTES.setRelease(status, row, (byte) (value.ordinal() + 1));
+            if (previous != ABSENT && previous != value.ordinal() + 1)
+                LONGS.getAndBitwiseAndRelease(statusRows[previous - 1], row >>> 6, ~(1L << row));
+            return previous;
+        }
+
+        //Rows of the given word which may have the status, all rows if the status is ABSENT
+        private long rows(byte value, int word) {
+            return value == ABSENT ? -1L : (long) LONGS.getAcquire(statusRows[value - 1], word);
+        }
+
+        private int successorId(int row) {
+            return (int) INTS.getAcquire(successorId, row);
+        }
+
+        //The status is written last, as it makes a new row visible
+        private void write(int row, Invoice invoice, short currencyIndex) {
+            amount[row] = invoice.getAmount();
+            paidAmount[row] = invoice.getPaidAmount();
+            dueDate[row] = Math.toIntExact(invoice.getDueDate().toEpochDay());
+            currency[row] = currencyIndex;
+            status(row, invoice.getStatus());
+        }
+    }
+
+    //Ids of one due date in ascending order. Ids are mostly inserted in ascending order, so adding one usually
+    //appends it
+    private static final class DueDateBucket {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int[] ids = new int[4];
+
+        private int size;
+
+        private void add(int id) {
+            lock.writeLock().lock();
+            try {
+                int index = size == 0 || ids[size - 1] < id ? size : indexOf(id);
+                if (index < size && ids[index] == id)
+                    return;
+                if (size == ids.length)
+                    ids = Arrays.copyOf(ids, size * 2);
+                System.arraycopy(ids, index, ids, index + 1, size - index);
+                ids[index] = id;
+                size++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(int id) {
+            lock.writeLock().lock();
+            try {
+                int index = indexOf(id);
+                if (index < size && ids[index] == id)
+                    System.arraycopy(ids, index + 1, ids, index, --size - index);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        //Index of the id, or of the first greater id if the bucket does not contain it
+        private int indexOf(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    //Conditions of a query on the columns, so that rows are only turned into invoices once they match
+    private static final class Filter {
+
+        private final byte status;
+
+        private final long fromDay;
+
+        private final long toDay;
+
+        private final short currency;
+
+        private final long minAmount;
+
+        private final long maxAmount;
+
+        private Filter(InvoiceQuery query, short currency) {
+            status = query.getStatus() == null ? ABSENT : (byte) (query.getStatus().ordinal() + 1);
+            fromDay = query.getDueDateFrom() == null ? Long.MIN_VALUE : query.getDueDateFrom().toEpochDay();
+            toDay = query.getDueDateTo() == null ? Long.MAX_VALUE : query.getDueDateTo().toEpochDay();
+            this.currency = currency;
+            minAmount = query.getMinAmount() == null ? Long.MIN_VALUE : query.getMinAmount();
+            maxAmount = query.getMaxAmount() == null ? Long.MAX_VALUE : query.getMaxAmount();
+        }
+
+        private boolean matches(Chunk chunk, int row) {
+            byte rowStatus = chunk.status(row);
+            if (rowStatus == ABSENT || (status != ABSENT && rowStatus != status))
+                return false;
+            int dueDate = chunk.dueDate[row];
+            long amount = chunk.amount[row];
+            return dueDate >= fromDay && dueDate <= toDay
+                    && (currency == ANY_CURRENCY || chunk.currency[row] == currency)
+                    && amount >= minAmount && amount <= maxAmount;
+        }
+    }
+
+    //The first rows in (sort key, id) order offered to it, kept as a heap whose root is the last row of the page
+    private static final class Page {
+
+        private final int limit;
+
+        private final boolean descending;
+
+        private long[] keys = new long[16];
+
+        private int[] ids = new int[16];
+
+        private int size;
+
+        //Keyset position, only rows after it are accepted
+        private boolean after;
+
+        private long afterKey;
+
+        private int afterId;
+
+        private Page(int limit, boolean descending) {
+            this.limit = limit;
+            this.descending = descending;
+        }
+
+        private void after(long key, int id) {
+            after = true;
+            afterKey = key;
+            afterId = id;
+        }
+
+        private void offer(long key, int id) {
+            if (limit <= 0 || (after && compare(key, id, afterKey, afterId) <= 0))
+                return;
+            if (size < limit) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                set(size, key, id);
+                siftUp(size++);
+            } else if (compare(key, id, keys[0], ids[0]) < 0) {
+                set(0, key, id);
+                siftDown(0, size);
+            }
+        }
+
+        //Returns the ids of the page in sort order, taking the heap apart
+        private int[] ids() {
+            for (int last = size - 1; last > 0; last--) {
+                swap(0, last);
+                siftDown(0, last);
+            }
+            return Arrays.copyOf(ids, size);
+        }
+
+        private int compare(long key, int id, long otherKey, int otherId) {
+            int order = key != otherKey ? Long.compare(key, otherKey) : Integer.compare(id, otherId);
+            return descending ? -order : order;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (compare(keys[index], ids[index], keys[parent], ids[parent]) <= 0)
+                    return;
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index, int end) {
+            while (true) {
+                int largest = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < end; child++)
+                    if (compare(keys[child], ids[child], keys[largest], ids[largest]) > 0)
+                        largest = child;
+                if (largest == index)
+                    return;
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private void set(int index, long key, int id) {
+            keys[index] = key;
+            ids[index] = id;
+        }
+
+        private void swap(int i, int j) {
+            long key = keys[i];
+            int id = ids[i];
+            set(i, keys[j], ids[j]);
+            set(j, key, id);
+        }
+    }
+
+    //Flyweight over one row of the columns, views are created per lookup and hold no invoice state of their own.
+    //Id and predecessor never change. Timestamps are not kept by this store, as in the memory store.
+    private final class InvoiceView extends Invoice {
+
+        private final Chunk chunk;
+
+        private final int row;
+
+        private final Integer id;
+
+        private InvoiceView(Chunk chunk, int id) {
+            this.chunk = chunk;
+            this.row = id & ROW_MASK;
+            this.id = id;
+        }
+
+        private ColumnarInvoiceStore owner() {
+            return ColumnarInvoiceStore.this;
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Integer id) {
+            throw new UnsupportedOperationException("The id of a stored invoice cannot be changed");
+        }
+
+        @Override
+        public long getAmount() {
+            return chunk.amount[row];
+        }
+
+        @Override
+        public void setAmount(long amount) {
+            chunk.amount[row] = amount;
+        }
+
+        @Override
+        public Currency getCurrency() {
+            return currencies.get(chunk.currency[row]);
+        }
+
+        @Override
+        public void setCurrency(Currency currency) {
+            chunk.currency[row] = currencyIndex(currency);
+        }
+
+        @Override
+        public LocalDate getDueDate() {
+            return LocalDate.ofEpochDay(chunk.dueDate[row]);
+        }
+
+        @Override
+        public void setDueDate(LocalDate dueDate) {
+            int previousDueDate = chunk.dueDate[row];
+            chunk.dueDate[row] = Math.toIntExact(dueDate.toEpochDay());
+            byte status = chunk.status(row);
+            reindex(id, status, previousDueDate, status, chunk.dueDate[row]);
+        }
+
+        @Override
+        public long getPaidAmount() {
+            return chunk.paidAmount[row];
+        }
+
+        @Override
+        public void setPaidAmount(long paidAmount) {
+            chunk.paidAmount[row] = paidAmount;
+        }
+
+        @Override
+        public Status getStatus() {
+            return STATUSES[chunk.status(row) - 1];
+        }
+
+        @Override
+        public void setStatus(Status status) {
+            int dueDate = chunk.dueDate[row];
+            reindex(id, chunk.status(row, status), dueDate, chunk.status(row), dueDate);
+        }
+
+        @Override
+        public Integer getPredecessorId() {
+            int predecessorId = chunk.predecessorId[row];
+            return predecessorId == 0 ? null : predecessorId;
+        }
+
+        @Override
+        public void setPredecessorId(Integer predecessorId) {
+            throw new UnsupportedOperationException("The predecessor of a stored invoice cannot be changed");
+        }
+    }
+}
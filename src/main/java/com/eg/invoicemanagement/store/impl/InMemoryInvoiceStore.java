@@ -0,0 +1,298 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceSortField;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@ConditionalOnProperty(name = "invoice.storage.mode", havingValue = "memory", matchIfMissing = true)
+public class InMemoryInvoiceStore implements InvoiceStore {
+
+    //Primary storage keyed by invoice id, each entry remembers the keys it is currently indexed under
+    private final ConcurrentHashMap<Integer, Entry> invoices = new ConcurrentHashMap<>();
+
+    //Ascending index of all invoice ids
+    private final ConcurrentSkipListSet<Integer> idIndex = new ConcurrentSkipListSet<>();
+
+    //Secondary index of invoice ids by status, ids are kept in ascending order
+    private final Map<Status, ConcurrentSkipListSet<Integer>> statusIndex = new EnumMap<>(Status.class);
+
+    //Secondary index of invoice ids by due date
+    private final ConcurrentSkipListMap<LocalDate, NavigableSet<Integer>> dueDateIndex =
+            new ConcurrentSkipListMap<>();
+
+    //Secondary index of invoice ids by status and due date
+    private final Map<Status, ConcurrentSkipListMap<LocalDate, NavigableSet<Integer>>> statusDueDateIndex =
+            new EnumMap<>(Status.class);
+
+    //Id of the invoice which replaced an overdue invoice by the id of the overdue invoice, links never change
+    private final ConcurrentHashMap<Integer, Integer> successorIndex = new ConcurrentHashMap<>();
+
+    //Secondary index of invoice ids by currency and amount, amounts are only ordered within their currency
+    private final ConcurrentHashMap<Currency, ConcurrentSkipListMap<Long, NavigableSet<Integer>>> amountIndex =
+            new ConcurrentHashMap<>();
+
+    public InMemoryInvoiceStore() {
+        //Index maps are created upfront for every status so that they are never modified after construction
+        for (Status status : Status.values()) {
+            statusIndex.put(status, new ConcurrentSkipListSet<>());
+            statusDueDateIndex.put(status, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @Override
+    public Optional<Invoice> findById(Integer id) {
+        Entry entry = invoices.get(id);
+        return entry == null ? Optional.empty() : Optional.of(entry.invoice());
+    }
+
+    @Override
+    public List<Invoice> findAllById(Collection<Integer> ids) {
+        return resolve(ids.stream()).toList();
+    }
+
+    @Override
+    public List<Invoice> findAll() {
+        return resolve(idIndex.stream()).toList();
+    }
+
+    @Override
+    public List<Invoice> findByStatus(Status status) {
+        return resolve(statusIndex.get(status).stream())
+                .filter(invoice -> status.equals(invoice.getStatus()))
+                .toList();
+    }
+
+    @Override
+    public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+        return resolve(statusDueDateIndex.get(status).headMap(date).values().stream().flatMap(Collection::stream))
+                .filter(invoice -> status.equals(invoice.getStatus()) && invoice.getDueDate().isBefore(date))
+                .toList();
+    }
+
+    @Override
+    public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+        Integer successorId = successorIndex.get(predecessorId);
+        return successorId == null ? Optional.empty() : findById(successorId);
+    }
+
+    @Override
+    public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+        return resolve(dueDateIndex.subMap(from, true, to, true).values().stream().flatMap(Collection::stream))
+                .filter(invoice -> !invoice.getDueDate().isBefore(from) && !invoice.getDueDate().isAfter(to))
+                .sorted(Comparator.comparing(Invoice::getId))
+                .toList();
+    }
+
+    @Override
+    public List<Invoice> search(InvoiceQuery query) {
+        query.checkCurrency();
+        List<Integer> candidates = narrowestRange(query);
+        if (candidates != null)
+            return resolve(candidates.stream())
+                    .filter(invoice -> query.matches(invoice) && query.isAfterPosition(invoice))
+                    .sorted(query.order())
+                    .limit(query.getLimit())
+                    .toList();
+        //The index of the sort field drives the iteration, remaining filters are applied to the visited invoices
+        Stream<Integer> ids = switch (query.getSortField()) {
+            case ID -> keyset(query.getStatus() == null ? idIndex : statusIndex.get(query.getStatus()), query);
+            case DUE_DATE -> keyset(query.getStatus() == null ? dueDateIndex :
+                            statusDueDateIndex.get(query.getStatus()),
+                    query.getDueDateFrom(), query.getDueDateTo(), query);
+            case AMOUNT -> keyset(amountIndex.getOrDefault(query.getCurrency(), new ConcurrentSkipListMap<>()),
+                    query.getMinAmount(), query.getMaxAmount(), query);
+        };
+        return resolve(ids).filter(query::matches).limit(query.getLimit()).toList();
+    }
+
+    //Walking the sort index visits about limit / selectivity invoices until the page is full, while the range of
+    //another filtered index holds selectivity * size ids, so the narrowest range of at most sqrt(limit * size) ids
+    //is collected and sorted instead, null means walking the sort index is cheaper
+    private List<Integer> narrowestRange(InvoiceQuery query) {
+        int size = invoices.size();
+        long budget = (long) Math.sqrt((double) Math.min(query.getLimit(), size) * size);
+        List<Integer> narrowest = null;
+        for (Stream<Integer> range : filteredRanges(query)) {
+            List<Integer> ids = range.limit(budget + 1).toList();
+            if (ids.size() <= budget) {
+                narrowest = ids;
+                budget = ids.size() - 1L;
+            }
+            if (budget < 0)
+                break;
+        }
+        return narrowest;
+    }
+
+    //Ranges of the indexed filters which the index of the sort field does not already cover
+    private List<Stream<Integer>> filteredRanges(InvoiceQuery query) {
+        List<Stream<Integer>> ranges = new ArrayList<>();
+        if (query.getSortField() != InvoiceSortField.DUE_DATE
+                && (query.getDueDateFrom() != null || query.getDueDateTo() != null))
+            ranges.add(range(query.getStatus() == null ? dueDateIndex : statusDueDateIndex.get(query.getStatus()),
+                    query.getDueDateFrom(), query.getDueDateTo()));
+        if (query.getSortField() != InvoiceSortField.AMOUNT
+                && (query.getMinAmount() != null || query.getMaxAmount() != null))
+            ranges.add(range(amountIndex.getOrDefault(query.getCurrency(), new ConcurrentSkipListMap<>()),
+                    query.getMinAmount(), query.getMaxAmount()));
+        if (query.getSortField() == InvoiceSortField.AMOUNT && query.getStatus() != null)
+            ranges.add(statusIndex.get(query.getStatus()).stream());
+        return ranges;
+    }
+
+    private static <K> Stream<Integer> range(NavigableMap<K, NavigableSet<Integer>> index, K from, K to) {
+        NavigableMap<K, NavigableSet<Integer>> range = index;
+        if (from != null)
+            range = range.tailMap(from, true);
+        if (to != null)
+            range = range.headMap(to, true);
+        return range.values().stream().flatMap(Collection::stream);
+    }
+
+    private Stream<Integer> keyset(NavigableSet<Integer> index, InvoiceQuery query) {
+        NavigableSet<Integer> ids = query.isDescending() ? index.descendingSet() : index;
+        if (query.getAfterId() != null)
+            ids = ids.tailSet(query.getAfterId(), false);
+        return ids.stream();
+    }
+
+    //Iterates the ids of the given range of a sorted index, skipping everything up to the query's keyset position
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<? super K>> Stream<Integer> keyset(NavigableMap<K, NavigableSet<Integer>> index,
+                                                             K from, K to, InvoiceQuery query) {
+        NavigableMap<K, NavigableSet<Integer>> range = index;
+        if (from != null)
+            range = range.tailMap(from, true);
+        if (to != null)
+            range = range.headMap(to, true);
+        if (query.isDescending())
+            range = range.descendingMap();
+        K afterKey = (K) query.getAfterKey();
+        if (afterKey != null)
+            range = range.tailMap(afterKey, true);
+        return range.entrySet().stream().flatMap(bucket -> {
+            NavigableSet<Integer> ids = query.isDescending() ? bucket.getValue().descendingSet() : bucket.getValue();
+            if (afterKey != null && afterKey.compareTo(bucket.getKey()) == 0)
+                ids = ids.tailSet(query.getAfterId(), false);
+            return ids.stream();
+        });
+    }
+
+    @Override
+    public void insert(Invoice invoice) {
+        invoices.compute(invoice.getId(), (id, existing) -> {
+            if (existing != null)
+                throw new IllegalArgumentException("Invoice already exists with id " + id);
+            idIndex.add(id);
+            return index(invoice);
+        });
+    }
+
+    @Override
+    public void insertAll(Collection<Invoice> invoices) {
+        invoices.forEach(this::insert);
+    }
+
+    //Fills an empty store on startup. The indexes are concurrent, so invoices are indexed in parallel.
+    public void load(Collection<Invoice> invoices) {
+        if (!isEmpty())
+            throw new IllegalStateException("Invoices can only be loaded into an empty store");
+        invoices.parallelStream().forEach(this::insert);
+    }
+
+    @Override
+    public void update(Invoice invoice) {
+        invoices.compute(invoice.getId(), (id, existing) -> {
+            if (existing == null)
+                throw new IllegalArgumentException("No invoice found with id " + id);
+            //Re-indexing is only needed when one of the indexed properties has changed
+            if (existing.status() == invoice.getStatus() && existing.dueDate().equals(invoice.getDueDate())
+                    && existing.currency().equals(invoice.getCurrency()) && existing.amount() == invoice.getAmount())
+                return existing.invoice() == invoice ? existing : new Entry(invoice, existing.status(),
+                        existing.dueDate(), existing.currency(), existing.amount());
+            unindex(existing, id);
+            return index(invoice);
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Invoice> invoices) {
+        invoices.forEach(this::update);
+    }
+
+    @Override
+    public long count() {
+        return invoices.mappingCount();
+    }
+
+    @Override
+    public int maxId() {
+        Integer maxId = idIndex.floor(Integer.MAX_VALUE);
+        return maxId == null ? 0 : maxId;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return invoices.isEmpty();
+    }
+
+    //Both index methods are invoked within compute() of the primary map, so they are serialised per invoice id
+    private Entry index(Invoice invoice) {
+        Integer id = invoice.getId();
+        statusIndex.get(invoice.getStatus()).add(id);
+        dueDateIndex.computeIfAbsent(invoice.getDueDate(), date -> new ConcurrentSkipListSet<>()).add(id);
+        statusDueDateIndex.get(invoice.getStatus())
+                .computeIfAbsent(invoice.getDueDate(), date -> new ConcurrentSkipListSet<>())
+                .add(id);
+        amountIndex.computeIfAbsent(invoice.getCurrency(), currency -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(invoice.getAmount(), amount -> new ConcurrentSkipListSet<>())
+                .add(id);
+        if (invoice.getPredecessorId() != null)
+            successorIndex.put(invoice.getPredecessorId(), id);
+        return new Entry(invoice, invoice.getStatus(), invoice.getDueDate(), invoice.getCurrency(),
+                invoice.getAmount());
+    }
+
+    //Empty buckets are intentionally retained, removing them could race with a concurrent insert
+    private void unindex(Entry entry, Integer id) {
+        statusIndex.get(entry.status()).remove(id);
+        remove(dueDateIndex, entry.dueDate(), id);
+        remove(statusDueDateIndex.get(entry.status()), entry.dueDate(), id);
+        remove(amountIndex.get(entry.currency()), entry.amount(), id);
+    }
+
+    private static <K> void remove(Map<K, NavigableSet<Integer>> index, K key, Integer id) {
+        NavigableSet<Integer> ids = index.get(key);
+        if (ids != null)
+            ids.remove(id);
+    }
+
+    //Index lookups may briefly observe ids whose primary entry is not yet visible, such ids are skipped
+    private Stream<Invoice> resolve(Stream<Integer> ids) {
+        return ids.map(invoices::get).filter(Objects::nonNull).map(Entry::invoice);
+    }
+
+    private record Entry(Invoice invoice, Status status, LocalDate dueDate, Currency currency, long amount) {
+    }
+}
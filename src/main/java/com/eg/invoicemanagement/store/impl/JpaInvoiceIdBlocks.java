@@ -0,0 +1,60 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.model.InvoiceIdBlock;
+import com.eg.invoicemanagement.store.InvoiceIdBlocks;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+//Id counter in the invoice_id_block table. Every reservation commits on its own, so the row is only locked for the
+//duration of one update even when ids are reserved within another transaction.
+@Repository
+@ConditionalOnProperty(name = "invoice.storage.mode", havingValue = "jpa")
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class JpaInvoiceIdBlocks implements InvoiceIdBlocks {
+
+    private static final String NAME = "invoice";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //The update locks the row until the commit, which serialises the reservations of all instances
+    @Override
+    public long reserve(int count) {
+        entityManager.createQuery("update InvoiceIdBlock b set b.nextId = b.nextId + :count where b.name = :name")
+                .setParameter("count", (long) count)
+                .setParameter("name", NAME)
+                .executeUpdate();
+        return nextId() - count;
+    }
+
+    @Override
+    public long last() {
+        return nextId() - 1;
+    }
+
+    //The counter is created by the first instance started on the database
+    @Override
+    public void reseed(int lastId) {
+        int updated = entityManager.createQuery("update InvoiceIdBlock b set b.nextId = :nextId " +
+                        "where b.name = :name and b.nextId < :nextId")
+                .setParameter("nextId", lastId + 1L)
+                .setParameter("name", NAME)
+                .executeUpdate();
+        if (updated == 0 && entityManager.find(InvoiceIdBlock.class, NAME) == null) {
+            InvoiceIdBlock block = new InvoiceIdBlock();
+            block.setName(NAME);
+            block.setNextId(lastId + 1L);
+            entityManager.persist(block);
+        }
+    }
+
+    private long nextId() {
+        return entityManager.createQuery("select b.nextId from InvoiceIdBlock b where b.name = :name", Long.class)
+                .setParameter("name", NAME)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,230 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.repository.InvoiceRepository;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+//Database backed store, writes are sent in JDBC batches
+@Repository
+@ConditionalOnProperty(name = "invoice.storage.mode", havingValue = "jpa")
+@Transactional(readOnly = true)
+public class JpaInvoiceStore implements InvoiceStore {
+
+    //Updates are issued as plain SQL so that no entity has to be loaded and dirty-checked
+    private static final String UPDATE_SQL = "UPDATE invoice SET amount = ?, due_date = ?, paid_amount = ?, " +
+            "status = ?, updated_at = ? WHERE id = ?";
+
+    private final InvoiceRepository invoiceRepository;
+
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public JpaInvoiceStore(InvoiceRepository invoiceRepository, InvoiceProperties properties) {
+        this.invoiceRepository = invoiceRepository;
+        this.batchSize = properties.getStorage().getBatchSize();
+    }
+
+    @Override
+    public Optional<Invoice> findById(Integer id) {
+        return invoiceRepository.findById(id);
+    }
+
+    //Loads all invoices with one query, callers keep the number of ids bounded
+    @Override
+    public List<Invoice> findAllById(Collection<Integer> ids) {
+        Map<Integer, Invoice> found = invoiceRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Invoice::getId, Function.identity()));
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public List<Invoice> findAll() {
+        return invoiceRepository.findAllByOrderById();
+    }
+
+    @Override
+    public List<Invoice> findByStatus(Status status) {
+        return invoiceRepository.findByStatusOrderById(status);
+    }
+
+    @Override
+    public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+        return invoiceRepository.findByStatusAndDueDateBeforeOrderById(status, date);
+    }
+
+    @Override
+    public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+        return invoiceRepository.findByPredecessorId(predecessorId);
+    }
+
+    @Override
+    public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+        return invoiceRepository.findByDueDateBetweenOrderById(from, to);
+    }
+
+    @Override
+    public List<Invoice> search(InvoiceQuery query) {
+        query.checkCurrency();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Invoice> criteria = builder.createQuery(Invoice.class);
+        Root<Invoice> invoice = criteria.from(Invoice.class);
+        Path<Integer> id = invoice.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getStatus() != null)
+            predicates.add(builder.equal(invoice.get("status"), query.getStatus()));
+        if (query.getDueDateFrom() != null)
+            predicates.add(builder.greaterThanOrEqualTo(invoice.get("dueDate"), query.getDueDateFrom()));
+        if (query.getDueDateTo() != null)
+            predicates.add(builder.lessThanOrEqualTo(invoice.get("dueDate"), query.getDueDateTo()));
+        if (query.getCurrency() != null)
+            predicates.add(builder.equal(invoice.get("currency"), query.getCurrency()));
+        if (query.getMinAmount() != null)
+            predicates.add(builder.greaterThanOrEqualTo(invoice.get("amount"), query.getMinAmount()));
+        if (query.getMaxAmount() != null)
+            predicates.add(builder.lessThanOrEqualTo(invoice.get("amount"), query.getMaxAmount()));
+
+        //Keyset position: (sort key, id) strictly after the last invoice of the previous page
+        switch (query.getSortField()) {
+            case ID -> {
+                if (query.getAfterId() != null)
+                    predicates.add(after(builder, id, query.getAfterId(), query.isDescending()));
+                criteria.orderBy(order(builder, id, query.isDescending()));
+            }
+            case DUE_DATE -> keyset(builder, criteria, predicates, invoice.<LocalDate>get("dueDate"), id, query);
+            case AMOUNT -> keyset(builder, criteria, predicates, invoice.<Long>get("amount"), id, query);
+        }
+        criteria.select(invoice).where(predicates.toArray(Predicate[]::new));
+        return entityManager.createQuery(criteria).setMaxResults(query.getLimit()).getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<? super K>> void keyset(CriteriaBuilder builder, CriteriaQuery<Invoice> criteria,
+                                                          List<Predicate> predicates, Path<K> key,
+                                                          Path<Integer> id, InvoiceQuery query) {
+        if (query.getAfterKey() != null) {
+            K afterKey = (K) query.getAfterKey();
+            predicates.add(builder.or(after(builder, key, afterKey, query.isDescending()),
+                    builder.and(builder.equal(key, afterKey),
+                            after(builder, id, query.getAfterId(), query.isDescending()))));
+        }
+        criteria.orderBy(order(builder, key, query.isDescending()), order(builder, id, query.isDescending()));
+    }
+
+    private static <K extends Comparable<? super K>> Predicate after(CriteriaBuilder builder,
+                                                                     Expression<? extends K> path, K value,
+                                                                     boolean descending) {
+        return descending ? builder.lessThan(path, value) : builder.greaterThan(path, value);
+    }
+
+    private static jakarta.persistence.criteria.Order order(CriteriaBuilder builder, Expression<?> path,
+                                                            boolean descending) {
+        return descending ? builder.desc(path) : builder.asc(path);
+    }
+
+    @Override
+    @Transactional
+    public void insert(Invoice invoice) {
+        entityManager.persist(invoice);
+    }
+
+    //Inserts are grouped into JDBC batches by Hibernate, the persistence context is cleared after every batch
+    @Override
+    @Transactional
+    public void insertAll(Collection<Invoice> invoices) {
+        int count = 0;
+        for (Invoice invoice : invoices) {
+            entityManager.persist(invoice);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void update(Invoice invoice) {
+        updateAll(List.of(invoice));
+    }
+
+    @Override
+    @Transactional
+    public void updateAll(Collection<Invoice> invoices) {
+        entityManager.flush();
+        LocalDateTime now = LocalDateTime.now();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+                int count = 0;
+                for (Invoice invoice : invoices) {
+                    invoice.setUpdatedAt(now);
+                    statement.setLong(1, invoice.getAmount());
+                    statement.setDate(2, Date.valueOf(invoice.getDueDate()));
+                    statement.setLong(3, invoice.getPaidAmount());
+                    statement.setString(4, invoice.getStatus().name());
+                    statement.setTimestamp(5, Timestamp.valueOf(now));
+                    statement.setInt(6, invoice.getId());
+                    statement.addBatch();
+                    if (++count % batchSize == 0)
+                        statement.executeBatch();
+                }
+                if (count % batchSize != 0)
+                    statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public void writeAll(Collection<Invoice> inserted, Collection<Invoice> updated) {
+        insertAll(inserted);
+        updateAll(updated);
+    }
+
+    @Override
+    public long count() {
+        return invoiceRepository.count();
+    }
+
+    @Override
+    public int maxId() {
+        return invoiceRepository.findMaxId();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+}
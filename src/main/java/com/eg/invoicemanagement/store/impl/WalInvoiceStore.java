@@ -0,0 +1,224 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.wal.InvoiceSnapshot;
+import com.eg.invoicemanagement.store.wal.WriteAheadLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import lombok.extern.log4j.Log4j2;
+
+//Makes the in-memory store durable. Every change is appended to the write-ahead log before it is applied,
+//and snapshots of the whole store are taken periodically so that a restart only replays the log written since.
+@Log4j2
+public class WalInvoiceStore implements InvoiceStore {
+
+    private final InMemoryInvoiceStore delegate;
+
+    private final InvoiceProperties.Wal wal;
+
+    private final Path dir;
+
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    //Held shared by writes from logging a change until it is applied and exclusively while the log is rotated,
+    //so every change logged to the segments a snapshot replaces is contained in it
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService executor;
+
+    private WriteAheadLog writeAheadLog;
+
+    public WalInvoiceStore(InMemoryInvoiceStore delegate, InvoiceProperties properties) {
+        this.delegate = delegate;
+        this.wal = properties.getStorage().getWal();
+        this.dir = Path.of(wal.getDir());
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                properties.getThreads().factory("invoice-snapshot-"));
+    }
+
+    //Rebuilds the store from the latest snapshot and the log written after it. Only the last record of an invoice
+    //counts, so the log is folded into the snapshot first and every invoice is indexed once in one bulk load.
+    @PostConstruct
+    public void start() {
+        long started = System.currentTimeMillis();
+        List<Invoice> invoices = new ArrayList<>();
+        long fromSegment = InvoiceSnapshot.readLatest(dir, invoices::add).orElse(0);
+        int snapshotted = invoices.size();
+        Map<Integer, Invoice> logged = new HashMap<>();
+        long lastSegment = WriteAheadLog.replay(dir, fromSegment, invoice -> logged.put(invoice.getId(), invoice));
+        invoices.replaceAll(invoice -> {
+            Invoice recorded = logged.remove(invoice.getId());
+            return recorded == null ? invoice : apply(invoice, recorded);
+        });
+        invoices.addAll(logged.values());
+        delegate.load(invoices);
+        writeAheadLog = new WriteAheadLog(dir, lastSegment + 1, wal.getFsync(), wal.getFsyncInterval());
+        log.info("Recovered {} invoices ({} from snapshot) in {} ms", delegate.count(), snapshotted,
+                System.currentTimeMillis() - started);
+        long interval = wal.getSnapshotInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Invoice> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Invoice> findAllById(Collection<Integer> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Invoice> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Invoice> findByStatus(Status status) {
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+        return delegate.findByStatusAndDueDateBefore(status, date);
+    }
+
+    @Override
+    public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+        return delegate.findByPredecessorId(predecessorId);
+    }
+
+    @Override
+    public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+        return delegate.findByDueDateBetween(from, to);
+    }
+
+    @Override
+    public List<Invoice> search(InvoiceQuery query) {
+        return delegate.search(query);
+    }
+
+    @Override
+    public void insert(Invoice invoice) {
+        insertAll(List.of(invoice));
+    }
+
+    @Override
+    public void insertAll(Collection<Invoice> invoices) {
+        for (Invoice invoice : invoices)
+            if (delegate.findById(invoice.getId()).isPresent())
+                throw new IllegalArgumentException("Invoice already exists with id " + invoice.getId());
+        write(invoices, delegate::insertAll);
+    }
+
+    @Override
+    public void update(Invoice invoice) {
+        updateAll(List.of(invoice));
+    }
+
+    @Override
+    public void updateAll(Collection<Invoice> invoices) {
+        for (Invoice invoice : invoices)
+            if (delegate.findById(invoice.getId()).isEmpty())
+                throw new IllegalArgumentException("No invoice found with id " + invoice.getId());
+        write(invoices, delegate::updateAll);
+    }
+
+    //Changes are checked up front and group committed before they are applied, so the store never indexes a change
+    //which is not durable. Changes of an invoice are serialised by its lock, so they are logged in order.
+    private void write(Collection<Invoice> invoices, Consumer<Collection<Invoice>> change) {
+        rotationLock.readLock().lock();
+        try {
+            writeAheadLog.appendAll(invoices);
+            change.accept(invoices);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public int maxId() {
+        return delegate.maxId();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    //Rotates the log and writes the current state. Changes made while the snapshot is taken may or may not be
+    //contained in it, they are in the new segment either way and replaying them again yields the same state.
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            long segment;
+            rotationLock.writeLock().lock();
+            try {
+                segment = writeAheadLog.rotate();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            List<Invoice> invoices = delegate.findAll();
+            InvoiceSnapshot.write(dir, segment, invoices);
+            InvoiceSnapshot.deleteBefore(dir, segment);
+            writeAheadLog.deleteSegmentsBefore(segment);
+            log.info("Snapshot of {} invoices written in {} ms", invoices.size(),
+                    System.currentTimeMillis() - started);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            //The log is kept until a snapshot succeeds, so nothing is lost
+            log.error("Writing invoice snapshot failed : {}", e.getMessage());
+        }
+    }
+
+    //Records hold the complete state of an invoice except for the predecessor of legacy records, which never changes
+    private static Invoice apply(Invoice invoice, Invoice recorded) {
+        invoice.setAmount(recorded.getAmount());
+        invoice.setCurrency(recorded.getCurrency());
+        invoice.setPaidAmount(recorded.getPaidAmount());
+        invoice.setDueDate(recorded.getDueDate());
+        invoice.setStatus(recorded.getStatus());
+        return invoice;
+    }
+
+    //A final snapshot keeps the next startup from replaying the log
+    @PreDestroy
+    public void shutdown() throws IOException {
+        executor.shutdown();
+        snapshotQuietly();
+        writeAheadLog.close();
+    }
+}
@@ -0,0 +1,365 @@
+package com.eg.invoicemanagement.store.impl;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.wal.WriteAheadLog;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.log4j.Log4j2;
+
+//Serves invoices from a bounded in-memory cache and writes changes to the delegate store in coalesced batches.
+//Every change is appended to a local journal first, so that unflushed changes survive a crash, and a power loss as
+//well with the default fsync policy. Queries do not wait for a flush, they are answered by the delegate with the
+//invoices changed since the last flush laid over its results.
+@Log4j2
+public class WriteBehindInvoiceStore implements InvoiceStore {
+
+    private static final Comparator<Invoice> BY_ID = Comparator.comparing(Invoice::getId);
+
+    private final InvoiceStore delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final InvoiceProperties.WriteBehind writeBehind;
+
+    private final Path journalDir;
+
+    private final int flushSize;
+
+    private final long flushIntervalMillis;
+
+    //Size bounded cache with W-TinyLFU eviction, dirty invoices are additionally held in the dirty map
+    private final Cache<Integer, Invoice> cache;
+
+    //Invoices changed since the last flush, repeated changes of an invoice are coalesced into one entry
+    private final ConcurrentHashMap<Integer, Pending> dirty = new ConcurrentHashMap<>();
+
+    //Changes hold the read lock while journaled and marked dirty, a flush takes the write lock to rotate the
+    //journal and take its snapshot of the dirty map
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor;
+
+    private Timer flushTimer;
+
+    //Written with group commit, appending threads share one write and one force of the journal
+    private WriteAheadLog journal;
+
+    public WriteBehindInvoiceStore(InvoiceStore delegate, MeterRegistry meterRegistry, InvoiceProperties properties) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.writeBehind = properties.getStorage().getWriteBehind();
+        this.journalDir = Path.of(writeBehind.getJournalDir());
+        this.flushSize = writeBehind.getFlushSize();
+        this.flushIntervalMillis = writeBehind.getFlushInterval().toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(this.writeBehind.getCacheSize())
+                .recordStats()
+                .build();
+        this.executor = Executors.newSingleThreadScheduledExecutor(properties.getThreads().factory("invoice-flush-"));
+    }
+
+    @PostConstruct
+    public void start() {
+        replayJournal();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "invoices");
+        Gauge.builder("invoice.cache.dirty.entries", dirty, Map::size)
+                .description("Number of invoices waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("invoice.cache.flush.lag", this, WriteBehindInvoiceStore::getFlushLagMillis)
+                .description("Age of the oldest change which is not flushed yet")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("invoice.cache.flush").register(meterRegistry);
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Invoice> findById(Integer id) {
+        Pending pending = dirty.get(id);
+        if (pending != null)
+            return Optional.of(pending.invoice());
+        Invoice cached = cache.getIfPresent(id);
+        if (cached != null)
+            return Optional.of(cached);
+        //Loaded outside of the cache's compute, which would pin a virtual thread during the query. Concurrent
+        //readers of an uncached invoice still end up sharing the instance which was cached first.
+        return delegate.findById(id).map(loaded -> {
+            Invoice current = cache.asMap().putIfAbsent(id, loaded);
+            return current == null ? loaded : current;
+        });
+    }
+
+    //Invoices which are neither dirty nor cached are loaded from the delegate together
+    @Override
+    public List<Invoice> findAllById(Collection<Integer> ids) {
+        List<Integer> uncached = ids.stream()
+                .filter(id -> !dirty.containsKey(id) && cache.getIfPresent(id) == null)
+                .toList();
+        if (!uncached.isEmpty())
+            canonical(delegate.findAllById(uncached));
+        return ids.stream().map(this::findById).flatMap(Optional::stream).toList();
+    }
+
+    //Queries are answered by the delegate, whose rows of the invoices changed since the last flush may be stale.
+    //Those are replaced by the changed invoices which match the query.
+    @Override
+    public List<Invoice> findAll() {
+        List<Invoice> changed = changed();
+        return overlay(changed, delegate.findAll().stream().map(this::cached).toList(), invoice -> true, BY_ID,
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Invoice> findByStatus(Status status) {
+        List<Invoice> changed = changed();
+        return overlay(changed, canonical(delegate.findByStatus(status)),
+                invoice -> status.equals(invoice.getStatus()), BY_ID, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+        List<Invoice> changed = changed();
+        return overlay(changed, canonical(delegate.findByStatusAndDueDateBefore(status, date)),
+                invoice -> status.equals(invoice.getStatus()) && invoice.getDueDate().isBefore(date), BY_ID,
+                Integer.MAX_VALUE);
+    }
+
+    //Links never change, so a successor found by the delegate is never stale
+    @Override
+    public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+        Optional<Invoice> changed = changed().stream()
+                .filter(invoice -> predecessorId.equals(invoice.getPredecessorId()))
+                .findFirst();
+        return changed.isPresent() ? changed : delegate.findByPredecessorId(predecessorId).map(this::cached);
+    }
+
+    @Override
+    public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+        List<Invoice> changed = changed();
+        return overlay(changed, canonical(delegate.findByDueDateBetween(from, to)),
+                invoice -> !invoice.getDueDate().isBefore(from) && !invoice.getDueDate().isAfter(to), BY_ID,
+                Integer.MAX_VALUE);
+    }
+
+    //Search results are usually only read, they are therefore not added to the cache. Every changed invoice may
+    //drop out of the delegate's page, which is therefore extended by their number.
+    @Override
+    public List<Invoice> search(InvoiceQuery query) {
+        List<Invoice> changed = changed();
+        if (changed.isEmpty())
+            return delegate.search(query).stream().map(this::cached).toList();
+        int limit = (int) Math.min((long) query.getLimit() + changed.size(), Integer.MAX_VALUE);
+        List<Invoice> stored = delegate.search(query.withLimit(limit)).stream().map(this::cached).toList();
+        return overlay(changed, stored, invoice -> query.matches(invoice) && query.isAfterPosition(invoice),
+                query.order(), query.getLimit());
+    }
+
+    @Override
+    public void insert(Invoice invoice) {
+        insertAll(List.of(invoice));
+    }
+
+    //Journaled as one group
+    @Override
+    public void insertAll(Collection<Invoice> invoices) {
+        invoices.forEach(invoice -> cache.put(invoice.getId(), invoice));
+        markDirty(invoices, true);
+    }
+
+    @Override
+    public void update(Invoice invoice) {
+        updateAll(List.of(invoice));
+    }
+
+    @Override
+    public void updateAll(Collection<Invoice> invoices) {
+        invoices.forEach(invoice -> cache.put(invoice.getId(), invoice));
+        markDirty(invoices, false);
+    }
+
+    //Invoices inserted since the last flush are not in the delegate yet. While a flush writes them they may
+    //briefly be counted twice.
+    @Override
+    public long count() {
+        long inserted = dirty.values().stream().filter(Pending::inserted).count();
+        return delegate.count() + inserted;
+    }
+
+    @Override
+    public int maxId() {
+        int changed = dirty.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        return Math.max(changed, delegate.maxId());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return dirty.isEmpty() && delegate.isEmpty();
+    }
+
+    public double getFlushLagMillis() {
+        long now = System.currentTimeMillis();
+        return dirty.values().stream().mapToLong(pending -> now - pending.markedAt()).max().orElse(0);
+    }
+
+    private void markDirty(Collection<Invoice> invoices, boolean inserted) {
+        if (invoices.isEmpty())
+            return;
+        journalLock.readLock().lock();
+        try {
+            journal.appendAll(invoices);
+            long now = System.currentTimeMillis();
+            for (Invoice invoice : invoices) {
+                dirty.merge(invoice.getId(), new Pending(invoice, inserted, now),
+                        (previous, current) -> new Pending(current.invoice(), previous.inserted(),
+                                previous.markedAt()));
+            }
+        } finally {
+            journalLock.readLock().unlock();
+        }
+        if (dirty.size() >= flushSize && flushRequested.compareAndSet(false, true))
+            executor.execute(this::flushQuietly);
+    }
+
+    //Writes all dirty invoices to the delegate store, changes made during the flush stay dirty
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<Pending> snapshot;
+            long segment;
+            journalLock.writeLock().lock();
+            try {
+                snapshot = new ArrayList<>(dirty.values());
+                segment = journal.rotate();
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+            if (!snapshot.isEmpty())
+                flushTimer.record(() -> write(snapshot));
+            //Journal segments before the rotation are now fully reflected in the delegate store
+            journal.deleteSegmentsBefore(segment);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    //Inserts and updates are written in one transaction. Were the inserts committed on their own, a failed update
+    //would leave them marked as inserts, and every later flush would fail on inserting them again.
+    private void write(List<Pending> snapshot) {
+        delegate.writeAll(snapshot.stream().filter(Pending::inserted).map(Pending::invoice).toList(),
+                snapshot.stream().filter(pending -> !pending.inserted()).map(Pending::invoice).toList());
+        for (Pending flushed : snapshot) {
+            //An invoice changed during the flush stays dirty, as an update since it now exists in the delegate
+            dirty.computeIfPresent(flushed.invoice().getId(), (id, current) -> current == flushed ? null :
+                    new Pending(current.invoice(), false, current.markedAt()));
+        }
+        log.debug("Flushed {} invoices", snapshot.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //Dirty invoices and their journals are kept, so the flush is retried on the next run
+            log.error("Flushing invoices failed : {}", e.getMessage());
+        }
+    }
+
+    private Invoice cached(Invoice invoice) {
+        Pending pending = dirty.get(invoice.getId());
+        if (pending != null)
+            return pending.invoice();
+        Invoice cached = cache.asMap().get(invoice.getId());
+        return cached == null ? invoice : cached;
+    }
+
+    //Taken before the delegate is queried, so that a change flushed meanwhile still replaces its stale row
+    private List<Invoice> changed() {
+        return dirty.values().stream().map(Pending::invoice).toList();
+    }
+
+    private static List<Invoice> overlay(List<Invoice> changed, List<Invoice> stored, Predicate<Invoice> filter,
+                                         Comparator<Invoice> order, int limit) {
+        if (changed.isEmpty())
+            return stored;
+        Set<Integer> changedIds = changed.stream().map(Invoice::getId).collect(Collectors.toSet());
+        return Stream.concat(stored.stream().filter(invoice -> !changedIds.contains(invoice.getId())),
+                        changed.stream().filter(filter))
+                .sorted(order)
+                .limit(limit)
+                .toList();
+    }
+
+    //Results which may be modified by the caller are made the cached instance of their invoice
+    private List<Invoice> canonical(List<Invoice> invoices) {
+        return invoices.stream().map(invoice -> {
+            Invoice cached = cached(invoice);
+            return cached != invoice ? cached : cache.asMap().merge(invoice.getId(), invoice, (current, loaded) ->
+                    current);
+        }).toList();
+    }
+
+    //Applies the latest journaled state of every invoice to the delegate store
+    private void replayJournal() {
+        Map<Integer, Invoice> latest = new LinkedHashMap<>();
+        long lastSegment = WriteAheadLog.replay(journalDir, 0, invoice -> latest.put(invoice.getId(), invoice));
+        if (!latest.isEmpty()) {
+            List<Invoice> inserts = new ArrayList<>();
+            List<Invoice> updates = new ArrayList<>();
+            for (Invoice invoice : latest.values())
+                (delegate.findById(invoice.getId()).isPresent() ? updates : inserts).add(invoice);
+            delegate.writeAll(inserts, updates);
+            log.info("Replayed {} journaled invoices", latest.size());
+        }
+        journal = new WriteAheadLog(journalDir, lastSegment + 1, writeBehind.getFsync(),
+                writeBehind.getFsyncInterval());
+        journal.deleteSegmentsBefore(lastSegment + 1);
+    }
+
+    //Writes queued changes before the application stops
+    @PreDestroy
+    public void shutdown() throws IOException {
+        executor.shutdown();
+        flush();
+        journal.close();
+    }
+
+    private record Pending(Invoice invoice, boolean inserted, long markedAt) {
+    }
+}
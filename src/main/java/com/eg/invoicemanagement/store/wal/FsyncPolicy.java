@@ -0,0 +1,14 @@
+package com.eg.invoicemanagement.store.wal;
+
+//Defines when appended log records are forced to the storage device
+public enum FsyncPolicy {
+
+    //Every group of appended records is forced before the appending callers return
+    ALWAYS,
+
+    //Records are forced periodically, a power loss may lose the records of the last interval
+    INTERVAL,
+
+    //Forcing is left to the operating system
+    NONE
+}
@@ -0,0 +1,88 @@
+package com.eg.invoicemanagement.store.wal;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.zip.CRC32C;
+import lombok.experimental.UtilityClass;
+
+//Fixed size binary representation of an invoice used by the write-ahead log and snapshots.
+//Layout: crc (int), id (int), amount (long), paid amount (long), due date epoch day (int), status (byte),
+//currency code (3 ASCII bytes), predecessor id (int, 0 for none). Amounts are in minor units of the currency.
+//Records written before the predecessor id was added have the same layout without it and are still decoded, the
+//checksum tells which of the two layouts a record has.
+@UtilityClass
+public class InvoiceRecordCodec {
+
+    private static final int CURRENCY_CODE_LENGTH = 3;
+
+    private static final int LEGACY_PAYLOAD_SIZE = Integer.BYTES + Long.BYTES * 2 + Integer.BYTES + Byte.BYTES +
+            CURRENCY_CODE_LENGTH;
+
+    private static final int PAYLOAD_SIZE = LEGACY_PAYLOAD_SIZE + Integer.BYTES;
+
+    public static final int RECORD_SIZE = Integer.BYTES + PAYLOAD_SIZE;
+
+    private static final int LEGACY_RECORD_SIZE = Integer.BYTES + LEGACY_PAYLOAD_SIZE;
+
+    private static final int NO_PREDECESSOR = 0;
+
+    private static final Status[] STATUSES = Status.values();
+
+    public static void encode(Invoice invoice, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + Integer.BYTES);
+        buffer.putInt(invoice.getId());
+        buffer.putLong(invoice.getAmount());
+        buffer.putLong(invoice.getPaidAmount());
+        buffer.putInt((int) invoice.getDueDate().toEpochDay());
+        buffer.put((byte) invoice.getStatus().ordinal());
+        String currencyCode = invoice.getCurrency().getCurrencyCode();
+        for (int i = 0; i < CURRENCY_CODE_LENGTH; i++)
+            buffer.put((byte) currencyCode.charAt(i));
+        buffer.putInt(invoice.getPredecessorId() == null ? NO_PREDECESSOR : invoice.getPredecessorId());
+        buffer.putInt(start, crc(buffer, start + Integer.BYTES, PAYLOAD_SIZE));
+    }
+
+    //Returns null if the buffer does not contain a complete and intact record, e.g. the torn tail of a crashed write
+    public static Invoice decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < LEGACY_RECORD_SIZE)
+            return null;
+        int crc = buffer.getInt(start);
+        boolean legacy;
+        if (buffer.remaining() >= RECORD_SIZE && crc == crc(buffer, start + Integer.BYTES, PAYLOAD_SIZE))
+            legacy = false;
+        else if (crc == crc(buffer, start + Integer.BYTES, LEGACY_PAYLOAD_SIZE))
+            legacy = true;
+        else
+            return null;
+        buffer.position(start + Integer.BYTES);
+        Invoice invoice = new Invoice();
+        invoice.setId(buffer.getInt());
+        invoice.setAmount(buffer.getLong());
+        invoice.setPaidAmount(buffer.getLong());
+        invoice.setDueDate(LocalDate.ofEpochDay(buffer.getInt()));
+        byte status = buffer.get();
+        if (status < 0 || status >= STATUSES.length)
+            return null;
+        invoice.setStatus(STATUSES[status]);
+        byte[] currencyCode = new byte[CURRENCY_CODE_LENGTH];
+        buffer.get(currencyCode);
+        invoice.setCurrency(Currency.getInstance(new String(currencyCode, StandardCharsets.US_ASCII)));
+        if (!legacy) {
+            int predecessorId = buffer.getInt();
+            invoice.setPredecessorId(predecessorId == NO_PREDECESSOR ? null : predecessorId);
+        }
+        return invoice;
+    }
+
+    private static int crc(ByteBuffer buffer, int payloadStart, int payloadSize) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(payloadStart, payloadSize));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,135 @@
+package com.eg.invoicemanagement.store.wal;
+
+import com.eg.invoicemanagement.model.Invoice;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+
+//Binary snapshot of all invoices, named after the write-ahead log segment from which replay continues.
+//Layout: magic (int), version (byte), segment (long), count (long), followed by count invoice records.
+@Log4j2
+@UtilityClass
+public class InvoiceSnapshot {
+
+    private static final int MAGIC = 0x494E5653;
+
+    //Version 2 stores amounts in minor units together with the currency, version 3 adds the predecessor id
+    private static final byte VERSION = 3;
+
+    //Oldest version whose records can still be decoded
+    private static final byte MIN_VERSION = 2;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES * 2;
+
+    private static final String PREFIX = "snapshot-";
+
+    private static final String SUFFIX = ".bin";
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    //Writes to a temporary file which is moved in place once complete, so a crash never leaves a partial snapshot
+    public static void write(Path dir, long segment, Collection<Invoice> invoices) {
+        Path target = dir.resolve(PREFIX + segment + SUFFIX);
+        Path temp = dir.resolve(PREFIX + segment + SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            buffer.putInt(MAGIC).put(VERSION).putLong(segment).putLong(invoices.size());
+            for (Invoice invoice : invoices) {
+                if (buffer.remaining() < InvoiceRecordCodec.RECORD_SIZE)
+                    drain(channel, buffer);
+                InvoiceRecordCodec.encode(invoice, buffer);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write invoice snapshot " + target, e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write invoice snapshot " + target, e);
+        }
+    }
+
+    //Passes the invoices of the latest snapshot to the consumer and returns the segment to continue replay from
+    public static OptionalLong readLatest(Path dir, Consumer<Invoice> consumer) {
+        List<Path> snapshots = snapshotFiles(dir);
+        if (snapshots.isEmpty())
+            return OptionalLong.empty();
+        Path file = snapshots.get(snapshots.size() - 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.remaining() < HEADER_SIZE || mapped.getInt() != MAGIC)
+                throw new IllegalStateException("Invalid invoice snapshot " + file);
+            byte version = mapped.get();
+            if (version < MIN_VERSION || version > VERSION)
+                throw new IllegalStateException("Unsupported version " + version + " of invoice snapshot " + file);
+            long segment = mapped.getLong();
+            long count = mapped.getLong();
+            for (long i = 0; i < count; i++) {
+                Invoice invoice = InvoiceRecordCodec.decode(mapped);
+                if (invoice == null)
+                    throw new IllegalStateException("Corrupt record " + i + " in invoice snapshot " + file);
+                consumer.accept(invoice);
+            }
+            return OptionalLong.of(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read invoice snapshot " + file, e);
+        }
+    }
+
+    //Deletes the snapshots older than the given one
+    public static void deleteBefore(Path dir, long segment) {
+        for (Path file : snapshotFiles(dir)) {
+            if (segmentOf(file) < segment) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.error("Unable to delete invoice snapshot {} : {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private static List<Path> snapshotFiles(Path dir) {
+        if (!Files.isDirectory(dir))
+            return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(InvoiceSnapshot::segmentOf))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list invoice snapshots", e);
+        }
+    }
+
+    private static long segmentOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,323 @@
+package com.eg.invoicemanagement.store.wal;
+
+import com.eg.invoicemanagement.model.Invoice;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.log4j.Log4j2;
+
+//Append-only log of invoice states split into numbered segment files.
+//Appending threads only encode their records into a shared buffer, a single writer thread writes everything
+//buffered with one write and at most one force (group commit) and then releases all threads waiting on it.
+@Log4j2
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path dir;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //Signalled when records are buffered for the writer
+    private final Condition appended = lock.newCondition();
+
+    //Signalled when the writer has completed a group of records
+    private final Condition completed = lock.newCondition();
+
+    private final Thread writer;
+
+    //Records appended since the writer took the last group, swapped with the spare buffer by the writer
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private long appendedSequence;
+
+    private long completedSequence;
+
+    private long segment;
+
+    private FileChannel channel;
+
+    private long lastForce = System.nanoTime();
+
+    private boolean unforced;
+
+    //Set while the writer works on a group outside the lock
+    private boolean writing;
+
+    private boolean closed;
+
+    private IOException failure;
+
+    public WriteAheadLog(Path dir, long segment, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.dir = dir;
+        this.segment = segment;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        try {
+            Files.createDirectories(dir);
+            this.channel = open(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open write-ahead log in " + dir, e);
+        }
+        this.writer = new Thread(this::writeLoop, "invoice-wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void append(Invoice invoice) {
+        appendAll(List.of(invoice));
+    }
+
+    //Returns once the records are written, and forced as well with the ALWAYS policy
+    public void appendAll(Collection<Invoice> invoices) {
+        if (invoices.isEmpty())
+            return;
+        lock.lock();
+        try {
+            checkOpen();
+            ensureCapacity(invoices.size() * InvoiceRecordCodec.RECORD_SIZE);
+            //Invoices are encoded under the lock, so the log order of an invoice matches the order of its changes
+            for (Invoice invoice : invoices)
+                InvoiceRecordCodec.encode(invoice, buffer);
+            long sequence = ++appendedSequence;
+            appended.signal();
+            awaitCompleted(sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Makes everything appended so far durable and continues with a new segment, whose number is returned.
+    //Segments before the returned one are no longer needed once a snapshot of the current state is written.
+    public long rotate() {
+        lock.lock();
+        try {
+            checkOpen();
+            awaitIdle();
+            channel.force(false);
+            channel.close();
+            channel = open(++segment);
+            unforced = false;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to rotate write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSegment() {
+        lock.lock();
+        try {
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Deletes the segments before the given one
+    public void deleteSegmentsBefore(long segment) {
+        for (Path file : segmentFiles(dir)) {
+            if (segmentOf(file) < segment) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.error("Unable to delete write-ahead log segment {} : {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            awaitIdle();
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    //Passes every intact record of the segments starting with the given one to the consumer in log order and
+    //returns the number of the last segment found. Reading a segment stops at a torn or corrupt record, which
+    //can only be the tail of a write that was never acknowledged.
+    public static long replay(Path dir, long fromSegment, Consumer<Invoice> consumer) {
+        long last = fromSegment - 1;
+        if (!Files.isDirectory(dir))
+            return last;
+        for (Path file : segmentFiles(dir)) {
+            long segment = segmentOf(file);
+            if (segment < fromSegment)
+                continue;
+            last = segment;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() == 0)
+                    continue;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Invoice invoice;
+                while ((invoice = InvoiceRecordCodec.decode(mapped)) != null)
+                    consumer.accept(invoice);
+                if (mapped.hasRemaining())
+                    log.warn("Ignoring {} bytes of torn or corrupt records at the end of {}", mapped.remaining(),
+                            file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to replay write-ahead log segment " + file, e);
+            }
+        }
+        return last;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer group;
+            long sequence;
+            FileChannel target;
+            lock.lock();
+            try {
+                while (buffer.position() == 0 && !closed) {
+                    if (fsyncPolicy == FsyncPolicy.INTERVAL && unforced) {
+                        long remaining = fsyncIntervalNanos - (System.nanoTime() - lastForce);
+                        if (remaining <= 0)
+                            break;
+                        appended.awaitNanos(remaining);
+                    } else {
+                        appended.awaitUninterruptibly();
+                    }
+                }
+                if (buffer.position() == 0 && closed)
+                    return;
+                group = buffer;
+                buffer = spare;
+                writing = true;
+                sequence = appendedSequence;
+                target = channel;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                group.flip();
+                while (group.hasRemaining())
+                    target.write(group);
+                force(target, group.limit() > 0);
+            } catch (IOException e) {
+                log.error("Writing the write-ahead log failed : {}", e.getMessage());
+                error = e;
+            }
+            group.clear();
+            lock.lock();
+            try {
+                spare = group;
+                completedSequence = sequence;
+                writing = false;
+                if (error != null)
+                    failure = error;
+                completed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void force(FileChannel target, boolean written) throws IOException {
+        unforced |= written;
+        if (!unforced || fsyncPolicy == FsyncPolicy.NONE)
+            return;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS || System.nanoTime() - lastForce >= fsyncIntervalNanos) {
+            target.force(false);
+            lastForce = System.nanoTime();
+            unforced = false;
+        }
+    }
+
+    private void awaitCompleted(long sequence) {
+        while (completedSequence < sequence && failure == null)
+            completed.awaitUninterruptibly();
+        checkOpen();
+    }
+
+    //Waits until everything appended is written and the writer no longer uses the current segment
+    private void awaitIdle() {
+        while ((completedSequence < appendedSequence || writing) && failure == null)
+            completed.awaitUninterruptibly();
+        checkOpen();
+    }
+
+    private void checkOpen() {
+        if (failure != null)
+            throw new UncheckedIOException("Write-ahead log is unusable after a failed write", failure);
+        if (closed)
+            throw new IllegalStateException("Write-ahead log is closed");
+    }
+
+    //Grows the buffer if needed, the spare buffer is grown on its next use
+    private void ensureCapacity(int length) {
+        if (buffer.remaining() >= length)
+            return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(dir.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static List<Path> segmentFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WriteAheadLog::segmentOf))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list write-ahead log segments", e);
+        }
+    }
+
+    private static long segmentOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
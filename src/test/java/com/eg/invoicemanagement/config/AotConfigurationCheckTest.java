@@ -0,0 +1,50 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.service.impl.OverdueScheduler;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.impl.ColumnarInvoiceStore;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.SpringProperties;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AotConfigurationCheckTest {
+
+    private final InvoiceProperties invoiceProperties = new InvoiceProperties();
+
+    @AfterEach
+    void tearDown() {
+        SpringProperties.setProperty(AotDetector.AOT_ENABLED, null);
+    }
+
+    @Test
+    void testMatchingConfiguration() {
+        SpringProperties.setFlag(AotDetector.AOT_ENABLED);
+        assertDoesNotThrow(() -> check(new InMemoryInvoiceStore()));
+        invoiceProperties.getStorage().setMode(InvoiceProperties.StorageMode.COLUMNAR);
+        assertDoesNotThrow(() -> check(new ColumnarInvoiceStore()));
+    }
+
+    //The build selected the memory store, which the storage mode given at startup cannot change
+    @Test
+    void testMismatchingConfiguration() {
+        invoiceProperties.getStorage().setMode(InvoiceProperties.StorageMode.COLUMNAR);
+        assertDoesNotThrow(() -> check(new InMemoryInvoiceStore()));
+
+        SpringProperties.setFlag(AotDetector.AOT_ENABLED);
+        assertThrows(IllegalStateException.class, () -> check(new InMemoryInvoiceStore()));
+        invoiceProperties.getStorage().setMode(InvoiceProperties.StorageMode.MEMORY);
+        invoiceProperties.getOverdue().getSchedule().setEnabled(true);
+        assertThrows(IllegalStateException.class, () -> check(new InMemoryInvoiceStore()));
+    }
+
+    private void check(InvoiceStore invoiceStore) {
+        new AotConfigurationCheck(invoiceStore, invoiceProperties,
+                new DefaultListableBeanFactory().getBeanProvider(OverdueScheduler.class)).check();
+    }
+}
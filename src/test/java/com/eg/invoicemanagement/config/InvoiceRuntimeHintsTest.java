@@ -0,0 +1,26 @@
+package com.eg.invoicemanagement.config;
+
+import com.eg.invoicemanagement.dto.response.InvoiceChainResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.service.impl.OverdueCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceRuntimeHintsTest {
+
+    //Responses returned as ResponseEntity<Object> can be written by a native image
+    @Test
+    void testJsonTypesAreRegistered() {
+        RuntimeHints hints = new RuntimeHints();
+        new InvoiceRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection().onType(InvoiceResponse.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(InvoiceChainResponse.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(OverdueCheckpoint.class).test(hints));
+    }
+}
@@ -1,10 +1,14 @@
 package com.eg.invoicemanagement.controller;
 
+import com.eg.invoicemanagement.constants.APIHeader;
 import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
 import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
 import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
 import com.eg.invoicemanagement.dto.response.InvoiceResponse;
 import com.eg.invoicemanagement.service.InvoiceService;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,14 +20,18 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -37,6 +45,9 @@ class InvoiceControllerTest {
     @Autowired
     WebApplicationContext webApplicationContext;
 
+    @Autowired
+    InvoiceEventBus invoiceEventBus;
+
     @BeforeEach
     public void setUp() {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
@@ -45,7 +56,7 @@ class InvoiceControllerTest {
     @Test
     void testCreateInvoice() throws Exception {
         InvoiceCreationRequest request = new InvoiceCreationRequest();
-        request.setAmount(1000.00);
+        request.setAmount(new BigDecimal("1000.00"));
         request.setDueDate(LocalDate.of(2024, 9, 2));
 
         Mockito.when(invoiceService.createInvoice(request)).thenReturn(new ResponseEntity<>(new InvoiceResponse(1),
@@ -61,7 +72,7 @@ class InvoiceControllerTest {
     @Test
     void testCreateInvoiceFailure() throws Exception {
         InvoiceCreationRequest request = new InvoiceCreationRequest();
-        request.setAmount(1000.00);
+        request.setAmount(new BigDecimal("1000.00"));
         request.setDueDate(LocalDate.of(2024, 9, 2));
 
         Mockito.when(invoiceService.createInvoice(request)).thenReturn(new ResponseEntity<>(new InvoiceResponse(1),
@@ -73,18 +84,73 @@ class InvoiceControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    //Invalid request, nothing is created as the batch is atomic by default
+    @Test
+    void testCreateInvoicesFailure() throws Exception {
+        mockMvc.perform(post("/invoices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"amount\":1000.00,\"due_date\":\"2024-09-02\"},{\"amount\":1000.00}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(1));
+    }
+
     @Test
     void testGetAllInvoices() throws Exception {
-        Mockito.when(invoiceService.getAllInvoices()).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        Mockito.when(invoiceService.getAllInvoices(new InvoiceSearchRequest())).thenReturn(new ResponseEntity<>(HttpStatus.OK));
         mockMvc.perform(get("/invoices"))
                 .andExpect(status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
     }
 
+    //Invalid request
+    @Test
+    void testGetAllInvoicesFailure() throws Exception {
+        mockMvc.perform(get("/invoices").param("status", "unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportInvoices() throws Exception {
+        MvcResult result = mockMvc.perform(get("/invoices/export").param("after_id", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+    }
+
+    @Test
+    void testGetAggregates() throws Exception {
+        mockMvc.perform(get("/invoices/aggregates"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isMap());
+    }
+
+    @Test
+    void testStreamEvents() throws Exception {
+        mockMvc.perform(get("/invoices/events").param("from_sequence", String.valueOf(invoiceEventBus.getHead())))
+                .andExpect(request().asyncStarted());
+    }
+
+    //An event id of an earlier boot
+    @Test
+    void testStreamEventsGone() throws Exception {
+        mockMvc.perform(get("/invoices/events").header(APIHeader.LAST_EVENT_ID, "-1"))
+                .andExpect(status().isGone());
+    }
+
+    //Events which have not been published yet
+    @Test
+    void testStreamEventsFailure() throws Exception {
+        mockMvc.perform(get("/invoices/events").param("from_sequence", String.valueOf(Long.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testDoPayment() throws Exception {
         InvoicePaymentRequest request = new InvoicePaymentRequest();
-        request.setAmount(200.00);
+        request.setAmount(new BigDecimal("200.00"));
 
         Mockito.when(invoiceService.doPayment(1, request)).thenReturn(new ResponseEntity<>(HttpStatus.NOT_FOUND));
 
@@ -98,7 +164,7 @@ class InvoiceControllerTest {
     @Test
     void testDoPaymentFailure() throws Exception {
         InvoicePaymentRequest request = new InvoicePaymentRequest();
-        request.setAmount(200.00);
+        request.setAmount(new BigDecimal("200.00"));
 
         when(invoiceService.doPayment(1, request)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
 
@@ -111,7 +177,7 @@ class InvoiceControllerTest {
     @Test
     void testProcessOverdue() throws Exception {
         OverdueProcessRequest request = new OverdueProcessRequest();
-        request.setLateFee(50.00);
+        request.setLateFee(new BigDecimal("50.00"));
         request.setOverdueDays(5);
 
         when(invoiceService.processOverdue(request)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
@@ -119,14 +185,14 @@ class InvoiceControllerTest {
         mockMvc.perform(put("/invoices/process-overdue")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"late_fee\":50.00,\"overdue_days\":5}"))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted());
     }
 
     //Invalid request
     @Test
     void testProcessOverdueFailure() throws Exception {
         OverdueProcessRequest request = new OverdueProcessRequest();
-        request.setLateFee(50.00);
+        request.setLateFee(new BigDecimal("50.00"));
         request.setOverdueDays(5);
 
         when(invoiceService.processOverdue(request)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
@@ -0,0 +1,152 @@
+package com.eg.invoicemanagement.controller;
+
+import com.eg.invoicemanagement.constants.APIHeader;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceEventResponse;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+class ReactiveInvoiceControllerTest {
+
+    private static final String DUE_DATE = LocalDate.now().plusDays(30).toString();
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private InvoiceEventBus invoiceEventBus;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToApplicationContext(applicationContext).build();
+    }
+
+    @Test
+    void testCreateInvoice() {
+        webTestClient.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\":1000.00,\"due_date\":\"" + DUE_DATE + "\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isNumber();
+    }
+
+    @Test
+    void testCreateInvoiceFailure() {
+        webTestClient.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\":1000.00}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("The invoice due date cannot be null");
+    }
+
+    @Test
+    void testGetAllInvoicesIsPaginated() {
+        List<Integer> ids = createInvoices(3);
+
+        webTestClient.get().uri("/invoices?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(APIHeader.NEXT_CURSOR)
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+        assertEquals(3, ids.size());
+    }
+
+    @Test
+    void testExportInvoices() {
+        List<Integer> ids = createInvoices(3);
+
+        String body = webTestClient.get().uri("/invoices/export?after_id=" + ids.get(0))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertNotNull(body);
+        String[] lines = body.split("\n");
+        assertTrue(lines[0].startsWith("{\"id\":" + ids.get(1) + ","));
+        assertTrue(lines[1].startsWith("{\"id\":" + ids.get(2) + ","));
+    }
+
+    @Test
+    void testStreamEvents() {
+        long head = invoiceEventBus.getHead();
+        List<Integer> ids = createInvoices(2);
+
+        List<ServerSentEvent<InvoiceEventResponse>> events = webTestClient.get()
+                .uri("/invoices/events?from_sequence=" + head)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<InvoiceEventResponse>>() {
+                })
+                .getResponseBody()
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertNotNull(events);
+        assertEquals(String.valueOf(head), events.get(0).id());
+        assertEquals("created", events.get(1).event());
+        assertEquals(ids.get(1), events.get(1).data().getInvoiceId());
+    }
+
+    @Test
+    void testStreamEventsFailure() {
+        webTestClient.get().uri("/invoices/events?from_sequence=" + Long.MAX_VALUE)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testDoPayments() {
+        List<Integer> ids = createInvoices(1);
+
+        webTestClient.put().uri("/invoices/" + ids.get(0) + "/payments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\":0.50}")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/invoices/payments")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("invoice_id,amount\n" + ids.get(0) + ",10\n0,10\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.applied").isEqualTo(1)
+                .jsonPath("$.rejected").isEqualTo(1);
+    }
+
+    private List<Integer> createInvoices(int count) {
+        String invoice = "{\"amount\":100.00,\"due_date\":\"" + DUE_DATE + "\"}";
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            ndjson.append(invoice).append('\n');
+        InvoiceBatchResponse response = webTestClient.post().uri("/invoices/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson.toString())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(InvoiceBatchResponse.class).returnResult().getResponseBody();
+        assertNotNull(response);
+        return response.getIds();
+    }
+}
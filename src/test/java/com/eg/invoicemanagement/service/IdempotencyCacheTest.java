@@ -0,0 +1,110 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.service.impl.IdempotencyCache;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyCacheTest {
+
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(new InvoiceProperties());
+
+    @Test
+    void testConcurrentRetriesExecuteOnce() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyCache.execute("key", 1, BigDecimal.TEN, () -> {
+                        executions.incrementAndGet();
+                        return new ResponseEntity<>(HttpStatus.OK);
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<ResponseEntity<Object>> future : futures)
+                assertEquals(HttpStatus.OK, future.get().getStatusCode());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testFailedPaymentIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> idempotencyCache.execute("key", 1, BigDecimal.TEN, () -> {
+            throw new IllegalStateException("Store unavailable");
+        }));
+        assertEquals(HttpStatus.OK, idempotencyCache.execute("key", 1, BigDecimal.TEN,
+                () -> new ResponseEntity<>(HttpStatus.OK)).getStatusCode());
+    }
+
+    //A retry waiting for a payment which then fails runs the payment itself
+    @Test
+    void testWaitingRetryRunsAfterFailure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<ResponseEntity<Object>> failing = executor.submit(() ->
+                    idempotencyCache.execute("key", 1, BigDecimal.TEN, () -> {
+                        started.countDown();
+                        awaitQuietly(release);
+                        throw new IllegalStateException("Store unavailable");
+                    }));
+            started.await();
+            Future<ResponseEntity<Object>> retry = executor.submit(() ->
+                    idempotencyCache.execute("key", 1, BigDecimal.TEN, () -> new ResponseEntity<>(HttpStatus.OK)));
+            release.countDown();
+
+            assertThrows(ExecutionException.class, failing::get);
+            assertEquals(HttpStatus.OK, retry.get().getStatusCode());
+        }
+    }
+
+    //A request with the key of a reserved bulk payment waits for it and returns its result instead of paying again
+    @Test
+    void testReservation() throws Exception {
+        IdempotencyCache.Reservation reservation = idempotencyCache.reserve("key");
+        assertNull(idempotencyCache.reserve("key"));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<ResponseEntity<Object>> retry = executor.submit(() ->
+                    idempotencyCache.execute("key", 1, BigDecimal.TEN, () -> {
+                        throw new IllegalStateException("Payment applied twice");
+                    }));
+            reservation.complete(1, BigDecimal.TEN, new ResponseEntity<>(HttpStatus.OK));
+            assertEquals(HttpStatus.OK, retry.get().getStatusCode());
+        }
+        assertNull(idempotencyCache.reserve("key"));
+
+        //A released key is free again
+        idempotencyCache.reserve("other").release();
+        assertNotNull(idempotencyCache.reserve("other"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.exception.EventsUnavailableException;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.model.enums.InvoiceEventType;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceEventSubscriber;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceEventBusTest {
+
+    @Test
+    void testEventsAreReadInSequence() {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(new InvoiceProperties());
+        long first = invoiceEventBus.getHead();
+        Invoice invoice = invoice(1);
+        invoiceEventBus.created(invoice);
+        invoice.setPaidAmount(4_000);
+        invoiceEventBus.paymentApplied(invoice, Status.PENDING, 0);
+        invoice.setPaidAmount(10_000);
+        invoice.setStatus(Status.PAID);
+        invoiceEventBus.paymentApplied(invoice, Status.PENDING, 4_000);
+
+        List<InvoiceEvent> events = invoiceEventBus.read(first, 10);
+        assertEquals(List.of(InvoiceEventType.CREATED, InvoiceEventType.PAYMENT_APPLIED,
+                InvoiceEventType.PAYMENT_APPLIED, InvoiceEventType.STATUS_CHANGED), types(events));
+        for (int i = 0; i < events.size(); i++)
+            assertEquals(first + i, events.get(i).getSequence());
+        assertEquals(4_000, events.get(1).getPayment());
+        assertEquals(6_000, events.get(2).getPayment());
+        assertEquals(Status.PENDING, events.get(3).getPreviousStatus());
+        assertEquals(Status.PAID, events.get(3).getStatus());
+        assertEquals(first + 4, invoiceEventBus.getHead());
+
+        assertEquals(2, invoiceEventBus.read(first + 1, 2).size());
+        assertTrue(invoiceEventBus.read(first + 4, 10).isEmpty());
+    }
+
+    @Test
+    void testRolledOver() {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(new InvoiceProperties());
+        Invoice overdue = invoice(1);
+        overdue.setStatus(Status.VOID);
+        Invoice replacement = invoice(2);
+        replacement.setPredecessorId(1);
+        long first = invoiceEventBus.getHead();
+        invoiceEventBus.rolledOver(List.of(overdue), List.of(replacement));
+
+        List<InvoiceEvent> events = invoiceEventBus.read(first, 10);
+        assertEquals(List.of(InvoiceEventType.STATUS_CHANGED, InvoiceEventType.ROLLED_OVER), types(events));
+        assertEquals(Status.PENDING, events.get(0).getPreviousStatus());
+        assertEquals(1, events.get(1).getPredecessorId());
+    }
+
+    @Test
+    void testStart() {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(properties(4));
+        long first = invoiceEventBus.start(null);
+        assertEquals(first, invoiceEventBus.getOldest());
+        for (int id = 1; id <= 6; id++)
+            invoiceEventBus.created(invoice(id));
+
+        assertEquals(first + 6, invoiceEventBus.start(null));
+        assertEquals(first + 2, invoiceEventBus.start(first + 2));
+        assertEquals(first + 3, invoiceEventBus.start(null, first + 2));
+        assertEquals(first + 2, invoiceEventBus.getOldest());
+        assertThrows(IllegalArgumentException.class, () -> invoiceEventBus.start(first + 7));
+        assertThrows(IllegalArgumentException.class, () -> invoiceEventBus.start(-1L));
+        assertThrows(EventsUnavailableException.class, () -> invoiceEventBus.start(first + 1));
+    }
+
+    //An event id of an earlier boot does not resume at an unrelated event of this one
+    @Test
+    void testEventsOfEarlierBootAreUnavailable() {
+        InvoiceEventBus earlier = new InvoiceEventBus(new InvoiceProperties());
+        for (int id = 1; id <= 100; id++)
+            earlier.created(invoice(id));
+        long lastEventId = earlier.getHead() - 1;
+
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(new InvoiceProperties());
+        assertTrue(invoiceEventBus.getHead() > lastEventId);
+        assertThrows(EventsUnavailableException.class, () -> invoiceEventBus.start(0L));
+        invoiceEventBus.created(invoice(1));
+        assertThrows(EventsUnavailableException.class, () -> invoiceEventBus.start(null, lastEventId));
+    }
+
+    //Events which have been overwritten are not skipped silently
+    @Test
+    void testOverwrittenEventsAreUnavailable() {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(properties(4));
+        long first = invoiceEventBus.getHead();
+        invoiceEventBus.created(List.of(invoice(1), invoice(2), invoice(3), invoice(4), invoice(5)));
+
+        assertThrows(EventsUnavailableException.class, () -> invoiceEventBus.read(first, 10));
+        assertEquals(List.of(2, 3, 4, 5), invoiceEventBus.read(first + 1, 10).stream()
+                .map(InvoiceEvent::getInvoiceId).toList());
+    }
+
+    @Test
+    void testDisabled() {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getEvents().setEnabled(false);
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(properties);
+        long first = invoiceEventBus.getHead();
+        invoiceEventBus.created(invoice(1));
+
+        assertEquals(first, invoiceEventBus.getHead());
+        assertTrue(invoiceEventBus.read(first, 10).isEmpty());
+        Set<Thread> threads = Thread.getAllStackTraces().keySet();
+        try (InvoiceEventBus.Subscription ignored = invoiceEventBus.subscribe(null, events -> { })) {
+            assertTrue(threads.containsAll(Thread.getAllStackTraces().keySet()));
+        }
+    }
+
+    @Test
+    void testSubscriberReceivesEventsInBatches() throws InterruptedException {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(new InvoiceProperties());
+        long first = invoiceEventBus.getHead();
+        invoiceEventBus.created(List.of(invoice(1), invoice(2)));
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(5);
+        InvoiceEventSubscriber subscriber = events -> events.forEach(event -> {
+            received.add(event.getInvoiceId());
+            done.countDown();
+        });
+        try (InvoiceEventBus.Subscription ignored = invoiceEventBus.subscribe(first + 1, subscriber)) {
+            invoiceEventBus.created(List.of(invoice(3), invoice(4), invoice(5), invoice(6)));
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(2, 3, 4, 5, 6), received);
+    }
+
+    //Parked subscribers are woken when events are published, the wait interval only applies to reactive tails
+    @Test
+    void testSubscribersAreWokenOnPublish() throws InterruptedException {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getEvents().setWaitInterval(Duration.ofHours(1));
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(properties);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(200);
+        for (int s = 0; s < 4; s++)
+            invoiceEventBus.subscribe(null, events -> events.forEach(event -> {
+                received.add(event.getInvoiceId());
+                done.countDown();
+            }));
+        try {
+            for (int id = 1; id <= 50; id++) {
+                invoiceEventBus.created(invoice(id));
+                Thread.sleep(1);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            invoiceEventBus.shutdown();
+        }
+        assertEquals(200, received.size());
+    }
+
+    //A subscriber which falls behind by more than the buffer loses its subscription, publishers are not held back
+    @Test
+    void testSlowSubscriberIsOverrun() throws InterruptedException {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(properties(4));
+        CountDownLatch receiving = new CountDownLatch(1);
+        CountDownLatch published = new CountDownLatch(1);
+        CountDownLatch ended = new CountDownLatch(1);
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        invoiceEventBus.subscribe(null, new InvoiceEventSubscriber() {
+            @Override
+            public void onEvents(List<InvoiceEvent> events) {
+                receiving.countDown();
+                try {
+                    published.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                error.set(e);
+                ended.countDown();
+            }
+        });
+
+        invoiceEventBus.created(invoice(1));
+        assertTrue(receiving.await(10, TimeUnit.SECONDS));
+        for (int id = 2; id <= 10; id++)
+            invoiceEventBus.created(invoice(id));
+        published.countDown();
+
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertInstanceOf(EventsUnavailableException.class, error.get());
+    }
+
+    @Test
+    void testConcurrentPublishers() throws InterruptedException {
+        InvoiceEventBus invoiceEventBus = new InvoiceEventBus(new InvoiceProperties());
+        long first = invoiceEventBus.getHead();
+        int threads = 8;
+        int invoicesPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * invoicesPerThread;
+            executor.execute(() -> {
+                for (int i = 1; i <= invoicesPerThread; i++)
+                    invoiceEventBus.created(invoice(offset + i));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        List<InvoiceEvent> events = invoiceEventBus.read(first, threads * invoicesPerThread);
+        assertEquals(threads * invoicesPerThread, events.size());
+        assertEquals(threads * invoicesPerThread, events.stream().map(InvoiceEvent::getInvoiceId).distinct().count());
+    }
+
+    private static InvoiceProperties properties(int bufferSize) {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getEvents().setBufferSize(bufferSize);
+        return properties;
+    }
+
+    private static Invoice invoice(int id) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(LocalDate.now());
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static List<InvoiceEventType> types(List<InvoiceEvent> events) {
+        return events.stream().map(InvoiceEvent::getType).toList();
+    }
+}
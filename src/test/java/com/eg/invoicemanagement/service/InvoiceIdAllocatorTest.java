@@ -0,0 +1,137 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.store.InvoiceIdBlocks;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceIdAllocatorTest {
+
+    @Test
+    void testSeededFromStore() {
+        InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+        Invoice invoice = new Invoice();
+        invoice.setId(41);
+        invoice.setDueDate(LocalDate.now());
+        invoice.setStatus(Status.PENDING);
+        invoiceStore.insert(invoice);
+
+        InvoiceIdAllocator allocator = new InvoiceIdAllocatorImpl(invoiceStore);
+        assertEquals(42, allocator.nextId());
+    }
+
+    @Test
+    void testReserveBlock() {
+        InvoiceIdAllocator allocator = new InvoiceIdAllocatorImpl(new InMemoryInvoiceStore());
+        assertEquals(1, allocator.reserve(10));
+        assertEquals(11, allocator.nextId());
+        assertThrows(IllegalArgumentException.class, () -> allocator.reserve(0));
+    }
+
+    @Test
+    void testExhaustedIdSpaceKeepsFailing() {
+        InvoiceIdAllocator allocator = new InvoiceIdAllocatorImpl(new InMemoryInvoiceStore());
+        allocator.reseed(Integer.MAX_VALUE - 5);
+        assertThrows(IllegalStateException.class, () -> allocator.reserve(10));
+        assertThrows(IllegalStateException.class, () -> allocator.reserve(10));
+        assertEquals(Integer.MAX_VALUE - 4, allocator.reserve(5));
+        assertThrows(IllegalStateException.class, allocator::nextId);
+    }
+
+    @Test
+    void testReseedNeverMovesBackwards() {
+        InvoiceIdAllocator allocator = new InvoiceIdAllocatorImpl(new InMemoryInvoiceStore());
+        allocator.reseed(100);
+        allocator.reseed(50);
+        assertEquals(101, allocator.nextId());
+    }
+
+    @Test
+    void testInstancesSharingTheDatabaseAllocateDistinctIds() throws InterruptedException {
+        InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+        Invoice invoice = new Invoice();
+        invoice.setId(41);
+        invoice.setDueDate(LocalDate.now());
+        invoice.setStatus(Status.PENDING);
+        invoiceStore.insert(invoice);
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getStorage().setBatchSize(100);
+        SharedIdBlocks idBlocks = new SharedIdBlocks();
+        InvoiceIdAllocator first = new InvoiceIdAllocatorImpl(invoiceStore, Optional.of(idBlocks), properties);
+        InvoiceIdAllocator second = new InvoiceIdAllocatorImpl(invoiceStore, Optional.of(idBlocks), properties);
+
+        assertEquals(42, first.nextId());
+        assertEquals(142, second.nextId());
+        //Reservations larger than a block get a block of their own
+        assertEquals(242, first.reserve(150));
+        assertEquals(43, first.nextId());
+        //Ids allocated after lastId() are greater, even if the current block has ids left
+        assertEquals(391, first.lastId());
+        assertEquals(392, first.nextId());
+
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            InvoiceIdAllocator allocator = t % 2 == 0 ? first : second;
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    ids.add(i % 7 == 0 ? allocator.reserve(3) : allocator.nextId());
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    void testConcurrentAllocationIsUnique() throws InterruptedException {
+        InvoiceIdAllocator allocator = new InvoiceIdAllocatorImpl(new InMemoryInvoiceStore());
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    ids.add(allocator.nextId());
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(80_000, ids.size());
+    }
+
+    //Counter in a database shared by several instances
+    private static final class SharedIdBlocks implements InvoiceIdBlocks {
+
+        private final AtomicLong nextId = new AtomicLong(1);
+
+        @Override
+        public long reserve(int count) {
+            return nextId.getAndAdd(count);
+        }
+
+        @Override
+        public long last() {
+            return nextId.get() - 1;
+        }
+
+        @Override
+        public void reseed(int lastId) {
+            nextId.accumulateAndGet(lastId + 1L, Math::max);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Currency;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InvoiceMapperTest {
+
+    //Configured like the ObjectMapper of Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void testResponseIsMapped() {
+        InvoiceResponse response = InvoiceMapper.toResponse(invoice(Currency.getInstance("USD")));
+
+        assertEquals(7, response.getId());
+        assertEquals(new BigDecimal("123.45"), response.getAmount());
+        assertEquals(new BigDecimal("20.05"), response.getPaidAmount());
+        assertEquals("USD", response.getCurrency());
+        assertEquals(LocalDate.of(2024, 2, 29), response.getDueDate());
+        assertEquals("pending", response.getStatus());
+        assertNull(response.getPredecessorId());
+    }
+
+    @Test
+    void testWrittenJsonMatchesResponse() throws Exception {
+        for (Currency currency : new Currency[]{Currency.getInstance("USD"), Currency.getInstance("JPY")}) {
+            for (Integer predecessorId : new Integer[]{null, 3}) {
+                Invoice invoice = invoice(currency);
+                invoice.setPredecessorId(predecessorId);
+                StringWriter json = new StringWriter();
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+                    InvoiceMapper.write(invoice, generator);
+                }
+
+                assertEquals(objectMapper.writeValueAsString(InvoiceMapper.toResponse(invoice)), json.toString());
+            }
+        }
+    }
+
+    private static Invoice invoice(Currency currency) {
+        Invoice invoice = new Invoice();
+        invoice.setId(7);
+        invoice.setAmount(12_345);
+        invoice.setPaidAmount(2_005);
+        invoice.setCurrency(currency);
+        invoice.setDueDate(LocalDate.of(2024, 2, 29));
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+}
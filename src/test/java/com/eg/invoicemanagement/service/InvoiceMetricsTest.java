@@ -0,0 +1,100 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.PaymentOutcome;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceGauges;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
+import com.eg.invoicemanagement.service.impl.OverdueJobManager;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Currency;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvoiceMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InvoiceMetrics invoiceMetrics = new InvoiceMetrics(meterRegistry);
+
+    @Test
+    void testPaymentOutcomesAreCounted() {
+        invoiceMetrics.recordPayment(PaymentOutcome.APPLIED);
+        invoiceMetrics.recordPayment(PaymentOutcome.APPLIED);
+        invoiceMetrics.recordPayment(PaymentOutcome.NOT_FOUND);
+
+        assertEquals(2, meterRegistry.get("invoice.payments").tag("outcome", PaymentOutcome.APPLIED.getValue())
+                .counter().count());
+        assertEquals(1, meterRegistry.get("invoice.payments").tag("outcome", PaymentOutcome.NOT_FOUND.getValue())
+                .counter().count());
+    }
+
+    @Test
+    void testGaugesDescribeTheBook() {
+        InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+        invoiceStore.insert(invoice(1, 10_000, 2_500, Status.PENDING, Currency.getInstance("USD")));
+        invoiceStore.insert(invoice(2, 10_000, 0, Status.PENDING, Currency.getInstance("USD")));
+        invoiceStore.insert(invoice(3, 500, 0, Status.PENDING, Currency.getInstance("EUR")));
+        invoiceStore.insert(invoice(4, 10_000, 10_000, Status.PAID, Currency.getInstance("USD")));
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getMetrics().setRefreshInterval(Duration.ofDays(1));
+        //Aggregates are loaded in chunks of two invoices
+        properties.getExport().setChunkSize(2);
+        InvoiceAggregates invoiceAggregates = new InvoiceAggregates(invoiceStore, properties);
+        invoiceAggregates.load();
+        OverdueProcessingEngine engine = new OverdueProcessingEngine(invoiceStore,
+                new InvoiceIdAllocatorImpl(invoiceStore), new InvoiceLocks(), invoiceAggregates,
+                new InvoiceEventBus(properties), properties);
+        OverdueJobManager manager = new OverdueJobManager(engine, new ObjectMapper(), invoiceMetrics, properties);
+        InvoiceGauges invoiceGauges = new InvoiceGauges(invoiceAggregates, manager, meterRegistry, properties);
+        try {
+            invoiceGauges.start();
+            invoiceGauges.refresh();
+
+            assertEquals(3, meterRegistry.get("invoice.count").tag("status", Status.PENDING.getValue()).gauge()
+                    .value());
+            assertEquals(1, meterRegistry.get("invoice.count").tag("status", Status.PAID.getValue()).gauge()
+                    .value());
+            assertEquals(175.0, meterRegistry.get("invoice.receivable.outstanding").tag("currency", "USD").gauge()
+                    .value());
+            assertEquals(5.0, meterRegistry.get("invoice.receivable.outstanding").tag("currency", "EUR").gauge()
+                    .value());
+            assertEquals(0.0, meterRegistry.get("invoice.overdue.throughput").gauge().value());
+
+            //Gauges follow the counters without another refresh
+            Invoice invoice = invoice(5, 1_000, 0, Status.PENDING, Currency.getInstance("USD"));
+            invoiceStore.insert(invoice);
+            invoiceAggregates.add(invoice);
+            assertEquals(4, meterRegistry.get("invoice.count").tag("status", Status.PENDING.getValue()).gauge()
+                    .value());
+            assertEquals(185.0, meterRegistry.get("invoice.receivable.outstanding").tag("currency", "USD").gauge()
+                    .value());
+        } finally {
+            invoiceGauges.shutdown();
+            manager.shutdown();
+            engine.shutdown();
+        }
+    }
+
+    private static Invoice invoice(int id, long amount, long paidAmount, Status status, Currency currency) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(amount);
+        invoice.setPaidAmount(paidAmount);
+        invoice.setDueDate(LocalDate.now().plusDays(1));
+        invoice.setStatus(status);
+        invoice.setCurrency(currency);
+        return invoice;
+    }
+}
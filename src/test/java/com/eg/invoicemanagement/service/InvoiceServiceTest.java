@@ -1,13 +1,45 @@
 package com.eg.invoicemanagement.service;
 
 
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.constants.APIHeader;
 import com.eg.invoicemanagement.dto.request.InvoiceCreationRequest;
 import com.eg.invoicemanagement.dto.request.InvoicePaymentRequest;
+import com.eg.invoicemanagement.dto.request.InvoiceSearchRequest;
 import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.dto.response.InvoiceBatchResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceChainResponse;
 import com.eg.invoicemanagement.dto.response.InvoiceResponse;
+import com.eg.invoicemanagement.dto.response.InvoiceTotalsResponse;
+import com.eg.invoicemanagement.model.InvoiceEvent;
+import com.eg.invoicemanagement.model.Money;
+import com.eg.invoicemanagement.model.enums.InvoiceEventType;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.dto.response.OverdueJobResponse;
+import com.eg.invoicemanagement.service.impl.IdempotencyCache;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
 import com.eg.invoicemanagement.service.impl.InvoiceServiceImpl;
+import com.eg.invoicemanagement.service.impl.OverdueJobManager;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.service.impl.PaymentProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,14 +47,43 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 public class InvoiceServiceTest {
 
-    private final InvoiceServiceImpl invoiceService = new InvoiceServiceImpl();
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    private final InvoiceIdAllocatorImpl invoiceIdAllocator = new InvoiceIdAllocatorImpl(invoiceStore);
+
+    private final InvoiceProperties invoiceProperties = new InvoiceProperties();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final InvoiceLocks invoiceLocks = new InvoiceLocks();
+
+    private final InvoiceMetrics invoiceMetrics = new InvoiceMetrics(new SimpleMeterRegistry());
+
+    private final InvoiceAggregates invoiceAggregates = new InvoiceAggregates(invoiceStore, invoiceProperties);
+
+    private final InvoiceEventBus invoiceEventBus = new InvoiceEventBus(invoiceProperties);
+
+    private final InvoiceServiceImpl invoiceService = new InvoiceServiceImpl(invoiceStore, invoiceIdAllocator,
+            new OverdueJobManager(new OverdueProcessingEngine(invoiceStore, invoiceIdAllocator, invoiceLocks,
+                    invoiceAggregates, invoiceEventBus, invoiceProperties), objectMapper, invoiceMetrics,
+                    invoiceProperties),
+            new PaymentProcessor(invoiceStore, invoiceProperties, objectMapper, validator,
+                    new IdempotencyCache(invoiceProperties), invoiceLocks, invoiceMetrics, invoiceAggregates,
+                    invoiceEventBus),
+            invoiceProperties, objectMapper, validator, invoiceMetrics, invoiceAggregates, invoiceEventBus);
 
     @BeforeAll
     public static void beforeAll() {
@@ -36,7 +97,7 @@ public class InvoiceServiceTest {
     @Test
     void testCreateInvoice() {
         InvoiceCreationRequest request = new InvoiceCreationRequest();
-        request.setAmount(1000.00);
+        request.setAmount(new BigDecimal("1000.00"));
         request.setDueDate(LocalDate.now().plusDays(1)); // Tomorrow
 
         ResponseEntity<Object> response = invoiceService.createInvoice(request);
@@ -44,40 +105,193 @@ public class InvoiceServiceTest {
         assertNotNull(response.getBody());
     }
 
+    @Test
+    void testCreateInvoices() {
+        testCreateInvoice();
+        InvoiceCreationRequest invalid = new InvoiceCreationRequest();
+        invalid.setAmount(BigDecimal.ZERO);
+        List<InvoiceCreationRequest> requests = List.of(creationRequest("100.00"), invalid, creationRequest("200.00"));
+
+        //An atomic batch with an invalid invoice creates nothing
+        ResponseEntity<Object> response = invoiceService.createInvoices(requests, true);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        InvoiceBatchResponse batchResponse = (InvoiceBatchResponse) response.getBody();
+        assertEquals(1, batchResponse.getErrors().size());
+        assertEquals(1, batchResponse.getErrors().get(0).getIndex());
+        assertEquals("The invoice amount must be more than 0, The invoice due date cannot be null",
+                batchResponse.getErrors().get(0).getMessage());
+        assertEquals(1, invoiceStore.count());
+
+        response = invoiceService.createInvoices(requests, false);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        batchResponse = (InvoiceBatchResponse) response.getBody();
+        assertEquals(List.of(2, 3), batchResponse.getIds());
+        assertEquals(1, batchResponse.getErrors().size());
+        assertEquals(20_000, invoiceStore.findById(3).orElseThrow().getAmount());
+    }
+
+    @Test
+    void testCreateInvoicesFromNdjson() {
+        String ndjson = "{\"amount\":100.00,\"due_date\":\"2030-01-01\"}\n" +
+                "{\"amount\":200.00,\"due_date\":\"2030-01-02\"}\n";
+        ResponseEntity<Object> response = invoiceService.createInvoices(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), true);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(List.of(1, 2), ((InvoiceBatchResponse) response.getBody()).getIds());
+
+        //The batch size is checked while reading
+        invoiceProperties.getBatch().setMaxSize(1);
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.createInvoices(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), true));
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.createInvoices(
+                new ByteArrayInputStream("{\"amount\":".getBytes(StandardCharsets.UTF_8)), true));
+    }
+
+    private static InvoiceCreationRequest creationRequest(String amount) {
+        InvoiceCreationRequest request = new InvoiceCreationRequest();
+        request.setAmount(new BigDecimal(amount));
+        request.setDueDate(LocalDate.now().plusDays(1));
+        return request;
+    }
+
     @Test
     void testGetAllInvoices() {
         testCreateInvoice(); // Create an invoice to test retrieval
-        ResponseEntity<Object> response = invoiceService.getAllInvoices();
+        ResponseEntity<Object> response = invoiceService.getAllInvoices(new InvoiceSearchRequest());
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         List<InvoiceResponse> invoices = (List<InvoiceResponse>) response.getBody();
         assertEquals(1, invoices.size());
     }
 
+    @Test
+    void testGetAllInvoicesPaginated() {
+        for (int i = 1; i <= 5; i++) {
+            InvoiceCreationRequest request = new InvoiceCreationRequest();
+            request.setAmount(BigDecimal.valueOf(100 * i));
+            request.setDueDate(LocalDate.now().plusDays(i));
+            invoiceService.createInvoice(request);
+        }
+
+        InvoiceSearchRequest searchRequest = new InvoiceSearchRequest();
+        searchRequest.setSort("amount");
+        searchRequest.setOrder("desc");
+        searchRequest.setCurrency("USD");
+        searchRequest.setMinAmount(new BigDecimal("200.00"));
+        searchRequest.setLimit(2);
+        ResponseEntity<Object> response = invoiceService.getAllInvoices(searchRequest);
+        List<InvoiceResponse> invoices = (List<InvoiceResponse>) response.getBody();
+        assertEquals(List.of(5, 4), invoices.stream().map(InvoiceResponse::getId).toList());
+
+        //Invoices created after the first page do not shift the next page
+        testCreateInvoice();
+        searchRequest.setCursor(response.getHeaders().getFirst(APIHeader.NEXT_CURSOR));
+        response = invoiceService.getAllInvoices(searchRequest);
+        invoices = (List<InvoiceResponse>) response.getBody();
+        assertEquals(List.of(3, 2), invoices.stream().map(InvoiceResponse::getId).toList());
+        assertNull(response.getHeaders().getFirst(APIHeader.NEXT_CURSOR));
+    }
+
+    @Test
+    void testGetAllInvoicesByAmountWithinCurrency() {
+        for (String currency : List.of("USD", "JPY", "USD", "JPY")) {
+            InvoiceCreationRequest request = creationRequest("500");
+            request.setCurrency(Currency.getInstance(currency));
+            invoiceService.createInvoice(request);
+        }
+
+        InvoiceSearchRequest searchRequest = new InvoiceSearchRequest();
+        searchRequest.setSort("amount");
+        searchRequest.setLimit(1);
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getAllInvoices(searchRequest));
+        searchRequest.setSort(null);
+        searchRequest.setMaxAmount(new BigDecimal("500"));
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getAllInvoices(searchRequest));
+
+        //500 JPY is 500 minor units and 500 USD 50000, so only the yen invoices are found
+        searchRequest.setSort("amount");
+        searchRequest.setCurrency("JPY");
+        searchRequest.setMaxAmount(new BigDecimal("600"));
+        ResponseEntity<Object> response = invoiceService.getAllInvoices(searchRequest);
+        assertEquals(List.of(2), ((List<InvoiceResponse>) response.getBody()).stream()
+                .map(InvoiceResponse::getId).toList());
+
+        //The cursor only continues the search in the same currency
+        String cursor = response.getHeaders().getFirst(APIHeader.NEXT_CURSOR);
+        searchRequest.setCursor(cursor);
+        response = invoiceService.getAllInvoices(searchRequest);
+        assertEquals(List.of(4), ((List<InvoiceResponse>) response.getBody()).stream()
+                .map(InvoiceResponse::getId).toList());
+        searchRequest.setCurrency("USD");
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getAllInvoices(searchRequest));
+    }
+
+    @Test
+    void testGetAllInvoicesInvalidCursor() {
+        InvoiceSearchRequest searchRequest = new InvoiceSearchRequest();
+        searchRequest.setCursor("invalid");
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getAllInvoices(searchRequest));
+    }
+
+    @Test
+    void testExportInvoices() throws IOException {
+        //More invoices than the export chunk size
+        invoiceProperties.getExport().setChunkSize(2);
+        for (int i = 0; i < 5; i++)
+            testCreateInvoice();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ResponseEntity<StreamingResponseBody> response = invoiceService.exportInvoices(2);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        response.getBody().writeTo(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":3,"));
+        assertTrue(lines[2].startsWith("{\"id\":5,"));
+    }
+
     @Test
     void testDoPayment() {
         InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
-        creationRequest.setAmount(500.00);
+        creationRequest.setAmount(new BigDecimal("500.00"));
         creationRequest.setDueDate(LocalDate.now()); //Today
         invoiceService.createInvoice(creationRequest);
 
         InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
-        paymentRequest.setAmount(200.00);
+        paymentRequest.setAmount(new BigDecimal("200.00"));
 
         ResponseEntity<Object> response = invoiceService.doPayment(1, paymentRequest);
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    void testDoPaymentIsIdempotent() {
+        testDoPayment();
+        InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
+        paymentRequest.setAmount(new BigDecimal("100.00"));
+
+        assertEquals(HttpStatus.OK, invoiceService.doPayment(1, paymentRequest, "key-1").getStatusCode());
+        //A retry returns the original result without paying again
+        assertEquals(HttpStatus.OK, invoiceService.doPayment(1, paymentRequest, "key-1").getStatusCode());
+        assertEquals(30_000, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+
+        paymentRequest.setAmount(new BigDecimal("50.00"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+                invoiceService.doPayment(1, paymentRequest, "key-1").getStatusCode());
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.doPayment(1, paymentRequest, " "));
+    }
+
     @Test
     void testDoPaymentFailureDueToOverdue() {
         //Create an invoice with yesterday's due date for test
         InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
-        creationRequest.setAmount(500.00);
+        creationRequest.setAmount(new BigDecimal("500.00"));
         creationRequest.setDueDate(LocalDate.now().minusDays(1)); // Yesterday due
         invoiceService.createInvoice(creationRequest);
 
         InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
-        paymentRequest.setAmount(200.00);
+        paymentRequest.setAmount(new BigDecimal("200.00"));
 
         ResponseEntity<Object> response = invoiceService.doPayment(1, paymentRequest);
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -86,7 +300,7 @@ public class InvoiceServiceTest {
     @Test
     void testDoPaymentInvoiceNotFound() {
         InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
-        paymentRequest.setAmount(200.00);
+        paymentRequest.setAmount(new BigDecimal("200.00"));
 
         ResponseEntity<Object> response = invoiceService.doPayment(999, paymentRequest);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -95,15 +309,170 @@ public class InvoiceServiceTest {
     @Test
     void testProcessOverdue() {
         InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
-        creationRequest.setAmount(500.00);
+        creationRequest.setAmount(new BigDecimal("500.00"));
         creationRequest.setDueDate(LocalDate.now().minusDays(1)); // Yesterday
         invoiceService.createInvoice(creationRequest);
 
         OverdueProcessRequest overdueRequest = new OverdueProcessRequest();
-        overdueRequest.setLateFee(50.00);
+        overdueRequest.setLateFee(new BigDecimal("50.00"));
         overdueRequest.setOverdueDays(5);
 
         ResponseEntity<Object> response = invoiceService.processOverdue(overdueRequest);
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNotNull(response.getBody());
+    }
+
+    @Test
+    void testGetOverdueJob() throws InterruptedException {
+        InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
+        creationRequest.setAmount(new BigDecimal("500.00"));
+        creationRequest.setDueDate(LocalDate.now().minusDays(1)); // Yesterday
+        invoiceService.createInvoice(creationRequest);
+
+        OverdueProcessRequest overdueRequest = new OverdueProcessRequest();
+        overdueRequest.setLateFee(new BigDecimal("50.00"));
+        overdueRequest.setOverdueDays(5);
+        String jobId = ((OverdueJobResponse) invoiceService.processOverdue(overdueRequest).getBody()).getJobId();
+
+        //Polling the job until it is finished
+        OverdueJobResponse job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        for (int i = 0; i < 100 && "running".equals(job.getState()); i++) {
+            Thread.sleep(50);
+            job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        }
+        assertEquals("completed", job.getState());
+        assertEquals(1, job.getProcessed());
+        assertEquals(1, job.getVoided());
+        assertEquals(1, job.getCreated());
+        assertEquals(HttpStatus.CONFLICT, invoiceService.cancelOverdueJob(jobId).getStatusCode());
+    }
+
+    @Test
+    void testGetInvoiceChain() throws InterruptedException {
+        InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
+        creationRequest.setAmount(new BigDecimal("500.00"));
+        creationRequest.setDueDate(LocalDate.now().minusDays(20));
+        Integer id = ((InvoiceResponse) invoiceService.createInvoice(creationRequest).getBody()).getId();
+
+        //Every run rolls the latest replacement over again, as it is still overdue
+        OverdueProcessRequest overdueRequest = new OverdueProcessRequest();
+        overdueRequest.setLateFee(new BigDecimal("50.00"));
+        overdueRequest.setOverdueDays(5);
+        for (int run = 0; run < 2; run++) {
+            String jobId = ((OverdueJobResponse) invoiceService.processOverdue(overdueRequest).getBody()).getJobId();
+            OverdueJobResponse job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+            for (int i = 0; i < 100 && "running".equals(job.getState()); i++) {
+                Thread.sleep(50);
+                job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+            }
+            assertEquals("completed", job.getState());
+        }
+
+        Integer successorId = invoiceStore.findByPredecessorId(id).orElseThrow().getId();
+        ResponseEntity<Object> response = invoiceService.getInvoiceChain(successorId);
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        InvoiceChainResponse chain = (InvoiceChainResponse) response.getBody();
+        assertEquals(3, chain.getInvoices().size());
+        assertEquals(id, chain.getInvoices().get(0).getId());
+        assertEquals("void", chain.getInvoices().get(0).getStatus());
+        assertEquals(id, chain.getInvoices().get(1).getPredecessorId());
+        assertEquals(chain.getInvoices().get(2).getId(), chain.getHeadId());
+        assertEquals(new BigDecimal("600.00"), chain.getPayable());
+        assertEquals(HttpStatus.NOT_FOUND, invoiceService.getInvoiceChain(999).getStatusCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetAggregates() throws InterruptedException {
+        InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
+        creationRequest.setAmount(new BigDecimal("100.00"));
+        creationRequest.setDueDate(LocalDate.now().plusDays(1));
+        Integer id = ((InvoiceResponse) invoiceService.createInvoice(creationRequest).getBody()).getId();
+        InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
+        paymentRequest.setAmount(new BigDecimal("30.00"));
+        invoiceService.doPayment(id, paymentRequest);
+        creationRequest.setAmount(new BigDecimal("50.00"));
+        creationRequest.setDueDate(LocalDate.now().minusDays(45));
+        invoiceService.createInvoice(creationRequest);
+
+        //The overdue invoice is voided and replaced by one of 55.00 which is 40 days past due
+        OverdueProcessRequest overdueRequest = new OverdueProcessRequest();
+        overdueRequest.setLateFee(new BigDecimal("5.00"));
+        overdueRequest.setOverdueDays(5);
+        String jobId = ((OverdueJobResponse) invoiceService.processOverdue(overdueRequest).getBody()).getJobId();
+        OverdueJobResponse job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        for (int i = 0; i < 100 && "running".equals(job.getState()); i++) {
+            Thread.sleep(50);
+            job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        }
+        assertEquals("completed", job.getState());
+
+        ResponseEntity<Object> response = invoiceService.getAggregates();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Map<String, InvoiceTotalsResponse> totals =
+                ((Map<String, Map<String, InvoiceTotalsResponse>>) response.getBody()).get("USD");
+        InvoiceTotalsResponse pending = totals.get("pending");
+        assertEquals(2, pending.getCount());
+        assertEquals(new BigDecimal("155.00"), pending.getInvoiced());
+        assertEquals(new BigDecimal("30.00"), pending.getPaid());
+        assertEquals(new BigDecimal("125.00"), pending.getOutstanding());
+        assertEquals(new BigDecimal("70.00"), pending.getAgeing().get("current"));
+        assertEquals(new BigDecimal("55.00"), pending.getAgeing().get("31_60"));
+        assertEquals(new BigDecimal("0.00"), pending.getAgeing().get("over_90"));
+        InvoiceTotalsResponse voided = totals.get("void");
+        assertEquals(1, voided.getCount());
+        assertEquals(new BigDecimal("50.00"), voided.getInvoiced());
+        assertEquals(new BigDecimal("0.00"), voided.getOutstanding());
+        assertNull(voided.getAgeing());
+        assertEquals(0, totals.get("paid").getCount());
+
+        //Totals maintained by the writes are the same as those loaded from the store
+        InvoiceAggregates loaded = new InvoiceAggregates(invoiceStore, invoiceProperties);
+        loaded.load();
+        for (Status status : Status.values())
+            assertEquals(invoiceAggregates.getCount(status), loaded.getCount(status));
+        assertEquals(invoiceAggregates.getOutstanding(Money.DEFAULT_CURRENCY),
+                loaded.getOutstanding(Money.DEFAULT_CURRENCY));
+    }
+
+    //Every write publishes its changes, in the order in which they were made
+    @Test
+    void testChangesArePublished() throws InterruptedException {
+        InvoiceCreationRequest creationRequest = new InvoiceCreationRequest();
+        creationRequest.setAmount(new BigDecimal("100.00"));
+        creationRequest.setDueDate(LocalDate.now().plusDays(1));
+        Integer id = ((InvoiceResponse) invoiceService.createInvoice(creationRequest).getBody()).getId();
+        InvoicePaymentRequest paymentRequest = new InvoicePaymentRequest();
+        paymentRequest.setAmount(new BigDecimal("100.00"));
+        invoiceService.doPayment(id, paymentRequest);
+        creationRequest.setDueDate(LocalDate.now().minusDays(10));
+        Integer overdueId = ((InvoiceResponse) invoiceService.createInvoice(creationRequest).getBody()).getId();
+
+        OverdueProcessRequest overdueRequest = new OverdueProcessRequest();
+        overdueRequest.setLateFee(new BigDecimal("5.00"));
+        overdueRequest.setOverdueDays(5);
+        String jobId = ((OverdueJobResponse) invoiceService.processOverdue(overdueRequest).getBody()).getJobId();
+        OverdueJobResponse job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        for (int i = 0; i < 100 && "running".equals(job.getState()); i++) {
+            Thread.sleep(50);
+            job = (OverdueJobResponse) invoiceService.getOverdueJob(jobId).getBody();
+        }
+        assertEquals("completed", job.getState());
+
+        List<InvoiceEvent> events = invoiceEventBus.read(invoiceEventBus.getOldest(), 10);
+        assertEquals(List.of(InvoiceEventType.CREATED, InvoiceEventType.PAYMENT_APPLIED,
+                InvoiceEventType.STATUS_CHANGED, InvoiceEventType.CREATED, InvoiceEventType.STATUS_CHANGED,
+                InvoiceEventType.ROLLED_OVER), events.stream().map(InvoiceEvent::getType).toList());
+        assertEquals(10_000, events.get(1).getPayment());
+        assertEquals(Status.PAID, events.get(2).getStatus());
+        assertEquals(Status.VOID, events.get(4).getStatus());
+        assertEquals(overdueId, events.get(5).getPredecessorId());
+        assertEquals(10_500, events.get(5).getAmount());
+    }
+
+    @Test
+    void testGetOverdueJobNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND, invoiceService.getOverdueJob("unknown").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, invoiceService.cancelOverdueJob("unknown").getStatusCode());
     }
 }
@@ -0,0 +1,134 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.JobState;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
+import com.eg.invoicemanagement.service.impl.OverdueJob;
+import com.eg.invoicemanagement.service.impl.OverdueJobManager;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverdueJobManagerTest {
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    private OverdueProcessingEngine engine;
+
+    private OverdueJobManager manager;
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+        engine.shutdown();
+    }
+
+    @Test
+    void testResumeInterruptedJob(@TempDir Path checkpointDir) throws Exception {
+        LocalDate today = LocalDate.now().minusDays(1);
+        Invoice invoice = new Invoice();
+        invoice.setId(1);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(today.minusDays(1));
+        invoice.setStatus(Status.PENDING);
+        invoiceStore.insert(invoice);
+
+        //Checkpoint left behind by a job which had already processed 10 invoices before a crash
+        Files.writeString(checkpointDir.resolve("job-1.json"), "{\"jobId\":\"job-1\",\"lateFee\":10.0," +
+                "\"overdueDays\":5,\"today\":\"" + today + "\",\"processed\":10,\"voided\":4,\"paid\":6," +
+                "\"created\":10}");
+
+        OverdueJob job = resume(invoiceStore, checkpointDir, "job-1");
+
+        assertEquals(JobState.COMPLETED, job.getState());
+        assertEquals(today, job.getToday());
+        assertEquals(11, job.getProgress().getProcessed().get());
+        assertEquals(5, job.getProgress().getVoided().get());
+        assertEquals(11, job.getProgress().getCreated().get());
+        assertEquals(Status.VOID, invoiceStore.findById(1).orElseThrow().getStatus());
+        assertFalse(Files.exists(checkpointDir.resolve("job-1.json")));
+    }
+
+    //Invoices created by the job before the crash are past due as well, but are not rolled over a second time
+    @Test
+    void testResumedJobSkipsItsOwnInvoices(@TempDir Path checkpointDir) throws Exception {
+        LocalDate today = LocalDate.now().minusDays(1);
+        invoiceStore.insert(invoice(1, Status.PENDING, today.minusDays(30), null));
+        invoiceStore.insert(invoice(2, Status.VOID, today.minusDays(30), null));
+        invoiceStore.insert(invoice(3, Status.PENDING, today.minusDays(25), 2));
+
+        Files.writeString(checkpointDir.resolve("job-2.json"), "{\"jobId\":\"job-2\",\"lateFee\":10.0," +
+                "\"overdueDays\":5,\"today\":\"" + today + "\",\"maxInvoiceId\":2,\"processed\":1," +
+                "\"voided\":1,\"paid\":0,\"created\":1}");
+        OverdueJob job = resume(invoiceStore, checkpointDir, "job-2");
+
+        assertEquals(JobState.COMPLETED, job.getState());
+        assertEquals(2, job.getMaxInvoiceId());
+        assertEquals(2, job.getProgress().getCreated().get());
+        assertEquals(Status.VOID, invoiceStore.findById(1).orElseThrow().getStatus());
+        assertEquals(Status.PENDING, invoiceStore.findById(3).orElseThrow().getStatus());
+        assertTrue(invoiceStore.findByPredecessorId(3).isEmpty());
+    }
+
+    //Only a crash leaves a checkpoint to resume from, a failed job is not retried next to newer jobs
+    @Test
+    void testFailedJobDeletesCheckpoint(@TempDir Path checkpointDir) throws Exception {
+        InMemoryInvoiceStore failingStore = new InMemoryInvoiceStore() {
+            @Override
+            public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+                throw new IllegalStateException("Store unavailable");
+            }
+        };
+        Files.writeString(checkpointDir.resolve("job-3.json"), "{\"jobId\":\"job-3\",\"lateFee\":10.0," +
+                "\"overdueDays\":5,\"today\":\"" + LocalDate.now() + "\",\"maxInvoiceId\":0,\"processed\":0," +
+                "\"voided\":0,\"paid\":0,\"created\":0}");
+        OverdueJob job = resume(failingStore, checkpointDir, "job-3");
+
+        assertEquals(JobState.FAILED, job.getState());
+        assertFalse(Files.exists(checkpointDir.resolve("job-3.json")));
+    }
+
+    private OverdueJob resume(InMemoryInvoiceStore store, Path checkpointDir, String jobId)
+            throws InterruptedException {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getOverdue().setCheckpointDir(checkpointDir.toString());
+        engine = new OverdueProcessingEngine(store, new InvoiceIdAllocatorImpl(store), new InvoiceLocks(),
+                new InvoiceAggregates(store, properties), new InvoiceEventBus(properties), properties);
+        manager = new OverdueJobManager(engine, new ObjectMapper().findAndRegisterModules(),
+                new InvoiceMetrics(new SimpleMeterRegistry()), properties);
+        manager.resumeInterrupted();
+
+        OverdueJob job = manager.find(jobId).orElseThrow();
+        for (int i = 0; i < 100 && job.getState() == JobState.RUNNING; i++)
+            Thread.sleep(50);
+        return job;
+    }
+
+    private static Invoice invoice(int id, Status status, LocalDate dueDate, Integer predecessorId) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(status);
+        invoice.setPredecessorId(predecessorId);
+        return invoice;
+    }
+}
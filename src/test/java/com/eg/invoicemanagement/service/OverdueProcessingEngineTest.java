@@ -0,0 +1,161 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.request.OverdueProcessRequest;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.service.impl.OverdueProgress;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverdueProcessingEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 9, 10);
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    private final InvoiceIdAllocatorImpl invoiceIdAllocator = new InvoiceIdAllocatorImpl(invoiceStore);
+
+    private final OverdueProcessingEngine engine;
+
+    OverdueProcessingEngineTest() {
+        InvoiceProperties properties = new InvoiceProperties();
+        //Small batches so that a run is spread over multiple partitions
+        properties.getOverdue().setBatchSize(7);
+        properties.getOverdue().setParallelism(4);
+        engine = new OverdueProcessingEngine(invoiceStore, invoiceIdAllocator, new InvoiceLocks(),
+                new InvoiceAggregates(invoiceStore, properties), new InvoiceEventBus(properties), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testProcessOverdue() {
+        insert(invoice(1, 50_000, 0, TODAY.minusDays(1)));
+        insert(invoice(2, 50_000, 20_000, TODAY.minusDays(1)));
+        insert(invoice(3, 50_000, 0, TODAY));
+
+        OverdueProgress progress = new OverdueProgress();
+        engine.process(overdueRequest(), TODAY, progress);
+
+        assertEquals(Status.VOID, invoiceStore.findById(1).orElseThrow().getStatus());
+        assertEquals(Status.PAID, invoiceStore.findById(2).orElseThrow().getStatus());
+        assertEquals(Status.PENDING, invoiceStore.findById(3).orElseThrow().getStatus());
+        assertEquals(55_000, invoiceStore.findById(4).orElseThrow().getAmount());
+        assertEquals(35_000, invoiceStore.findById(5).orElseThrow().getAmount());
+        assertEquals(TODAY.plusDays(4), invoiceStore.findById(5).orElseThrow().getDueDate());
+        assertEquals(2, progress.getProcessed().get());
+        assertEquals(1, progress.getVoided().get());
+        assertEquals(1, progress.getPaid().get());
+        assertEquals(2, progress.getCreated().get());
+    }
+
+    @Test
+    void testProcessOverdueAcrossBatches() {
+        for (int id = 1; id <= 100; id++)
+            insert(invoice(id, 10_000, id % 2 == 0 ? 1_000 : 0, TODAY.minusDays(id % 4 + 1)));
+
+        OverdueProgress progress = new OverdueProgress();
+        engine.process(overdueRequest(), TODAY, progress);
+
+        assertEquals(50, invoiceStore.findByStatus(Status.VOID).size());
+        assertEquals(50, invoiceStore.findByStatus(Status.PAID).size());
+        assertEquals(100, invoiceStore.findByStatus(Status.PENDING).size());
+        assertEquals(200, invoiceStore.maxId());
+        assertEquals(100, progress.getCreated().get());
+
+        //A second run for the same day does not roll over invoices again
+        engine.process(overdueRequest(), TODAY, new OverdueProgress());
+        assertEquals(200, invoiceStore.count());
+    }
+
+    //A failing batch stops the batches which have not started, the run only returns after running batches ended
+    @Test
+    void testFailingBatchStopsTheRun() throws InterruptedException {
+        //The late fee overflows the amount of the first invoice
+        insert(invoice(1, Long.MAX_VALUE, 0, TODAY.minusDays(1)));
+        for (int id = 2; id <= 700; id++)
+            insert(invoice(id, 10_000, 0, TODAY.minusDays(1)));
+
+        OverdueProgress progress = new OverdueProgress();
+        assertThrows(ArithmeticException.class, () -> engine.process(overdueRequest(), TODAY, progress));
+        long processed = progress.getProcessed().get();
+        long voided = invoiceStore.findByStatus(Status.VOID).size();
+        assertTrue(processed < 693, "processed " + processed);
+        assertEquals(processed, voided);
+        assertEquals(Status.PENDING, invoiceStore.findById(1).orElseThrow().getStatus());
+
+        //Nothing is committed after the failure was thrown
+        Thread.sleep(200);
+        assertEquals(processed, progress.getProcessed().get());
+        assertEquals(voided, invoiceStore.findByStatus(Status.VOID).size());
+    }
+
+    //A batch is locked and committed in groups, an invoice held by a payment only delays the group it belongs to
+    @Test
+    void testLockedInvoiceOnlyDelaysItsGroup() throws Exception {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getOverdue().setBatchSize(1000);
+        properties.getOverdue().setParallelism(1);
+        InvoiceLocks invoiceLocks = new InvoiceLocks();
+        OverdueProcessingEngine batchEngine = new OverdueProcessingEngine(invoiceStore, invoiceIdAllocator,
+                invoiceLocks, new InvoiceAggregates(invoiceStore, properties), new InvoiceEventBus(properties),
+                properties);
+        for (int id = 1; id <= 100; id++)
+            insert(invoice(id, 10_000, 0, TODAY.minusDays(1)));
+
+        OverdueProgress progress = new OverdueProgress();
+        Thread run;
+        try (InvoiceLocks.Held held = invoiceLocks.lock(100)) {
+            run = Thread.ofPlatform().start(() -> batchEngine.process(overdueRequest(), TODAY, progress));
+            for (int i = 0; i < 200 && invoiceStore.findByStatus(Status.VOID).size() < 96; i++)
+                Thread.sleep(25);
+            //The groups before the one of invoice 100 are committed while it is still locked
+            assertEquals(96, invoiceStore.findByStatus(Status.VOID).size());
+        }
+        run.join(10_000);
+        batchEngine.shutdown();
+
+        assertEquals(100, invoiceStore.findByStatus(Status.VOID).size());
+        assertEquals(100, progress.getProcessed().get());
+        assertEquals(100, progress.getCreated().get());
+    }
+
+    //Mirrors invoice creation where ids always come from the allocator
+    private void insert(Invoice invoice) {
+        invoiceStore.insert(invoice);
+        invoiceIdAllocator.reseed(invoice.getId());
+    }
+
+    private static OverdueProcessRequest overdueRequest() {
+        OverdueProcessRequest request = new OverdueProcessRequest();
+        request.setLateFee(new BigDecimal("50.00"));
+        request.setOverdueDays(5);
+        return request;
+    }
+
+    private static Invoice invoice(int id, long amount, long paidAmount, LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(amount);
+        invoice.setPaidAmount(paidAmount);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+}
@@ -0,0 +1,102 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.JobState;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceIdAllocatorImpl;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
+import com.eg.invoicemanagement.service.impl.OverdueJob;
+import com.eg.invoicemanagement.service.impl.OverdueJobManager;
+import com.eg.invoicemanagement.service.impl.OverdueProcessingEngine;
+import com.eg.invoicemanagement.service.impl.OverdueScheduler;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class OverdueSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 9, 10);
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    private final InvoiceIdAllocatorImpl invoiceIdAllocator = new InvoiceIdAllocatorImpl(invoiceStore);
+
+    private final OverdueProcessingEngine engine;
+
+    private final OverdueJobManager manager;
+
+    private final OverdueScheduler scheduler;
+
+    OverdueSchedulerTest() {
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getOverdue().getSchedule().setLateFee(new BigDecimal("5.00"));
+        properties.getOverdue().getSchedule().setOverdueDays(10);
+        engine = new OverdueProcessingEngine(invoiceStore, invoiceIdAllocator, new InvoiceLocks(),
+                new InvoiceAggregates(invoiceStore, properties), new InvoiceEventBus(properties), properties);
+        manager = new OverdueJobManager(engine, new ObjectMapper().findAndRegisterModules(),
+                new InvoiceMetrics(new SimpleMeterRegistry()), properties);
+        scheduler = new OverdueScheduler(manager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        manager.shutdown();
+        engine.shutdown();
+    }
+
+    @Test
+    void testOnlyNewlyOverdueInvoicesAreProcessed() throws Exception {
+        insert(TODAY.minusDays(1));
+        insert(TODAY);
+        for (int i = 1; i <= 98; i++)
+            insert(TODAY.plusDays(i));
+
+        scheduler.check(TODAY);
+        OverdueJob first = awaitLastJob();
+        assertEquals(TODAY, first.getToday());
+        assertEquals(1, first.getProgress().getTotal().get());
+        assertEquals(Status.VOID, invoiceStore.findById(1).orElseThrow().getStatus());
+        assertEquals(10_500, invoiceStore.findById(101).orElseThrow().getAmount());
+        assertEquals(TODAY.plusDays(9), invoiceStore.findById(101).orElseThrow().getDueDate());
+
+        //Nothing is submitted again on the same day
+        scheduler.check(TODAY);
+        assertSame(first, scheduler.getLastJob());
+
+        //The next day only the invoice which fell due the day before is selected
+        scheduler.check(TODAY.plusDays(1));
+        OverdueJob second = awaitLastJob();
+        assertEquals(1, second.getProgress().getTotal().get());
+        assertEquals(Status.VOID, invoiceStore.findById(2).orElseThrow().getStatus());
+        assertEquals(Status.PENDING, invoiceStore.findById(3).orElseThrow().getStatus());
+    }
+
+    private OverdueJob awaitLastJob() throws InterruptedException {
+        OverdueJob job = scheduler.getLastJob();
+        for (int i = 0; i < 100 && job.getState() == JobState.RUNNING; i++)
+            Thread.sleep(50);
+        assertEquals(JobState.COMPLETED, job.getState());
+        return job;
+    }
+
+    private void insert(LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(invoiceIdAllocator.reserve(1));
+        invoice.setAmount(10_000);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        invoiceStore.insert(invoice);
+    }
+}
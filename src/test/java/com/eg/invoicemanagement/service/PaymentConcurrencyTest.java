@@ -0,0 +1,239 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.response.PaymentBatchResponse;
+import com.eg.invoicemanagement.dto.response.PaymentItemResult;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.IdempotencyCache;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
+import com.eg.invoicemanagement.service.impl.PaymentProcessor;
+import com.eg.invoicemanagement.store.InvoiceQuery;
+import com.eg.invoicemanagement.store.InvoiceStore;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Many threads paying few invoices, every invoice must end with exactly the sum of the accepted payments
+class PaymentConcurrencyTest {
+
+    private static final int INVOICES = 8;
+
+    private static final int THREADS = 16;
+
+    private static final int PAYMENTS_PER_THREAD = 2000;
+
+    //5000.00 in cents
+    private static final long INVOICE_AMOUNT = 500_000;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    @Test
+    void testNoOverpaymentUnderContention() throws Exception {
+        runPayments(invoiceStore);
+    }
+
+    //Stores like the database one return a new instance on every read, the lock must cover reading as well
+    @Test
+    void testNoOverpaymentWithDetachedInstances() throws Exception {
+        runPayments(new DetachedInvoiceStore(invoiceStore));
+    }
+
+    private void runPayments(InvoiceStore store) throws Exception {
+        for (int id = 1; id <= INVOICES; id++)
+            invoiceStore.insert(invoice(id));
+        InvoiceProperties properties = new InvoiceProperties();
+        PaymentProcessor paymentProcessor = new PaymentProcessor(store, properties, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), new IdempotencyCache(properties),
+                new InvoiceLocks(), new InvoiceMetrics(new SimpleMeterRegistry()),
+                new InvoiceAggregates(store, properties), new InvoiceEventBus(properties));
+
+        //Accepted payments in cents per invoice, indexed by invoice id
+        AtomicLongArray accepted = new AtomicLongArray(INVOICES + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                //Every fourth thread pays through remittance files, the others with single payments
+                boolean bulk = thread % 4 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (bulk) {
+                        for (int file = 0; file < PAYMENTS_PER_THREAD / 100; file++)
+                            payFile(paymentProcessor, accepted, random);
+                    } else {
+                        for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+                            int invoiceId = random.nextInt(1, INVOICES + 1);
+                            int amount = random.nextInt(1, 10);
+                            if (paymentProcessor.pay(invoiceId, BigDecimal.valueOf(amount), TODAY).getStatusCode()
+                                    == HttpStatus.OK)
+                                accepted.addAndGet(invoiceId, amount * 100L);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int id = 1; id <= INVOICES; id++) {
+            Invoice invoice = invoiceStore.findById(id).orElseThrow();
+            assertEquals(accepted.get(id), invoice.getPaidAmount(), "Paid amount of invoice " + id);
+            assertTrue(invoice.getPaidAmount() <= invoice.getAmount(), "Invoice " + id + " is overpaid");
+            assertEquals(invoice.getPaidAmount() == invoice.getAmount() ? Status.PAID : Status.PENDING,
+                    invoice.getStatus());
+        }
+        //The payments exceed the invoice amounts, so every invoice ends up fully paid
+        assertEquals(INVOICES, invoiceStore.findByStatus(Status.PAID).size());
+    }
+
+    private static void payFile(PaymentProcessor paymentProcessor, AtomicLongArray accepted,
+                                ThreadLocalRandom random) {
+        StringBuilder csv = new StringBuilder();
+        for (int line = 0; line < 100; line++)
+            csv.append(random.nextInt(1, INVOICES + 1)).append(',').append(random.nextInt(1, 10)).append('\n');
+        PaymentBatchResponse response = paymentProcessor.applyCsv(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        String[] lines = csv.toString().split("\n");
+        for (PaymentItemResult result : response.getResults()) {
+            if ("applied".equals(result.getStatus()))
+                accepted.addAndGet(result.getInvoiceId(),
+                        Integer.parseInt(lines[result.getLine() - 1].split(",")[1]) * 100L);
+        }
+    }
+
+    private static Invoice invoice(int id) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(INVOICE_AMOUNT);
+        invoice.setDueDate(TODAY.plusDays(1));
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static Invoice copy(Invoice invoice) {
+        Invoice copy = new Invoice();
+        copy.setId(invoice.getId());
+        copy.setAmount(invoice.getAmount());
+        copy.setPaidAmount(invoice.getPaidAmount());
+        copy.setCurrency(invoice.getCurrency());
+        copy.setDueDate(invoice.getDueDate());
+        copy.setStatus(invoice.getStatus());
+        copy.setPredecessorId(invoice.getPredecessorId());
+        return copy;
+    }
+
+    //Hands out and stores copies, like a store backed by a database
+    private record DetachedInvoiceStore(InMemoryInvoiceStore delegate) implements InvoiceStore {
+
+        @Override
+        public Optional<Invoice> findById(Integer id) {
+            return delegate.findById(id).map(PaymentConcurrencyTest::copy);
+        }
+
+        @Override
+        public Optional<Invoice> findByPredecessorId(Integer predecessorId) {
+            return delegate.findByPredecessorId(predecessorId).map(PaymentConcurrencyTest::copy);
+        }
+
+        @Override
+        public List<Invoice> findAllById(Collection<Integer> ids) {
+            return copies(delegate.findAllById(ids));
+        }
+
+        @Override
+        public List<Invoice> findAll() {
+            return copies(delegate.findAll());
+        }
+
+        @Override
+        public List<Invoice> findByStatus(Status status) {
+            return copies(delegate.findByStatus(status));
+        }
+
+        @Override
+        public List<Invoice> findByStatusAndDueDateBefore(Status status, LocalDate date) {
+            return copies(delegate.findByStatusAndDueDateBefore(status, date));
+        }
+
+        @Override
+        public List<Invoice> findByDueDateBetween(LocalDate from, LocalDate to) {
+            return copies(delegate.findByDueDateBetween(from, to));
+        }
+
+        @Override
+        public List<Invoice> search(InvoiceQuery query) {
+            return copies(delegate.search(query));
+        }
+
+        @Override
+        public void insert(Invoice invoice) {
+            delegate.insert(copy(invoice));
+        }
+
+        @Override
+        public void insertAll(Collection<Invoice> invoices) {
+            delegate.insertAll(copies(invoices));
+        }
+
+        @Override
+        public void update(Invoice invoice) {
+            delegate.update(copy(invoice));
+        }
+
+        @Override
+        public void updateAll(Collection<Invoice> invoices) {
+            delegate.updateAll(copies(invoices));
+        }
+
+        @Override
+        public long count() {
+            return delegate.count();
+        }
+
+        @Override
+        public int maxId() {
+            return delegate.maxId();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        private static List<Invoice> copies(Collection<Invoice> invoices) {
+            return invoices.stream().map(PaymentConcurrencyTest::copy).toList();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.eg.invoicemanagement.service;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.dto.response.PaymentBatchResponse;
+import com.eg.invoicemanagement.dto.response.PaymentItemResult;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.service.impl.IdempotencyCache;
+import com.eg.invoicemanagement.service.impl.InvoiceAggregates;
+import com.eg.invoicemanagement.service.impl.InvoiceEventBus;
+import com.eg.invoicemanagement.service.impl.InvoiceLocks;
+import com.eg.invoicemanagement.service.impl.InvoiceMetrics;
+import com.eg.invoicemanagement.service.impl.PaymentProcessor;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentProcessorTest {
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    private final InvoiceProperties invoiceProperties = new InvoiceProperties();
+
+    private final PaymentProcessor paymentProcessor = new PaymentProcessor(invoiceStore, invoiceProperties,
+            new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(),
+            new IdempotencyCache(invoiceProperties), new InvoiceLocks(),
+            new InvoiceMetrics(new SimpleMeterRegistry()), new InvoiceAggregates(invoiceStore, invoiceProperties),
+            new InvoiceEventBus(invoiceProperties));
+
+    @BeforeEach
+    void setUp() {
+        invoiceStore.insert(invoice(1, LocalDate.now().plusDays(1)));
+        invoiceStore.insert(invoice(2, LocalDate.now().minusDays(1)));
+    }
+
+    @Test
+    void testApplyCsv() {
+        PaymentBatchResponse response = paymentProcessor.applyCsv(stream("""
+                invoice_id,amount,idempotency_key
+                1,40,a
+                1,40,a
+                2,10,
+                3,10
+
+                1,70
+                1,x
+                1,60,b
+                """));
+
+        assertEquals(List.of("applied", "duplicate", "overdue", "not_found", "exceeds_amount", "invalid", "applied"),
+                response.getResults().stream().map(PaymentItemResult::getStatus).toList());
+        assertEquals(List.of(2, 3, 4, 5, 7, 8, 9),
+                response.getResults().stream().map(PaymentItemResult::getLine).toList());
+        assertEquals(2, response.getApplied());
+        assertEquals(5, response.getRejected());
+        Invoice invoice = invoiceStore.findById(1).orElseThrow();
+        assertEquals(10_000, invoice.getPaidAmount());
+        assertEquals(Status.PAID, invoice.getStatus());
+        assertEquals(1, invoiceStore.findByStatus(Status.PAID).size());
+    }
+
+    @Test
+    void testApplyNdjson() {
+        PaymentBatchResponse response = paymentProcessor.applyNdjson(stream("""
+                {"invoice_id":1,"amount":30,"idempotency_key":"a"}
+                {"invoice_id":1,"amount":0}
+                {"invoice_id":1,
+                """));
+
+        assertEquals(List.of("applied", "invalid", "invalid"),
+                response.getResults().stream().map(PaymentItemResult::getStatus).toList());
+        assertEquals("The invoice payment amount must be more than 0", response.getResults().get(1).getMessage());
+        assertEquals(3000, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testKeysOfEarlierPaymentsAreDuplicates() {
+        paymentProcessor.applyCsv(stream("1,10,a\n"));
+        PaymentBatchResponse response = paymentProcessor.applyCsv(stream("1,10,a\n1,10,b\n"));
+
+        assertEquals(List.of("duplicate", "applied"),
+                response.getResults().stream().map(PaymentItemResult::getStatus).toList());
+        assertEquals(2000, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+        //A single payment retried with the key of a bulk payment returns its result
+        assertEquals(HttpStatus.OK, paymentProcessor.getIdempotencyCache().execute("b", 1, BigDecimal.TEN, () -> {
+            throw new IllegalStateException("Payment applied twice");
+        }).getStatusCode());
+    }
+
+    //A key reserved by a payment which is still in flight cannot be used by the file as well
+    @Test
+    void testKeysOfConcurrentPaymentsAreDuplicates() {
+        IdempotencyCache.Reservation reservation = paymentProcessor.getIdempotencyCache().reserve("c");
+        PaymentBatchResponse response = paymentProcessor.applyCsv(stream("1,10,c\n"));
+
+        assertEquals(List.of("duplicate"), response.getResults().stream().map(PaymentItemResult::getStatus).toList());
+        assertEquals(0, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+        reservation.release();
+    }
+
+    @Test
+    void testPaymentsAreExact() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 3; i++)
+            assertEquals(HttpStatus.OK, paymentProcessor.pay(1, new BigDecimal("33.33"), today).getStatusCode());
+        //Cents cannot be split
+        assertEquals(HttpStatus.BAD_REQUEST, paymentProcessor.pay(1, new BigDecimal("0.005"), today).getStatusCode());
+        assertEquals(HttpStatus.OK, paymentProcessor.pay(1, new BigDecimal("0.01"), today).getStatusCode());
+
+        Invoice invoice = invoiceStore.findById(1).orElseThrow();
+        assertEquals(10_000, invoice.getPaidAmount());
+        assertEquals(Status.PAID, invoice.getStatus());
+    }
+
+    @Test
+    void testBulkPaymentsAcceptFractionalAmounts() {
+        PaymentBatchResponse response = paymentProcessor.applyCsv(stream("1,0.50\n1,0\n"));
+
+        assertEquals(List.of("applied", "invalid"),
+                response.getResults().stream().map(PaymentItemResult::getStatus).toList());
+        assertEquals(50, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testBatchSizeIsLimited() {
+        invoiceProperties.getBatch().setMaxSize(1);
+        assertThrows(IllegalArgumentException.class, () -> paymentProcessor.applyCsv(stream("1,10\n1,10\n")));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Invoice invoice(int id, LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+}
@@ -0,0 +1,306 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.ColumnarInvoiceStore;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarInvoiceStoreTest {
+
+    private final ColumnarInvoiceStore invoiceStore = new ColumnarInvoiceStore();
+
+    @Test
+    void testInsertAndFindById() {
+        Invoice invoice = invoice(1, LocalDate.of(2024, 9, 1));
+        invoice.setCurrency(Currency.getInstance("JPY"));
+        invoice.setPaidAmount(2_500);
+        invoiceStore.insert(invoice);
+
+        Invoice found = invoiceStore.findById(1).orElseThrow();
+        assertEquals(1, found.getId());
+        assertEquals(10_000, found.getAmount());
+        assertEquals(2_500, found.getPaidAmount());
+        assertEquals(Currency.getInstance("JPY"), found.getCurrency());
+        assertEquals(LocalDate.of(2024, 9, 1), found.getDueDate());
+        assertEquals(Status.PENDING, found.getStatus());
+        assertNull(found.getPredecessorId());
+        assertTrue(invoiceStore.findById(2).isEmpty());
+        assertTrue(invoiceStore.findById(1_000_000).isEmpty());
+        assertEquals(1, invoiceStore.count());
+        assertEquals(1, invoiceStore.maxId());
+    }
+
+    @Test
+    void testFindAllById() {
+        invoiceStore.insert(invoice(1, LocalDate.now()));
+        invoiceStore.insert(invoice(2, LocalDate.now()));
+
+        assertEquals(List.of(2, 1), ids(invoiceStore.findAllById(List.of(2, 3, 1))));
+    }
+
+    @Test
+    void testInsertDuplicateId() {
+        invoiceStore.insert(invoice(1, LocalDate.now()));
+        assertThrows(IllegalArgumentException.class, () -> invoiceStore.insert(invoice(1, LocalDate.now())));
+        assertThrows(IllegalArgumentException.class, () -> invoiceStore.insert(invoice(0, LocalDate.now())));
+        assertThrows(IllegalArgumentException.class, () -> invoiceStore.update(invoice(2, LocalDate.now())));
+    }
+
+    @Test
+    void testUpdateReindexesStatus() {
+        Invoice invoice = invoice(1, LocalDate.now().minusDays(1));
+        invoiceStore.insert(invoice);
+        invoiceStore.insert(invoice(2, LocalDate.now().minusDays(2)));
+
+        invoice.setStatus(Status.PAID);
+        invoiceStore.update(invoice);
+
+        assertEquals(List.of(2), ids(invoiceStore.findByStatus(Status.PENDING)));
+        assertEquals(List.of(1), ids(invoiceStore.findByStatus(Status.PAID)));
+        assertEquals(List.of(2), ids(invoiceStore.findByStatusAndDueDateBefore(Status.PENDING, LocalDate.now())));
+    }
+
+    @Test
+    void testViewsWriteToTheColumns() {
+        invoiceStore.insert(invoice(1, LocalDate.of(2024, 9, 1)));
+
+        Invoice view = invoiceStore.findById(1).orElseThrow();
+        view.setPaidAmount(10_000);
+        view.setStatus(Status.PAID);
+        invoiceStore.update(view);
+
+        Invoice found = invoiceStore.findById(1).orElseThrow();
+        assertEquals(10_000, found.getPaidAmount());
+        assertEquals(Status.PAID, found.getStatus());
+        assertThrows(UnsupportedOperationException.class, () -> view.setId(2));
+    }
+
+    @Test
+    void testFindByPredecessorId() {
+        invoiceStore.insert(invoice(1, LocalDate.now().minusDays(1)));
+        Invoice successor = invoice(70_000, LocalDate.now().plusDays(4));
+        successor.setPredecessorId(1);
+        invoiceStore.insert(successor);
+
+        assertEquals(70_000, invoiceStore.findByPredecessorId(1).orElseThrow().getId());
+        assertEquals(1, invoiceStore.findById(70_000).orElseThrow().getPredecessorId());
+        assertTrue(invoiceStore.findByPredecessorId(70_000).isEmpty());
+    }
+
+    @Test
+    void testFindByDueDateBetween() {
+        invoiceStore.insert(invoice(1, LocalDate.of(2024, 9, 1)));
+        invoiceStore.insert(invoice(2, LocalDate.of(2024, 9, 5)));
+        invoiceStore.insert(invoice(3, LocalDate.of(2024, 9, 10)));
+
+        assertEquals(List.of(1, 2),
+                ids(invoiceStore.findByDueDateBetween(LocalDate.of(2024, 9, 1), LocalDate.of(2024, 9, 5))));
+    }
+
+    @Test
+    void testSearchByIdAcrossChunks() {
+        List<Integer> inserted = List.of(3, 16_383, 16_384, 16_385, 200_000);
+        inserted.forEach(id -> invoiceStore.insert(invoice(id, LocalDate.now())));
+
+        assertEquals(inserted, ids(invoiceStore.findAll()));
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setAfterId(16_383);
+        query.setLimit(2);
+        assertEquals(List.of(16_384, 16_385), ids(invoiceStore.search(query)));
+
+        query.setDescending(true);
+        query.setAfterId(16_385);
+        assertEquals(List.of(16_384, 16_383), ids(invoiceStore.search(query)));
+
+        query.setAfterId(Integer.MAX_VALUE);
+        query.setLimit(10);
+        assertEquals(List.of(200_000, 16_385, 16_384, 16_383, 3), ids(invoiceStore.search(query)));
+    }
+
+    @Test
+    void testSearchByDueDateWithKeyset() {
+        for (int id = 1; id <= 6; id++)
+            invoiceStore.insert(invoice(id, LocalDate.of(2024, 9, (id + 1) / 2)));
+        Invoice paid = invoiceStore.findById(4).orElseThrow();
+        paid.setStatus(Status.PAID);
+        invoiceStore.update(paid);
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setSortField(InvoiceSortField.DUE_DATE);
+        query.setDueDateTo(LocalDate.of(2024, 9, 2));
+        assertEquals(List.of(1, 2, 3), ids(invoiceStore.search(query)));
+
+        //Continuing after invoice 1 with due date 2024-09-01
+        query.setDueDateTo(null);
+        query.setAfterKey(LocalDate.of(2024, 9, 1));
+        query.setAfterId(1);
+        query.setLimit(3);
+        assertEquals(List.of(2, 3, 5), ids(invoiceStore.search(query)));
+
+        query.setDescending(true);
+        query.setAfterKey(LocalDate.of(2024, 9, 3));
+        query.setAfterId(6);
+        assertEquals(List.of(5, 3, 2), ids(invoiceStore.search(query)));
+    }
+
+    @Test
+    void testSearchByAmount() {
+        long[] amounts = {500, 100, 300, 100, 200};
+        for (int id = 1; id <= amounts.length; id++) {
+            Invoice invoice = invoice(id, LocalDate.now());
+            invoice.setAmount(amounts[id - 1]);
+            invoiceStore.insert(invoice);
+        }
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setSortField(InvoiceSortField.AMOUNT);
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setMaxAmount(300L);
+        query.setLimit(3);
+        assertEquals(List.of(2, 4, 5), ids(invoiceStore.search(query)));
+
+        query.setAfterKey(200L);
+        query.setAfterId(5);
+        assertEquals(List.of(3), ids(invoiceStore.search(query)));
+
+        query.setDescending(true);
+        query.setMaxAmount(null);
+        query.setAfterKey(300L);
+        query.setAfterId(3);
+        assertEquals(List.of(5, 4, 2), ids(invoiceStore.search(query)));
+    }
+
+    @Test
+    void testIndexesFollowViewsAndUpdates() {
+        List<Integer> inserted = List.of(3, 63, 64, 16_384, 200_000);
+        inserted.forEach(id -> invoiceStore.insert(invoice(id, LocalDate.of(2024, 9, 1))));
+
+        //Views move the invoice between the indexes as soon as they are written
+        Invoice view = invoiceStore.findById(64).orElseThrow();
+        view.setStatus(Status.PAID);
+        view.setDueDate(LocalDate.of(2024, 9, 20));
+        Invoice copy = invoice(16_384, LocalDate.of(2024, 8, 1));
+        copy.setStatus(Status.VOID);
+        invoiceStore.update(copy);
+
+        assertEquals(List.of(3, 63, 200_000), ids(invoiceStore.findByStatus(Status.PENDING)));
+        assertEquals(List.of(64), ids(invoiceStore.findByStatus(Status.PAID)));
+        assertEquals(List.of(3, 63, 200_000),
+                ids(invoiceStore.findByStatusAndDueDateBefore(Status.PENDING, LocalDate.of(2024, 9, 2))));
+        assertEquals(List.of(3, 63, 16_384, 200_000),
+                ids(invoiceStore.findByDueDateBetween(LocalDate.of(2024, 8, 1), LocalDate.of(2024, 9, 10))));
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setDescending(true);
+        query.setAfterId(200_000);
+        assertEquals(List.of(63, 3), ids(invoiceStore.search(query)));
+
+        query = new InvoiceQuery();
+        query.setSortField(InvoiceSortField.DUE_DATE);
+        query.setDescending(true);
+        query.setAfterKey(LocalDate.of(2024, 9, 1));
+        query.setAfterId(63);
+        assertEquals(List.of(3, 16_384), ids(invoiceStore.search(query)));
+
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setSortField(InvoiceSortField.AMOUNT);
+        query.setDueDateFrom(LocalDate.of(2024, 9, 1));
+        query.setAfterKey(null);
+        query.setAfterId(null);
+        assertEquals(List.of(200_000, 64, 63, 3), ids(invoiceStore.search(query)));
+    }
+
+    //Pending invoices have a due date index of their own, which follows every change of status or due date
+    @Test
+    void testPendingDueDateIndex() {
+        for (int id = 1; id <= 6; id++)
+            invoiceStore.insert(invoice(id, LocalDate.of(2024, 9, id)));
+
+        invoiceStore.findById(1).orElseThrow().setStatus(Status.PAID);
+        invoiceStore.findById(2).orElseThrow().setDueDate(LocalDate.of(2024, 10, 1));
+        Invoice paid = invoiceStore.findById(3).orElseThrow();
+        paid.setStatus(Status.PAID);
+        paid.setDueDate(LocalDate.of(2024, 8, 1));
+        //A copy which changes status and due date at once
+        Invoice voided = invoice(4, LocalDate.of(2024, 8, 2));
+        voided.setStatus(Status.VOID);
+        invoiceStore.update(voided);
+        assertEquals(List.of(5, 6), ids(invoiceStore.findByStatusAndDueDateBefore(Status.PENDING,
+                LocalDate.of(2024, 9, 30))));
+        assertEquals(List.of(1, 3), ids(invoiceStore.findByStatusAndDueDateBefore(Status.PAID,
+                LocalDate.of(2024, 9, 30))));
+
+        //Back to pending, in the bucket of its current due date
+        invoiceStore.update(invoice(3, LocalDate.of(2024, 8, 1)));
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setSortField(InvoiceSortField.DUE_DATE);
+        assertEquals(List.of(3, 5, 6, 2), ids(invoiceStore.search(query)));
+        query.setAfterKey(LocalDate.of(2024, 9, 5));
+        query.setAfterId(5);
+        assertEquals(List.of(6, 2), ids(invoiceStore.search(query)));
+
+        query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setSortField(InvoiceSortField.AMOUNT);
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setDueDateTo(LocalDate.of(2024, 9, 30));
+        assertEquals(List.of(3, 5, 6), ids(invoiceStore.search(query)));
+    }
+
+    @Test
+    void testConcurrentInsertsAndUpdates() throws InterruptedException {
+        int threads = 16;
+        int invoicesPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * invoicesPerThread;
+            executor.execute(() -> {
+                for (int i = 1; i <= invoicesPerThread; i++) {
+                    Invoice invoice = invoice(offset + i, LocalDate.now().minusDays(i % 30));
+                    invoiceStore.insert(invoice);
+                    if (i % 2 == 0) {
+                        invoice.setStatus(Status.VOID);
+                        invoiceStore.update(invoice);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(threads * invoicesPerThread, invoiceStore.count());
+        assertEquals(threads * invoicesPerThread, invoiceStore.maxId());
+        assertEquals(threads * invoicesPerThread / 2, invoiceStore.findByStatus(Status.PENDING).size());
+        assertEquals(threads * invoicesPerThread / 2, invoiceStore.findByStatus(Status.VOID).size());
+        assertEquals(threads * invoicesPerThread / 2,
+                invoiceStore.findByStatusAndDueDateBefore(Status.PENDING, LocalDate.now().plusDays(1)).size());
+    }
+
+    private static Invoice invoice(int id, LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static List<Integer> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).toList();
+    }
+}
@@ -0,0 +1,222 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryInvoiceStoreTest {
+
+    private final InMemoryInvoiceStore invoiceStore = new InMemoryInvoiceStore();
+
+    @Test
+    void testInsertAndFindById() {
+        invoiceStore.insert(invoice(1, LocalDate.now()));
+
+        assertTrue(invoiceStore.findById(1).isPresent());
+        assertTrue(invoiceStore.findById(2).isEmpty());
+        assertEquals(1, invoiceStore.count());
+    }
+
+    @Test
+    void testFindAllById() {
+        invoiceStore.insert(invoice(1, LocalDate.now()));
+        invoiceStore.insert(invoice(2, LocalDate.now()));
+
+        assertEquals(List.of(2, 1), ids(invoiceStore.findAllById(List.of(2, 3, 1))));
+    }
+
+    @Test
+    void testInsertDuplicateId() {
+        invoiceStore.insert(invoice(1, LocalDate.now()));
+        assertThrows(IllegalArgumentException.class, () -> invoiceStore.insert(invoice(1, LocalDate.now())));
+    }
+
+    @Test
+    void testUpdateReindexesStatus() {
+        Invoice invoice = invoice(1, LocalDate.now().minusDays(1));
+        invoiceStore.insert(invoice);
+        invoiceStore.insert(invoice(2, LocalDate.now().minusDays(2)));
+
+        invoice.setStatus(Status.PAID);
+        invoiceStore.update(invoice);
+
+        assertEquals(List.of(2), ids(invoiceStore.findByStatus(Status.PENDING)));
+        assertEquals(List.of(1), ids(invoiceStore.findByStatus(Status.PAID)));
+        assertEquals(List.of(2), ids(invoiceStore.findByStatusAndDueDateBefore(Status.PENDING, LocalDate.now())));
+    }
+
+    @Test
+    void testFindByPredecessorId() {
+        invoiceStore.insert(invoice(1, LocalDate.now().minusDays(1)));
+        Invoice successor = invoice(2, LocalDate.now().plusDays(4));
+        successor.setPredecessorId(1);
+        invoiceStore.insert(successor);
+
+        assertEquals(2, invoiceStore.findByPredecessorId(1).orElseThrow().getId());
+        assertTrue(invoiceStore.findByPredecessorId(2).isEmpty());
+    }
+
+    @Test
+    void testFindByDueDateBetween() {
+        invoiceStore.insert(invoice(1, LocalDate.of(2024, 9, 1)));
+        invoiceStore.insert(invoice(2, LocalDate.of(2024, 9, 5)));
+        invoiceStore.insert(invoice(3, LocalDate.of(2024, 9, 10)));
+
+        assertEquals(List.of(1, 2),
+                ids(invoiceStore.findByDueDateBetween(LocalDate.of(2024, 9, 1), LocalDate.of(2024, 9, 5))));
+    }
+
+    @Test
+    void testSearchByDueDateWithKeyset() {
+        for (int id = 1; id <= 6; id++)
+            invoiceStore.insert(invoice(id, LocalDate.of(2024, 9, (id + 1) / 2)));
+        Invoice paid = invoiceStore.findById(4).orElseThrow();
+        paid.setStatus(Status.PAID);
+        invoiceStore.update(paid);
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setSortField(InvoiceSortField.DUE_DATE);
+        query.setDueDateTo(LocalDate.of(2024, 9, 2));
+        assertEquals(List.of(1, 2, 3), ids(invoiceStore.search(query)));
+
+        //Continuing after invoice 1 with due date 2024-09-01
+        query.setDueDateTo(null);
+        query.setAfterKey(LocalDate.of(2024, 9, 1));
+        query.setAfterId(1);
+        query.setLimit(3);
+        assertEquals(List.of(2, 3, 5), ids(invoiceStore.search(query)));
+
+        query.setDescending(true);
+        query.setAfterKey(LocalDate.of(2024, 9, 3));
+        query.setAfterId(6);
+        assertEquals(List.of(5, 3, 2), ids(invoiceStore.search(query)));
+    }
+
+    @Test
+    void testSearchByAmountWithinCurrency() {
+        long[] amounts = {300, 400, 200, 100};
+        for (int id = 1; id <= amounts.length; id++) {
+            Invoice invoice = invoice(id, LocalDate.now());
+            invoice.setAmount(amounts[id - 1]);
+            invoice.setCurrency(Currency.getInstance(id % 2 == 0 ? "JPY" : "USD"));
+            invoiceStore.insert(invoice);
+        }
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setSortField(InvoiceSortField.AMOUNT);
+        assertThrows(IllegalArgumentException.class, () -> invoiceStore.search(query));
+
+        query.setCurrency(Currency.getInstance("JPY"));
+        assertEquals(List.of(4, 2), ids(invoiceStore.search(query)));
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setMaxAmount(250L);
+        assertEquals(List.of(3), ids(invoiceStore.search(query)));
+
+        //Changing the currency moves the invoice to the index of the new currency
+        Invoice invoice = invoiceStore.findById(2).orElseThrow();
+        invoice.setCurrency(Currency.getInstance("USD"));
+        invoiceStore.update(invoice);
+        query.setMaxAmount(null);
+        assertEquals(List.of(3, 1, 2), ids(invoiceStore.search(query)));
+        query.setCurrency(Currency.getInstance("EUR"));
+        assertTrue(invoiceStore.search(query).isEmpty());
+    }
+
+    @Test
+    void testNarrowFilterIsServedFromItsIndex() {
+        //Counts the invoices a search visits, the ten matching invoices have the highest ids
+        AtomicInteger visited = new AtomicInteger();
+        for (int id = 1; id <= 10_000; id++) {
+            boolean matching = id > 9_990;
+            Invoice invoice = new Invoice() {
+                @Override
+                public LocalDate getDueDate() {
+                    visited.incrementAndGet();
+                    return super.getDueDate();
+                }
+
+                @Override
+                public long getAmount() {
+                    visited.incrementAndGet();
+                    return super.getAmount();
+                }
+            };
+            invoice.setId(id);
+            invoice.setAmount(matching ? 500 : 10_000);
+            invoice.setCurrency(Currency.getInstance("USD"));
+            invoice.setDueDate(LocalDate.of(2024, matching ? 6 : 1, 1));
+            invoice.setStatus(Status.PENDING);
+            invoiceStore.insert(invoice);
+        }
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setDueDateFrom(LocalDate.of(2024, 6, 1));
+        query.setLimit(5);
+        visited.set(0);
+        assertEquals(List.of(9_991, 9_992, 9_993, 9_994, 9_995), ids(invoiceStore.search(query)));
+        query.setAfterId(9_995);
+        assertEquals(List.of(9_996, 9_997, 9_998, 9_999, 10_000), ids(invoiceStore.search(query)));
+        assertTrue(visited.get() < 100, "visited " + visited.get());
+
+        query = new InvoiceQuery();
+        query.setSortField(InvoiceSortField.DUE_DATE);
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setMaxAmount(1_000L);
+        query.setLimit(3);
+        visited.set(0);
+        assertEquals(List.of(9_991, 9_992, 9_993), ids(invoiceStore.search(query)));
+        assertTrue(visited.get() < 100, "visited " + visited.get());
+    }
+
+    @Test
+    void testConcurrentInsertsAndUpdates() throws InterruptedException {
+        int threads = 16;
+        int invoicesPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * invoicesPerThread;
+            executor.execute(() -> {
+                for (int i = 1; i <= invoicesPerThread; i++) {
+                    Invoice invoice = invoice(offset + i, LocalDate.now().minusDays(i % 30));
+                    invoiceStore.insert(invoice);
+                    if (i % 2 == 0) {
+                        invoice.setStatus(Status.VOID);
+                        invoiceStore.update(invoice);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(threads * invoicesPerThread, invoiceStore.count());
+        assertEquals(threads * invoicesPerThread / 2, invoiceStore.findByStatus(Status.PENDING).size());
+        assertEquals(threads * invoicesPerThread / 2, invoiceStore.findByStatus(Status.VOID).size());
+    }
+
+    private static Invoice invoice(int id, LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static List<Integer> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).toList();
+    }
+}
@@ -0,0 +1,36 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.store.impl.JpaInvoiceIdBlocks;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(JpaInvoiceIdBlocks.class)
+@TestPropertySource(properties = {
+        "invoice.storage.mode=jpa",
+        "spring.autoconfigure.exclude="
+})
+class JpaInvoiceIdBlocksTest {
+
+    @Autowired
+    private JpaInvoiceIdBlocks idBlocks;
+
+    @Test
+    void testReserveBlocks() {
+        idBlocks.reseed(41);
+        assertEquals(42, idBlocks.reserve(10));
+        assertEquals(52, idBlocks.reserve(1));
+        assertEquals(52, idBlocks.last());
+
+        //Reseeding never moves the counter backwards
+        idBlocks.reseed(20);
+        assertEquals(53, idBlocks.reserve(5));
+        idBlocks.reseed(100);
+        assertEquals(101, idBlocks.reserve(1));
+    }
+}
@@ -0,0 +1,124 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.JpaInvoiceStore;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(JpaInvoiceStore.class)
+@EnableConfigurationProperties(InvoiceProperties.class)
+@TestPropertySource(properties = {
+        "invoice.storage.mode=jpa",
+        "invoice.storage.batch-size=3",
+        "spring.autoconfigure.exclude="
+})
+class JpaInvoiceStoreTest {
+
+    @Autowired
+    private JpaInvoiceStore invoiceStore;
+
+    @Test
+    void testInsertAllAndFindById() {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int id = 1; id <= 10; id++)
+            invoices.add(invoice(id, 10_000L * id, LocalDate.of(2024, 9, id)));
+        invoiceStore.insertAll(invoices);
+
+        assertEquals(10, invoiceStore.count());
+        assertEquals(10, invoiceStore.maxId());
+        assertEquals(30_000, invoiceStore.findById(3).orElseThrow().getAmount());
+        assertTrue(invoiceStore.findById(11).isEmpty());
+    }
+
+    @Test
+    void testUpdateAll() {
+        invoiceStore.insertAll(List.of(invoice(1, 10_000, LocalDate.of(2024, 9, 1)),
+                invoice(2, 10_000, LocalDate.of(2024, 9, 2))));
+
+        Invoice invoice = invoiceStore.findById(1).orElseThrow();
+        invoice.setPaidAmount(4000);
+        invoice.setStatus(Status.PAID);
+        invoiceStore.updateAll(List.of(invoice));
+
+        assertEquals(4000, invoiceStore.findById(1).orElseThrow().getPaidAmount());
+        assertEquals(List.of(2), ids(invoiceStore.findByStatusAndDueDateBefore(Status.PENDING,
+                LocalDate.of(2024, 9, 10))));
+    }
+
+    //Runs outside of the test's transaction, so that the store's own transaction is rolled back
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testWriteAllIsOneTransaction() {
+        Invoice invalid = invoice(2, 10_000, LocalDate.of(2024, 9, 2));
+        invalid.setStatus(null);
+        assertThrows(RuntimeException.class, () -> invoiceStore.writeAll(
+                List.of(invoice(1, 10_000, LocalDate.of(2024, 9, 1))), List.of(invalid)));
+        assertEquals(0, invoiceStore.count());
+    }
+
+    @Test
+    void testFindByPredecessorId() {
+        Invoice successor = invoice(2, 10_500, LocalDate.of(2024, 9, 6));
+        successor.setPredecessorId(1);
+        invoiceStore.insertAll(List.of(invoice(1, 10_000, LocalDate.of(2024, 9, 1)), successor));
+        successor.setPaidAmount(500);
+        invoiceStore.updateAll(List.of(successor));
+
+        Invoice found = invoiceStore.findByPredecessorId(1).orElseThrow();
+        assertEquals(2, found.getId());
+        assertEquals(500, found.getPaidAmount());
+        assertTrue(invoiceStore.findByPredecessorId(2).isEmpty());
+    }
+
+    @Test
+    void testSearchWithKeyset() {
+        for (int id = 1; id <= 6; id++)
+            invoiceStore.insert(invoice(id, 10_000L * ((id + 1) / 2), LocalDate.of(2024, 9, id)));
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setSortField(InvoiceSortField.AMOUNT);
+        query.setCurrency(Currency.getInstance("USD"));
+        query.setDescending(true);
+        query.setLimit(3);
+        assertEquals(List.of(6, 5, 4), ids(invoiceStore.search(query)));
+
+        query.setAfterKey(20_000L);
+        query.setAfterId(4);
+        assertEquals(List.of(3, 2, 1), ids(invoiceStore.search(query)));
+
+        query = new InvoiceQuery();
+        query.setDueDateFrom(LocalDate.of(2024, 9, 2));
+        query.setAfterId(3);
+        assertEquals(List.of(4, 5, 6), ids(invoiceStore.search(query)));
+    }
+
+    private static Invoice invoice(int id, long amount, LocalDate dueDate) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(amount);
+        invoice.setDueDate(dueDate);
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static List<Integer> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).toList();
+    }
+}
@@ -0,0 +1,230 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WalInvoiceStore;
+import com.eg.invoicemanagement.store.wal.FsyncPolicy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalInvoiceStoreTest {
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    @TempDir
+    private Path walDir;
+
+    @BeforeEach
+    void setUp() {
+        InvoiceProperties.Wal wal = properties.getStorage().getWal();
+        wal.setDir(walDir.toString());
+        wal.setFsync(FsyncPolicy.ALWAYS);
+        //Snapshots are only taken explicitly by the tests
+        wal.setSnapshotInterval(Duration.ofHours(1));
+    }
+
+    @Test
+    void testStoreIsRecoveredFromLog() throws Exception {
+        WalInvoiceStore invoiceStore = startStore();
+        invoiceStore.insertAll(List.of(invoice(1), invoice(2)));
+        Invoice invoice = invoiceStore.findById(1).orElseThrow();
+        invoice.setPaidAmount(10_000);
+        invoice.setStatus(Status.PAID);
+        invoiceStore.update(invoice);
+
+        //No shutdown, as after a crash only the log is available
+        InMemoryInvoiceStore recovered = recover();
+        assertEquals(2, recovered.count());
+        assertEquals(Status.PAID, recovered.findById(1).orElseThrow().getStatus());
+        assertEquals(10_000, recovered.findById(1).orElseThrow().getPaidAmount());
+        assertEquals(1, recovered.findByStatus(Status.PENDING).size());
+        assertEquals(LocalDate.of(2024, 1, 2), recovered.findById(2).orElseThrow().getDueDate());
+    }
+
+    @Test
+    void testStoreIsRecoveredFromSnapshotAndLogTail() throws Exception {
+        WalInvoiceStore invoiceStore = startStore();
+        invoiceStore.insertAll(List.of(invoice(1), invoice(2)));
+        invoiceStore.snapshot();
+        invoiceStore.insert(invoice(3));
+        Invoice invoice = invoiceStore.findById(2).orElseThrow();
+        invoice.setStatus(Status.VOID);
+        invoiceStore.update(invoice);
+
+        //Older segments are removed by the snapshot
+        try (Stream<Path> files = Files.list(walDir)) {
+            assertEquals(2, files.count());
+        }
+        InMemoryInvoiceStore recovered = recover();
+        assertEquals(3, recovered.count());
+        assertEquals(Status.VOID, recovered.findById(2).orElseThrow().getStatus());
+        assertEquals(3, recovered.maxId());
+    }
+
+    @Test
+    void testPredecessorIsRecovered() throws Exception {
+        WalInvoiceStore invoiceStore = startStore();
+        invoiceStore.insert(invoice(1));
+        invoiceStore.snapshot();
+        Invoice successor = invoice(2);
+        successor.setPredecessorId(1);
+        invoiceStore.insert(successor);
+        Invoice linked = invoice(3);
+        linked.setPredecessorId(2);
+        invoiceStore.insert(linked);
+        invoiceStore.snapshot();
+        Invoice logged = invoice(4);
+        logged.setPredecessorId(3);
+        invoiceStore.insert(logged);
+
+        InMemoryInvoiceStore recovered = recover();
+        assertNull(recovered.findById(1).orElseThrow().getPredecessorId());
+        assertEquals(2, recovered.findByPredecessorId(1).orElseThrow().getId());
+        assertEquals(3, recovered.findByPredecessorId(2).orElseThrow().getId());
+        assertEquals(4, recovered.findByPredecessorId(3).orElseThrow().getId());
+    }
+
+    //Segments written before the predecessor id was added to the records
+    @Test
+    void testLegacyRecordsAreReplayed() throws Exception {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES * 2 + Byte.BYTES + 3);
+        record.position(Integer.BYTES);
+        record.putInt(7).putLong(10_000).putLong(2_500).putInt((int) LocalDate.of(2024, 1, 1).toEpochDay())
+                .put((byte) Status.PENDING.ordinal()).put("USD".getBytes(StandardCharsets.US_ASCII));
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(Integer.BYTES, record.capacity() - Integer.BYTES));
+        record.putInt(0, (int) crc.getValue());
+        Files.write(walDir.resolve("wal-0.log"), record.array());
+
+        InMemoryInvoiceStore recovered = recover();
+        Invoice invoice = recovered.findById(7).orElseThrow();
+        assertEquals(2_500, invoice.getPaidAmount());
+        assertEquals(LocalDate.of(2024, 1, 1), invoice.getDueDate());
+        assertNull(invoice.getPredecessorId());
+    }
+
+    //A change which could not be logged is never applied
+    @Test
+    void testChangeIsLoggedBeforeItIsApplied() throws Exception {
+        InMemoryInvoiceStore delegate = new InMemoryInvoiceStore();
+        WalInvoiceStore invoiceStore = new WalInvoiceStore(delegate, properties);
+        invoiceStore.start();
+        invoiceStore.insert(invoice(1));
+        invoiceStore.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> invoiceStore.insert(invoice(2)));
+        assertTrue(delegate.findById(2).isEmpty());
+        Invoice voided = invoice(1);
+        voided.setStatus(Status.VOID);
+        assertThrows(IllegalStateException.class, () -> invoiceStore.update(voided));
+        assertEquals(Status.PENDING, delegate.findById(1).orElseThrow().getStatus());
+        assertTrue(delegate.findByStatus(Status.VOID).isEmpty());
+    }
+
+    //Records of invoices in the snapshot overwrite them, the last record of an invoice wins
+    @Test
+    void testLogIsFoldedIntoSnapshot() throws Exception {
+        WalInvoiceStore invoiceStore = startStore();
+        invoiceStore.insertAll(IntStream.rangeClosed(1, 100).mapToObj(WalInvoiceStoreTest::invoice).toList());
+        invoiceStore.snapshot();
+        for (int id = 1; id <= 100; id += 2) {
+            Invoice invoice = invoiceStore.findById(id).orElseThrow();
+            invoice.setPaidAmount(2_500);
+            invoiceStore.update(invoice);
+            invoice.setStatus(Status.PAID);
+            invoiceStore.update(invoice);
+        }
+        invoiceStore.insert(invoice(101));
+
+        InMemoryInvoiceStore recovered = recover();
+        assertEquals(101, recovered.count());
+        assertEquals(50, recovered.findByStatus(Status.PAID).size());
+        assertEquals(51, recovered.findByStatus(Status.PENDING).size());
+        assertEquals(2_500, recovered.findById(99).orElseThrow().getPaidAmount());
+        assertEquals(0, recovered.findById(100).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws Exception {
+        WalInvoiceStore invoiceStore = startStore();
+        invoiceStore.insert(invoice(1));
+        try (Stream<Path> files = Files.list(walDir)) {
+            Path segment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst()
+                    .orElseThrow();
+            Files.write(segment, new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        }
+
+        InMemoryInvoiceStore recovered = recover();
+        assertEquals(1, recovered.count());
+    }
+
+    @Test
+    void testConcurrentAppendsAreGroupCommitted() throws Exception {
+        properties.getStorage().getWal().setFsync(FsyncPolicy.INTERVAL);
+        WalInvoiceStore invoiceStore = startStore();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread * 250 + 1;
+                futures.add(executor.submit(() -> IntStream.range(first, first + 250)
+                        .forEach(id -> invoiceStore.insert(invoice(id)))));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        invoiceStore.shutdown();
+
+        InMemoryInvoiceStore recovered = recover();
+        assertEquals(2000, recovered.count());
+        assertTrue(recovered.findById(2000).isPresent());
+    }
+
+    private WalInvoiceStore startStore() {
+        WalInvoiceStore invoiceStore = new WalInvoiceStore(new InMemoryInvoiceStore(), properties);
+        invoiceStore.start();
+        return invoiceStore;
+    }
+
+    private InMemoryInvoiceStore recover() throws Exception {
+        InMemoryInvoiceStore recovered = new InMemoryInvoiceStore();
+        WalInvoiceStore invoiceStore = new WalInvoiceStore(recovered, properties);
+        invoiceStore.start();
+        invoiceStore.shutdown();
+        return recovered;
+    }
+
+    private static Invoice invoice(int id) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(LocalDate.of(2024, 1, 1).plusDays(id - 1));
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+}
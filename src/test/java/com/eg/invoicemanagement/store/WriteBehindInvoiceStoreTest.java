@@ -0,0 +1,161 @@
+package com.eg.invoicemanagement.store;
+
+import com.eg.invoicemanagement.config.InvoiceProperties;
+import com.eg.invoicemanagement.model.Invoice;
+import com.eg.invoicemanagement.model.enums.Status;
+import com.eg.invoicemanagement.store.impl.InMemoryInvoiceStore;
+import com.eg.invoicemanagement.store.impl.WriteBehindInvoiceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindInvoiceStoreTest {
+
+    private final AtomicBoolean failNextWrite = new AtomicBoolean();
+
+    //Fails a write as a rolled back transaction would, without applying any of it
+    private final InMemoryInvoiceStore delegate = new InMemoryInvoiceStore() {
+        @Override
+        public void writeAll(Collection<Invoice> inserted, Collection<Invoice> updated) {
+            if (failNextWrite.getAndSet(false))
+                throw new IllegalStateException("Write failed");
+            super.writeAll(inserted, updated);
+        }
+    };
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    @TempDir
+    private Path journalDir;
+
+    @BeforeEach
+    void setUp() {
+        InvoiceProperties.WriteBehind writeBehind = properties.getStorage().getWriteBehind();
+        writeBehind.setJournalDir(journalDir.toString());
+        //Flushes are only triggered explicitly by the tests
+        writeBehind.setFlushInterval(Duration.ofHours(1));
+        writeBehind.setFlushSize(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void testWritesAreCoalescedAndFlushed() throws Exception {
+        WriteBehindInvoiceStore invoiceStore = createStore();
+        Invoice invoice = invoice(1);
+        invoiceStore.insert(invoice);
+        invoice.setPaidAmount(4000);
+        invoiceStore.update(invoice);
+
+        //Served from the cache before it is written to the delegate
+        assertSame(invoice, invoiceStore.findById(1).orElseThrow());
+        assertTrue(delegate.findById(1).isEmpty());
+
+        invoiceStore.flush();
+        assertEquals(4000, delegate.findById(1).orElseThrow().getPaidAmount());
+        assertEquals(0.0, invoiceStore.getFlushLagMillis());
+
+        invoiceStore.shutdown();
+    }
+
+    //Queries see the changes which are not flushed yet without waiting for a flush
+    @Test
+    void testQueriesOverlayUnflushedChanges() throws Exception {
+        WriteBehindInvoiceStore invoiceStore = createStore();
+        for (int id = 1; id <= 4; id++)
+            invoiceStore.insert(invoice(id));
+        invoiceStore.flush();
+
+        Invoice paid = invoiceStore.findById(2).orElseThrow();
+        paid.setStatus(Status.PAID);
+        invoiceStore.update(paid);
+        invoiceStore.insert(invoice(5));
+
+        assertTrue(delegate.findByStatus(Status.PAID).isEmpty());
+        assertEquals(List.of(1, 3, 4, 5), ids(invoiceStore.findByStatus(Status.PENDING)));
+        assertEquals(List.of(2), ids(invoiceStore.findByStatus(Status.PAID)));
+        assertEquals(List.of(1, 2, 3, 4, 5), ids(invoiceStore.findAll()));
+        assertEquals(5, invoiceStore.count());
+        assertEquals(5, invoiceStore.maxId());
+
+        InvoiceQuery query = new InvoiceQuery();
+        query.setStatus(Status.PENDING);
+        query.setLimit(2);
+        assertEquals(List.of(1, 3), ids(invoiceStore.search(query)));
+        query.setAfterId(3);
+        assertEquals(List.of(4, 5), ids(invoiceStore.search(query)));
+        query.setDescending(true);
+        query.setAfterId(null);
+        assertEquals(List.of(5, 4), ids(invoiceStore.search(query)));
+        assertEquals(4, delegate.count());
+        invoiceStore.shutdown();
+    }
+
+    @Test
+    void testFailedFlushIsRetried() throws Exception {
+        WriteBehindInvoiceStore invoiceStore = createStore();
+        Invoice updated = invoice(1);
+        invoiceStore.insert(updated);
+        invoiceStore.flush();
+        updated.setPaidAmount(1000);
+        invoiceStore.update(updated);
+        invoiceStore.insert(invoice(2));
+
+        failNextWrite.set(true);
+        assertThrows(IllegalStateException.class, invoiceStore::flush);
+        assertTrue(delegate.findById(2).isEmpty());
+
+        //The insert is still written as an insert, together with the update
+        invoiceStore.flush();
+        assertEquals(List.of(1, 2), ids(delegate.findAll()));
+        assertEquals(0.0, invoiceStore.getFlushLagMillis());
+        invoiceStore.shutdown();
+    }
+
+    @Test
+    void testJournalIsReplayedAfterCrash() throws Exception {
+        WriteBehindInvoiceStore crashed = createStore();
+        crashed.insert(invoice(1));
+        Invoice invoice = invoice(2);
+        crashed.insert(invoice);
+        invoice.setPaidAmount(1000);
+        crashed.update(invoice);
+        assertTrue(delegate.isEmpty());
+
+        //A new store over the same journal replays the changes which were never flushed
+        WriteBehindInvoiceStore recovered = createStore();
+        assertEquals(2, delegate.count());
+        assertEquals(1000, delegate.findById(2).orElseThrow().getPaidAmount());
+        recovered.shutdown();
+    }
+
+    private WriteBehindInvoiceStore createStore() {
+        WriteBehindInvoiceStore invoiceStore = new WriteBehindInvoiceStore(delegate, new SimpleMeterRegistry(),
+                properties);
+        invoiceStore.start();
+        return invoiceStore;
+    }
+
+    private static Invoice invoice(int id) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setAmount(10_000);
+        invoice.setDueDate(LocalDate.of(2024, 9, 1));
+        invoice.setStatus(Status.PENDING);
+        return invoice;
+    }
+
+    private static List<Integer> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).toList();
+    }
+}